@@ -5,6 +5,7 @@ import jp.tproject.customItemCreator.command.ItemMenuCommand;
 import jp.tproject.customItemCreator.command.StorageCommand;
 import jp.tproject.customItemCreator.gui.SignEditor;
 import jp.tproject.customItemCreator.listener.ChatInputListener;
+import jp.tproject.customItemCreator.listener.CraftingListener;
 import jp.tproject.customItemCreator.listener.MenuListener;
 import jp.tproject.customItemCreator.model.ItemManager;
 import jp.tproject.customItemCreator.util.ConfigManager;
@@ -50,17 +51,18 @@ public class CustomItemCreator extends JavaPlugin {
         // イベントリスナー登録
         getServer().getPluginManager().registerEvents(new MenuListener(this), this);
         getServer().getPluginManager().registerEvents(chatInputListener, this);
+        getServer().getPluginManager().registerEvents(new CraftingListener(this), this);
 
         // カスタムレシピを登録
         this.recipeManager.registerAllRecipes();
 
         // APIサーバーを起動
-        this.apiServer = new ApiServer(this, 2002);
+        this.apiServer = new ApiServer(this);
         this.apiServer.start();
 
         getLogger().info("CustomItemCreator プラグインが有効になりました。");
         getLogger().info("ストレージタイプ: " + configManager.getStorageType());
-        getLogger().info("API Server: http://localhost:2002/api/items");
+        getLogger().info("API Server: http://localhost:" + apiServer.getPort() + "/api/items");
     }
 
     @Override
@@ -70,8 +72,8 @@ public class CustomItemCreator extends JavaPlugin {
             recipeManager.clearAllRecipes();
         }
 
-        // 設定を保存
-        configManager.saveConfig();
+        // 書き込みキューを処理しきってから設定を保存
+        configManager.shutdown();
 
         // APIサーバーを停止
         if (apiServer != null) {
@@ -0,0 +1,83 @@
+package jp.tproject.customItemCreator.api;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import jp.tproject.customItemCreator.api.utils.HttpUtils;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * APIリクエストの同時実行数を制限し、処理時間を記録するフィルター
+ * 上限に達している場合は一定時間だけ空きを待ち、それでも空かなければ503とRetry-Afterを返して処理しない
+ */
+public class AdmissionFilter extends Filter {
+
+    private final Semaphore permits;
+    private final long acquireTimeout;
+    private final int retryAfter;
+    private final ApiMetrics metrics;
+    private final String endpoint;
+
+    /**
+     * フィルターを初期化
+     * @param permits 同時実行数の許可（エンドポイント間で共有する）
+     * @param acquireTimeout 空きを待つ時間 (ミリ秒)
+     * @param retryAfter 拒否時にRetry-Afterで返す秒数
+     * @param metrics 統計の記録先
+     * @param endpoint 統計に記録するエンドポイント名
+     */
+    public AdmissionFilter(Semaphore permits, long acquireTimeout, int retryAfter, ApiMetrics metrics, String endpoint) {
+        this.permits = permits;
+        this.acquireTimeout = acquireTimeout;
+        this.retryAfter = retryAfter;
+        this.metrics = metrics;
+        this.endpoint = endpoint;
+    }
+
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+
+        if (!acquired) {
+            metrics.requestRejected(endpoint);
+            reject(exchange);
+            return;
+        }
+
+        long start = System.nanoTime();
+        metrics.requestStarted();
+        try {
+            chain.doFilter(exchange);
+        } finally {
+            metrics.requestFinished(endpoint, System.nanoTime() - start, exchange.getResponseCode());
+            permits.release();
+        }
+    }
+
+    /**
+     * 503とRetry-Afterを返してリクエストを終了する
+     * @param exchange HTTPエクスチェンジ
+     */
+    private void reject(HttpExchange exchange) throws IOException {
+        try {
+            exchange.getResponseHeaders().set("Retry-After", String.valueOf(retryAfter));
+            exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
+            HttpUtils.sendError(exchange, 503, "Server is busy");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    @Override
+    public String description() {
+        return "同時実行数の制限と処理時間の記録";
+    }
+}
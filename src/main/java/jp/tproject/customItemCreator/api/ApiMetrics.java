@@ -0,0 +1,188 @@
+package jp.tproject.customItemCreator.api;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * APIリクエストの件数と処理時間をエンドポイントごとに集計するクラス
+ * 処理時間は固定の区間に分けたヒストグラムとして記録し、パーセンタイルは区間の上限で近似する
+ */
+public class ApiMetrics {
+
+    // ヒストグラムの区間の上限 (ミリ秒)、最後の区間はそれ以上の全て
+    private static final long[] BUCKET_BOUNDS_MILLIS = {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000};
+
+    /**
+     * 1つのエンドポイントの統計
+     */
+    public static class EndpointStats {
+        private final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS_MILLIS.length + 1];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder clientErrors = new LongAdder();
+        private final LongAdder serverErrors = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+
+        private EndpointStats() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        private void record(long nanos, int status) {
+            long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+            int bucket = 0;
+            while (bucket < BUCKET_BOUNDS_MILLIS.length && millis >= BUCKET_BOUNDS_MILLIS[bucket]) {
+                bucket++;
+            }
+            buckets[bucket].increment();
+            count.increment();
+            totalNanos.add(nanos);
+
+            if (status >= 500) {
+                serverErrors.increment();
+            } else if (status >= 400) {
+                clientErrors.increment();
+            }
+        }
+
+        /**
+         * 処理したリクエスト数を取得
+         * @return リクエスト数
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * 4xxを返したリクエスト数を取得
+         * @return リクエスト数
+         */
+        public long getClientErrors() {
+            return clientErrors.sum();
+        }
+
+        /**
+         * 5xxを返したリクエスト数を取得（受付制限による503は含まない）
+         * @return リクエスト数
+         */
+        public long getServerErrors() {
+            return serverErrors.sum();
+        }
+
+        /**
+         * 同時実行数の上限で拒否したリクエスト数を取得
+         * @return リクエスト数
+         */
+        public long getRejected() {
+            return rejected.sum();
+        }
+
+        /**
+         * 平均処理時間を取得
+         * @return 平均処理時間 (ミリ秒)
+         */
+        public double getAverageMillis() {
+            long n = count.sum();
+            return n == 0 ? 0.0 : totalNanos.sum() / (double) n / 1_000_000.0;
+        }
+
+        /**
+         * 処理時間のパーセンタイルを取得
+         * @param percentile パーセンタイル (0～100)
+         * @return 該当する区間の上限 (ミリ秒)、最後の区間の場合は-1
+         */
+        public long getPercentileMillis(double percentile) {
+            long[] snapshot = getBucketCounts();
+            long total = 0;
+            for (long bucketCount : snapshot) {
+                total += bucketCount;
+            }
+            if (total == 0) {
+                return 0;
+            }
+
+            long threshold = (long) Math.ceil(total * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < snapshot.length; i++) {
+                seen += snapshot[i];
+                if (seen >= threshold) {
+                    return i < BUCKET_BOUNDS_MILLIS.length ? BUCKET_BOUNDS_MILLIS[i] : -1;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * ヒストグラムの各区間の件数を取得
+         * @return 区間ごとの件数（区間の上限はgetBucketBoundsMillisと対応し、最後の要素はそれ以上）
+         */
+        public long[] getBucketCounts() {
+            long[] snapshot = new long[buckets.length];
+            for (int i = 0; i < buckets.length; i++) {
+                snapshot[i] = buckets[i].sum();
+            }
+            return snapshot;
+        }
+    }
+
+    private final Map<String, EndpointStats> endpoints = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * リクエストの処理開始を記録
+     */
+    public void requestStarted() {
+        inFlight.incrementAndGet();
+    }
+
+    /**
+     * リクエストの処理結果を記録
+     * @param endpoint エンドポイント
+     * @param nanos 処理時間 (ナノ秒)
+     * @param status レスポンスのステータスコード
+     */
+    public void requestFinished(String endpoint, long nanos, int status) {
+        inFlight.decrementAndGet();
+        getStats(endpoint).record(nanos, status);
+    }
+
+    /**
+     * 受付制限で拒否したリクエストを記録
+     * @param endpoint エンドポイント
+     */
+    public void requestRejected(String endpoint) {
+        getStats(endpoint).rejected.increment();
+    }
+
+    private EndpointStats getStats(String endpoint) {
+        return endpoints.computeIfAbsent(endpoint, key -> new EndpointStats());
+    }
+
+    /**
+     * エンドポイントごとの統計を取得
+     * @return エンドポイントと統計のマップ
+     */
+    public Map<String, EndpointStats> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * 処理中のリクエスト数を取得
+     * @return リクエスト数
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * ヒストグラムの区間の上限を取得
+     * @return 区間の上限 (ミリ秒)
+     */
+    public static long[] getBucketBoundsMillis() {
+        return BUCKET_BOUNDS_MILLIS.clone();
+    }
+}
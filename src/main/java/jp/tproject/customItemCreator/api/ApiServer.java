@@ -1,34 +1,113 @@
 package jp.tproject.customItemCreator.api;
 
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 import jp.tproject.customItemCreator.CustomItemCreator;
+import jp.tproject.customItemCreator.api.handlers.BatchItemsHandler;
+import jp.tproject.customItemCreator.api.handlers.EventsHandler;
 import jp.tproject.customItemCreator.api.handlers.ItemDetailHandler;
 import jp.tproject.customItemCreator.api.handlers.ItemsHandler;
+import jp.tproject.customItemCreator.api.handlers.MetricsHandler;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * CustomItemCreatorのWeb APIサーバーを提供するクラス
- * ポート2002で動作し、アイテムデータをJSON形式で提供
+ * config.ymlの設定 (api.*) に従って起動し、アイテムデータをJSON形式で提供
+ * 同時に処理するリクエスト数には上限があり、超えた分は503で拒否する
  */
 public class ApiServer {
     private static final Logger LOGGER = Logger.getLogger(ApiServer.class.getName());
     private final CustomItemCreator plugin;
     private HttpServer server;
+    private ExecutorService executor;
+    private final ApiMetrics metrics = new ApiMetrics();
+
     private final int port;
+    private final int backlog;
+    private final ExecutorMode executorMode;
+    private final int threads;
+    private final int maxConcurrent;
+    private final long acquireTimeout;
+    private final int retryAfter;
+    private final int compressionThreshold;
+    private final boolean eventsEnabled;
+    private final int eventBufferSize;
+    private final int eventMaxClients;
+    private final long eventHeartbeat;
+    private final int detailCacheSize;
+    private final int idleTimeout;
+    private final int maxIdleConnections;
+    private final int maxRequestsPerConnection;
+
+    // 接続ごとのリクエスト数の制限（無制限の場合はnull）
+    private KeepAliveFilter keepAliveFilter;
+
+    // 生成済みのアイテム詳細JSON
+    private DetailCache detailCache;
+
+    // アイテム・レシピの変更フィード（無効な場合はnull）
+    private ChangeFeed changeFeed;
+
+    // 停止時に処理中のリクエストを待つ時間 (秒)
+    private static final int STOP_DELAY = 1;
+
+    /**
+     * リクエストを処理するスレッドの種類
+     */
+    public enum ExecutorMode {
+        // リクエストごとに仮想スレッドを作成する
+        VIRTUAL,
+        // 固定数のスレッドプールで処理する
+        FIXED
+    }
 
     /**
      * APIサーバーを初期化
      * @param plugin プラグインインスタンス
-     * @param port ポート番号
      */
-    public ApiServer(CustomItemCreator plugin, int port) {
+    public ApiServer(CustomItemCreator plugin) {
         this.plugin = plugin;
-        this.port = port;
+        this.port = plugin.getConfig().getInt("api.port", 2002);
+        this.backlog = Math.max(0, plugin.getConfig().getInt("api.backlog", 128));
+        this.threads = Math.max(1, plugin.getConfig().getInt("api.threads", 10));
+        this.maxConcurrent = Math.max(1, plugin.getConfig().getInt("api.max-concurrent", 64));
+        this.acquireTimeout = Math.max(0, plugin.getConfig().getLong("api.admission-timeout", 100));
+        this.retryAfter = Math.max(1, plugin.getConfig().getInt("api.retry-after", 1));
+        this.compressionThreshold = plugin.getConfig().getBoolean("api.compression.enabled", true) ?
+                Math.max(0, plugin.getConfig().getInt("api.compression.min-size", 1024)) : -1;
+
+        this.idleTimeout = Math.max(1, plugin.getConfig().getInt("api.keep-alive.idle-timeout", 30));
+        this.maxIdleConnections = Math.max(0, plugin.getConfig().getInt("api.keep-alive.max-idle-connections", 200));
+        this.maxRequestsPerConnection = Math.max(0, plugin.getConfig().getInt("api.keep-alive.max-requests", 1000));
+
+        this.detailCacheSize = Math.max(1, plugin.getConfig().getInt("api.detail-cache-size", 1000));
+        this.eventsEnabled = plugin.getConfig().getBoolean("api.events.enabled", true);
+        this.eventBufferSize = Math.max(1, plugin.getConfig().getInt("api.events.buffer-size", 1024));
+        this.eventHeartbeat = Math.max(1, plugin.getConfig().getLong("api.events.heartbeat", 15)) * 1000L;
+
+        String modeStr = plugin.getConfig().getString("api.executor", "VIRTUAL");
+        ExecutorMode mode;
+        try {
+            mode = ExecutorMode.valueOf(modeStr.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            plugin.getLogger().warning("無効なAPIエグゼキューター: " + modeStr + "、VIRTUALに設定します");
+            mode = ExecutorMode.VIRTUAL;
+        }
+        this.executorMode = mode;
+
+        // 固定数のスレッドプールでは接続中のクライアントがスレッドを占有するため、全てを使い切らないようにする
+        int maxClients = Math.max(1, plugin.getConfig().getInt("api.events.max-clients", 32));
+        this.eventMaxClients = mode == ExecutorMode.FIXED ? Math.min(maxClients, Math.max(1, threads - 1)) : maxClients;
     }
 
     /**
@@ -36,29 +115,183 @@ public class ApiServer {
      */
     public void start() {
         try {
-            server = HttpServer.create(new InetSocketAddress(port), 0);
+            configureKeepAlive();
+            server = HttpServer.create(new InetSocketAddress(port), backlog);
+            if (maxRequestsPerConnection > 0) {
+                keepAliveFilter = new KeepAliveFilter(maxRequestsPerConnection, idleTimeout * 1000L);
+            }
+
+            // アイテム詳細のキャッシュは保存・削除の通知で破棄する
+            detailCache = new DetailCache(detailCacheSize, plugin.getCustomItemKey());
+            plugin.getConfigManager().addChangeListener(detailCache);
+
+            // 同時実行数の許可は全エンドポイントで共有する
+            Semaphore permits = new Semaphore(maxConcurrent);
 
             // コンテキスト（エンドポイント）の設定
-            server.createContext("/api/items", new ItemsHandler(plugin));
-            server.createContext("/api/items/", new ItemDetailHandler(plugin));
+            createContext("/api/items", new ItemsHandler(plugin, compressionThreshold), permits, "/api/items");
+            createContext("/api/items/", new ItemDetailHandler(plugin, compressionThreshold, detailCache), permits, "/api/items/{id}");
+            // より長いパスが優先されるため、/api/items/batch はアイテム詳細より先に一致する
+            createContext("/api/items/batch", new BatchItemsHandler(plugin, compressionThreshold, detailCache), permits, "/api/items/batch");
+
+            // 処理状況は混雑時にも確認できるよう受付制限の対象外にする
+            HttpContext metricsContext = server.createContext("/api/metrics", new MetricsHandler(this));
+            if (keepAliveFilter != null) {
+                metricsContext.getFilters().add(keepAliveFilter);
+            }
+
+            // 変更フィードは接続が長時間続くため、受付制限の対象外にして接続数だけを制限する
+            if (eventsEnabled) {
+                changeFeed = new ChangeFeed(eventBufferSize);
+                plugin.getConfigManager().addChangeListener(changeFeed);
+                server.createContext("/api/events", new EventsHandler(changeFeed, eventMaxClients, eventHeartbeat));
+            }
 
             // 別スレッドでサーバーを実行
-            server.setExecutor(Executors.newFixedThreadPool(10));
+            executor = createExecutor();
+            server.setExecutor(executor);
             server.start();
 
-            LOGGER.info("API Server started on port " + port);
+            LOGGER.info("API Server started on port " + port + " (" + executorMode + ", max-concurrent " + maxConcurrent + ")");
         } catch (IOException e) {
             LOGGER.log(Level.SEVERE, "Failed to start API server", e);
         }
     }
 
+    /**
+     * 受付制限と処理時間の記録を付けてコンテキストを作成
+     */
+    private void createContext(String path, HttpHandler handler, Semaphore permits, String endpoint) {
+        HttpContext context = server.createContext(path, handler);
+        if (keepAliveFilter != null) {
+            // 受付制限で拒否した応答も接続のリクエスト数に含める
+            context.getFilters().add(keepAliveFilter);
+        }
+        context.getFilters().add(new AdmissionFilter(permits, acquireTimeout, retryAfter, metrics, endpoint));
+    }
+
+    /**
+     * 組み込みHTTPサーバーの持続的接続の設定を行う
+     * これらのシステムプロパティはHTTPサーバーのクラスが最初に使われた時に読まれるため、
+     * 同じJVMで既にHTTPサーバーが使われている場合（/reload 後など）は反映されない
+     * JVMの起動オプションで指定された値がある場合はそちらを優先する
+     */
+    private void configureKeepAlive() {
+        setPropertyIfAbsent("sun.net.httpserver.idleInterval", String.valueOf(idleTimeout));
+        setPropertyIfAbsent("sun.net.httpserver.maxIdleConnections", String.valueOf(maxIdleConnections));
+        // 小さな応答が遅延送信されないようにする
+        setPropertyIfAbsent("sun.net.httpserver.nodelay", "true");
+    }
+
+    private static void setPropertyIfAbsent(String key, String value) {
+        if (System.getProperty(key) == null) {
+            System.setProperty(key, value);
+        }
+    }
+
+    /**
+     * 設定に応じてリクエストを処理するエグゼキューターを作成
+     * @return エグゼキューター
+     */
+    private ExecutorService createExecutor() {
+        if (executorMode == ExecutorMode.VIRTUAL) {
+            // ストレージの読み込みなどで待っている間もスレッドを占有しない
+            return Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name("CustomItemCreator-Api-", 0).factory());
+        }
+
+        AtomicInteger threadId = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "CustomItemCreator-Api-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
     /**
      * サーバーを停止
      */
     public void stop() {
+        // 変更フィードの配信を先に終わらせ、停止時に接続が残らないようにする
+        if (changeFeed != null) {
+            plugin.getConfigManager().removeChangeListener(changeFeed);
+            changeFeed.close();
+        }
+        if (detailCache != null) {
+            plugin.getConfigManager().removeChangeListener(detailCache);
+        }
+
         if (server != null) {
-            server.stop(0);
+            server.stop(STOP_DELAY);
             LOGGER.info("API Server stopped");
         }
+
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(STOP_DELAY, TimeUnit.SECONDS)) {
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * 待ち受けポートを取得
+     * @return ポート番号
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * リクエストを処理するスレッドの種類を取得
+     * @return スレッドの種類
+     */
+    public ExecutorMode getExecutorMode() {
+        return executorMode;
+    }
+
+    /**
+     * 同時に処理するリクエスト数の上限を取得
+     * @return 上限
+     */
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    /**
+     * アイテム詳細のキャッシュを取得
+     * @return キャッシュ、起動前はnull
+     */
+    public DetailCache getDetailCache() {
+        return detailCache;
+    }
+
+    /**
+     * 接続ごとのリクエスト数の制限を取得
+     * @return フィルター、無制限の場合や起動前はnull
+     */
+    public KeepAliveFilter getKeepAliveFilter() {
+        return keepAliveFilter;
+    }
+
+    /**
+     * 使われていない接続を切断するまでの時間を取得
+     * @return 時間 (秒)
+     */
+    public int getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * リクエストの統計を取得
+     * @return 統計
+     */
+    public ApiMetrics getMetrics() {
+        return metrics;
     }
-}
\ No newline at end of file
+}
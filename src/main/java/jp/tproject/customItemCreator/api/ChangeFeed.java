@@ -0,0 +1,150 @@
+package jp.tproject.customItemCreator.api;
+
+import jp.tproject.customItemCreator.model.CatalogChange;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * アイテム・レシピの変更に連番を付けて保持する変更フィード
+ * 直近の一定件数だけをリングバッファに残し、購読者は最後に受け取った連番の続きから取得する
+ * 待機中の購読者は仮想スレッドでも占有しないよう、synchronizedではなくロックの条件で待つ
+ */
+public class ChangeFeed implements Consumer<CatalogChange> {
+
+    /**
+     * 連番付きの変更
+     */
+    public static class Event {
+        private final long sequence;
+        private final CatalogChange change;
+
+        private Event(long sequence, CatalogChange change) {
+            this.sequence = sequence;
+            this.change = change;
+        }
+
+        /**
+         * 連番を取得
+         * @return 連番（1から始まり、サーバーの起動中は単調増加する）
+         */
+        public long getSequence() {
+            return sequence;
+        }
+
+        /**
+         * 変更内容を取得
+         * @return 変更内容
+         */
+        public CatalogChange getChange() {
+            return change;
+        }
+    }
+
+    private final Event[] buffer;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+
+    // 最後に発行した連番（lockで保護）
+    private long lastSequence;
+    private volatile boolean closed;
+
+    /**
+     * 変更フィードを作成
+     * @param capacity 保持する変更の件数
+     */
+    public ChangeFeed(int capacity) {
+        this.buffer = new Event[Math.max(1, capacity)];
+    }
+
+    /**
+     * 変更に連番を付けて記録し、待機中の購読者に知らせる
+     * @param change 変更内容
+     */
+    @Override
+    public void accept(CatalogChange change) {
+        lock.lock();
+        try {
+            long sequence = ++lastSequence;
+            buffer[(int) (sequence % buffer.length)] = new Event(sequence, change);
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 指定した連番より後の変更を取得
+     * まだ変更がない場合は、変更があるか待ち時間が過ぎるまで待つ
+     * @param after 最後に受け取った連番（初回はgetLastSequenceの値）
+     * @param timeoutMillis 待ち時間 (ミリ秒)
+     * @return 変更の一覧（待ち時間が過ぎた場合や停止した場合は空）、
+     *         指定した連番の続きが既に破棄されているか存在しない場合はnull（購読者は全件を取得し直す）
+     * @throws InterruptedException 待機中に割り込まれた場合
+     */
+    public List<Event> await(long after, long timeoutMillis) throws InterruptedException {
+        long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        lock.lock();
+        try {
+            while (!closed && after == lastSequence && remaining > 0) {
+                remaining = changed.awaitNanos(remaining);
+            }
+
+            // サーバーの再起動などで連番が戻っている場合や、続きがバッファから溢れた場合
+            long oldest = Math.max(1, lastSequence - buffer.length + 1);
+            if (after > lastSequence || after + 1 < oldest) {
+                return null;
+            }
+            if (closed || after == lastSequence) {
+                return Collections.emptyList();
+            }
+
+            List<Event> events = new ArrayList<>((int) (lastSequence - after));
+            for (long sequence = after + 1; sequence <= lastSequence; sequence++) {
+                events.add(buffer[(int) (sequence % buffer.length)]);
+            }
+            return events;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 最後に発行した連番を取得
+     * @return 連番、まだ変更がない場合は0
+     */
+    public long getLastSequence() {
+        lock.lock();
+        try {
+            return lastSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * フィードを停止し、待機中の購読者を全て起こす
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 停止しているか
+     * @return 停止している場合true
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+}
@@ -0,0 +1,160 @@
+package jp.tproject.customItemCreator.api;
+
+import jp.tproject.customItemCreator.api.utils.JsonUtils;
+import jp.tproject.customItemCreator.model.CatalogChange;
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * アイテム詳細のレスポンスをアイテムごとに保持するLRUキャッシュ
+ * エントリはアイテムのリビジョンと一緒に保持し、リビジョンが一致する場合だけ再利用する
+ * アイテムの保存・削除の通知を受けると該当するエントリを破棄する
+ */
+public class DetailCache implements Consumer<CatalogChange> {
+
+    private final int maxEntries;
+    private final NamespacedKey customItemKey;
+
+    // アイテムID -> 詳細のレスポンス（アクセス順、lockとしてこのマップ自体を使用する）
+    private final LinkedHashMap<String, ResponseSnapshot> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * キャッシュを作成
+     * @param maxEntries 保持するアイテム数の上限
+     * @param customItemKey 詳細に含めるカスタムアイテムキー
+     */
+    public DetailCache(int maxEntries, NamespacedKey customItemKey) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.customItemKey = customItemKey;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ResponseSnapshot> eldest) {
+                return size() > DetailCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * アイテム詳細のレスポンスを取得
+     * @param itemId アイテムID
+     * @param revision 現在のアイテムのリビジョン
+     * @return レスポンス、ないかリビジョンが古い場合はnull
+     */
+    public ResponseSnapshot get(String itemId, long revision) {
+        ResponseSnapshot snapshot;
+        synchronized (entries) {
+            snapshot = entries.get(itemId);
+        }
+
+        if (snapshot == null || snapshot.getVersion() != revision) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return snapshot;
+    }
+
+    /**
+     * アイテム詳細のJSONを生成して登録
+     * @param itemId アイテムID
+     * @param item アイテム
+     * @param revision アイテムを取得する前に読んだリビジョン
+     * @return 生成したレスポンス
+     */
+    public ResponseSnapshot render(String itemId, ItemStack item, long revision) {
+        ResponseSnapshot snapshot = new ResponseSnapshot(revision, JsonUtils.itemToDetailJson(itemId, item, customItemKey));
+        put(itemId, snapshot);
+        return snapshot;
+    }
+
+    /**
+     * アイテム詳細のレスポンスを登録
+     * 既により新しいリビジョンのエントリがある場合は置き換えない
+     * @param itemId アイテムID
+     * @param snapshot レスポンス（バージョンはアイテムのリビジョン）
+     */
+    public void put(String itemId, ResponseSnapshot snapshot) {
+        synchronized (entries) {
+            ResponseSnapshot current = entries.get(itemId);
+            if (current == null || current.getVersion() <= snapshot.getVersion()) {
+                entries.put(itemId, snapshot);
+            }
+        }
+    }
+
+    /**
+     * アイテムの変更に合わせてエントリを破棄する
+     * @param change 変更内容
+     */
+    @Override
+    public void accept(CatalogChange change) {
+        switch (change.getType()) {
+            case ITEM_SAVED, ITEM_REMOVED -> invalidate(change.getId());
+            case RELOADED -> clear();
+            default -> {
+                // レシピの変更はアイテム詳細に影響しない
+            }
+        }
+    }
+
+    /**
+     * アイテムのエントリを破棄
+     * @param itemId アイテムID
+     */
+    public void invalidate(String itemId) {
+        synchronized (entries) {
+            entries.remove(itemId);
+        }
+    }
+
+    /**
+     * 全てのエントリを破棄
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * 保持しているアイテム数を取得
+     * @return アイテム数
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * 保持するアイテム数の上限を取得
+     * @return 上限
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * キャッシュから応答した回数を取得
+     * @return 回数
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * キャッシュになく生成した回数を取得
+     * @return 回数
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+}
@@ -0,0 +1,107 @@
+package jp.tproject.customItemCreator.api;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 1つの接続で処理するリクエスト数を制限するフィルター
+ * 接続は送信元のアドレスとポートで区別し、上限に達したリクエストの応答に Connection: close を付けて切断させる
+ * 一定時間使われていない接続の記録は、リクエストのたびに少しずつ破棄する
+ */
+public class KeepAliveFilter extends Filter {
+
+    // 使われていない接続の記録を破棄する間隔 (ミリ秒)
+    private static final long PURGE_INTERVAL = 10_000;
+
+    private final int maxRequests;
+    private final long idleTimeoutMillis;
+
+    // 送信元 -> 接続の記録
+    private final ConcurrentHashMap<InetSocketAddress, Connection> connections = new ConcurrentHashMap<>();
+
+    private final LongAdder closedByLimit = new LongAdder();
+    private volatile long nextPurge;
+
+    /**
+     * フィルターを初期化
+     * @param maxRequests 1つの接続で処理するリクエスト数の上限
+     * @param idleTimeoutMillis 接続が使われなくなってから記録を破棄するまでの時間 (ミリ秒)
+     */
+    public KeepAliveFilter(int maxRequests, long idleTimeoutMillis) {
+        this.maxRequests = Math.max(1, maxRequests);
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        long now = System.currentTimeMillis();
+        purgeIdle(now);
+
+        InetSocketAddress remote = exchange.getRemoteAddress();
+        if (remote != null) {
+            Connection connection = connections.computeIfAbsent(remote, key -> new Connection());
+            connection.lastUsed = now;
+            if (connection.requests.incrementAndGet() >= maxRequests) {
+                // 応答後にサーバー側から接続を閉じる（同じポートからの次の接続は新しく数え直す）
+                connections.remove(remote, connection);
+                exchange.getResponseHeaders().set("Connection", "close");
+                closedByLimit.increment();
+            }
+        }
+        chain.doFilter(exchange);
+    }
+
+    /**
+     * 一定時間使われていない接続の記録を破棄する
+     * サーバー側でも同じ時間で切断されるため、記録だけが残り続けることはない
+     */
+    private void purgeIdle(long now) {
+        if (now < nextPurge) {
+            return;
+        }
+        nextPurge = now + PURGE_INTERVAL;
+
+        long threshold = now - idleTimeoutMillis;
+        connections.values().removeIf(connection -> connection.lastUsed < threshold);
+    }
+
+    /**
+     * 記録している接続数を取得
+     * @return 接続数
+     */
+    public int getTrackedConnections() {
+        return connections.size();
+    }
+
+    /**
+     * リクエスト数の上限に達して切断した回数を取得
+     * @return 回数
+     */
+    public long getClosedByLimit() {
+        return closedByLimit.sum();
+    }
+
+    /**
+     * 1つの接続で処理するリクエスト数の上限を取得
+     * @return 上限
+     */
+    public int getMaxRequests() {
+        return maxRequests;
+    }
+
+    @Override
+    public String description() {
+        return "接続ごとのリクエスト数の制限";
+    }
+
+    private static class Connection {
+        private final AtomicInteger requests = new AtomicInteger();
+        private volatile long lastUsed;
+    }
+}
@@ -0,0 +1,82 @@
+package jp.tproject.customItemCreator.api;
+
+import jp.tproject.customItemCreator.api.utils.HttpUtils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 事前に生成したレスポンス本文
+ * カタログのバージョンごとに1度だけUTF-8のバイト列に変換し、ETagと一緒に使い回す
+ * gzip圧縮した本文も初めて要求された時点で1度だけ作成して保持する
+ */
+public class ResponseSnapshot {
+
+    private final long version;
+    private final byte[] body;
+    private final String etag;
+
+    // gzip圧縮した本文（初めて要求された時点で作成）
+    private volatile byte[] gzipBody;
+
+    /**
+     * スナップショットを作成
+     * @param version 生成元のカタログのバージョン
+     * @param json レスポンス本文のJSON
+     */
+    public ResponseSnapshot(long version, String json) {
+        this(version, json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * スナップショットを作成
+     * @param version 生成元のカタログのバージョン
+     * @param body レスポンス本文（UTF-8のJSON、以降は変更しないこと）
+     */
+    public ResponseSnapshot(long version, byte[] body) {
+        this.version = version;
+        this.body = body;
+        this.etag = HttpUtils.createETag(body);
+    }
+
+    /**
+     * 生成元のカタログのバージョンを取得
+     * @return バージョン
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * レスポンス本文を取得
+     * @return UTF-8のバイト列（変更しないこと）
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * gzip圧縮したレスポンス本文を取得
+     * @return 圧縮したバイト列（変更しないこと）
+     */
+    public byte[] getGzipBody() {
+        byte[] compressed = gzipBody;
+        if (compressed == null) {
+            synchronized (this) {
+                compressed = gzipBody;
+                if (compressed == null) {
+                    compressed = HttpUtils.gzip(body);
+                    gzipBody = compressed;
+                }
+            }
+        }
+        return compressed;
+    }
+
+    /**
+     * ETagを取得
+     * @return 引用符付きの強いETag
+     */
+    public String getETag() {
+        return etag;
+    }
+}
@@ -0,0 +1,186 @@
+package jp.tproject.customItemCreator.api.handlers;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import jp.tproject.customItemCreator.CustomItemCreator;
+import jp.tproject.customItemCreator.api.DetailCache;
+import jp.tproject.customItemCreator.api.ResponseSnapshot;
+import jp.tproject.customItemCreator.api.utils.HttpUtils;
+import jp.tproject.customItemCreator.api.utils.JsonUtils;
+import org.bukkit.inventory.ItemStack;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 複数のアイテム詳細をまとめて取得するAPIハンドラ
+ * GET の ids パラメータ（カンマ区切り）または POST の本文（IDの文字列配列）で指定したアイテムを、
+ * ストレージへの1度の問い合わせで読み込み、詳細のJSON配列として順に送信する
+ * 生成済みの詳細JSONがあるアイテムはストレージから読み込まない
+ */
+public class BatchItemsHandler implements HttpHandler {
+    // 1度に取得できるアイテム数の上限
+    private static final int MAX_IDS = 500;
+
+    // POSTの本文の上限 (バイト)
+    private static final int MAX_BODY_SIZE = 64 * 1024;
+
+    private final CustomItemCreator plugin;
+
+    // 圧縮する最小サイズ (バイト)、圧縮しない場合は負の値
+    private final int compressionThreshold;
+
+    // 生成済みの詳細JSON（アイテム詳細APIと共有する）
+    private final DetailCache detailCache;
+
+    public BatchItemsHandler(CustomItemCreator plugin, int compressionThreshold, DetailCache detailCache) {
+        this.plugin = plugin;
+        this.compressionThreshold = compressionThreshold;
+        this.detailCache = detailCache;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            // CORSヘッダーを設定
+            exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
+            exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "GET, POST, OPTIONS");
+            exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type,Authorization");
+
+            // OPTIONSリクエストの処理
+            if (exchange.getRequestMethod().equalsIgnoreCase("OPTIONS")) {
+                exchange.sendResponseHeaders(204, -1);
+                return;
+            }
+
+            List<String> requested;
+            if (exchange.getRequestMethod().equalsIgnoreCase("GET")) {
+                requested = parseIdsParameter(exchange.getRequestURI().getRawQuery());
+            } else if (exchange.getRequestMethod().equalsIgnoreCase("POST")) {
+                String body = readBody(exchange);
+                if (body == null) {
+                    HttpUtils.sendError(exchange, 413, "Request body is too large");
+                    return;
+                }
+                try {
+                    requested = JsonUtils.parseStringArray(body);
+                } catch (IllegalArgumentException e) {
+                    HttpUtils.sendError(exchange, 400, "Body must be a JSON array of item IDs");
+                    return;
+                }
+            } else {
+                HttpUtils.sendError(exchange, 405, "Method Not Allowed");
+                return;
+            }
+
+            // 重複を除き、指定された順を保つ
+            Set<String> itemIds = new LinkedHashSet<>();
+            for (String itemId : requested) {
+                if (!itemId.isEmpty()) {
+                    itemIds.add(itemId);
+                }
+            }
+
+            if (itemIds.isEmpty()) {
+                HttpUtils.sendError(exchange, 400, "Item IDs are required");
+                return;
+            }
+            if (itemIds.size() > MAX_IDS) {
+                HttpUtils.sendError(exchange, 400, "Too many item IDs (max " + MAX_IDS + ")");
+                return;
+            }
+
+            // 生成済みの詳細JSONがないアイテムだけを、まとめて1度に読み込む
+            Map<String, Long> revisions = new HashMap<>();
+            Map<String, ResponseSnapshot> cached = new HashMap<>();
+            List<String> missing = new ArrayList<>();
+            for (String itemId : itemIds) {
+                long revision = plugin.getConfigManager().getItemRevision(itemId);
+                if (revision < 0) {
+                    continue;
+                }
+                revisions.put(itemId, revision);
+
+                ResponseSnapshot snapshot = detailCache.get(itemId, revision);
+                if (snapshot != null) {
+                    cached.put(itemId, snapshot);
+                } else {
+                    missing.add(itemId);
+                }
+            }
+            Map<String, ItemStack> loaded = missing.isEmpty() ?
+                    Collections.emptyMap() : plugin.getConfigManager().getItems(missing);
+
+            // 見つからなかったアイテムは含めない
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            HttpUtils.sendJson(exchange, 200, compressionThreshold, writer -> {
+                writer.beginArray();
+                for (String itemId : itemIds) {
+                    ResponseSnapshot snapshot = cached.get(itemId);
+                    if (snapshot == null) {
+                        ItemStack item = loaded.get(itemId);
+                        if (item == null) {
+                            continue;
+                        }
+                        snapshot = detailCache.render(itemId, item, revisions.get(itemId));
+                    }
+                    writer.rawValue(new String(snapshot.getBody(), StandardCharsets.UTF_8));
+                }
+                writer.endArray();
+            });
+        } catch (Exception e) {
+            // エラーが発生した場合は500エラー
+            HttpUtils.sendError(exchange, 500, "Internal Server Error: " + e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * クエリ文字列のidsパラメータからアイテムIDの一覧を取得
+     * @param rawQuery URLエンコードされたクエリ文字列
+     * @return アイテムIDの一覧
+     */
+    private List<String> parseIdsParameter(String rawQuery) {
+        List<String> itemIds = new ArrayList<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return itemIds;
+        }
+
+        for (String pair : rawQuery.split("&")) {
+            if (!pair.startsWith("ids=")) {
+                continue;
+            }
+            // カンマで区切ってからデコードし、IDに含まれるエンコードされたカンマを区切りと区別する
+            for (String itemId : pair.substring(4).split(",")) {
+                itemIds.add(URLDecoder.decode(itemId, StandardCharsets.UTF_8).trim());
+            }
+        }
+        return itemIds;
+    }
+
+    /**
+     * リクエスト本文を読み込む
+     * @param exchange HTTPエクスチェンジ
+     * @return 本文、上限を超えた場合はnull
+     * @throws IOException IO例外
+     */
+    private String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream is = exchange.getRequestBody()) {
+            byte[] body = is.readNBytes(MAX_BODY_SIZE + 1);
+            if (body.length > MAX_BODY_SIZE) {
+                return null;
+            }
+            return new String(body, StandardCharsets.UTF_8);
+        }
+    }
+}
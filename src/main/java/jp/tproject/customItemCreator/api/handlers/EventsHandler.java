@@ -0,0 +1,181 @@
+package jp.tproject.customItemCreator.api.handlers;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import jp.tproject.customItemCreator.api.ChangeFeed;
+import jp.tproject.customItemCreator.api.utils.HttpUtils;
+import jp.tproject.customItemCreator.api.utils.JsonStreamWriter;
+import jp.tproject.customItemCreator.model.CatalogChange;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * アイテム・レシピの変更をServer-Sent Eventsで配信するAPIハンドラ
+ * 各イベントのidは変更の連番で、再接続時にLast-Event-ID（またはsinceパラメータ）で続きから受け取れる
+ * 続きが既に破棄されている場合はresetイベントを送るため、クライアントは全件を取得し直す
+ */
+public class EventsHandler implements HttpHandler {
+    // 再接続までの待ち時間としてクライアントに伝える値 (ミリ秒)
+    private static final int RETRY_MILLIS = 3000;
+
+    private final ChangeFeed feed;
+    private final int maxClients;
+    private final long heartbeatMillis;
+
+    // 接続中のクライアント数
+    private final AtomicInteger clients = new AtomicInteger();
+
+    /**
+     * ハンドラを初期化
+     * @param feed 変更フィード
+     * @param maxClients 同時に接続できるクライアント数の上限
+     * @param heartbeatMillis 変更がない間に接続維持のコメントを送る間隔 (ミリ秒)
+     */
+    public EventsHandler(ChangeFeed feed, int maxClients, long heartbeatMillis) {
+        this.feed = feed;
+        this.maxClients = maxClients;
+        this.heartbeatMillis = heartbeatMillis;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            // CORSヘッダーを設定
+            exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
+            exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "GET, OPTIONS");
+            exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type,Authorization,Last-Event-ID");
+
+            // OPTIONSリクエストの処理
+            if (exchange.getRequestMethod().equalsIgnoreCase("OPTIONS")) {
+                exchange.sendResponseHeaders(204, -1);
+                return;
+            }
+
+            // GETリクエスト以外は405エラー
+            if (!exchange.getRequestMethod().equalsIgnoreCase("GET")) {
+                HttpUtils.sendError(exchange, 405, "Method Not Allowed");
+                return;
+            }
+
+            Long resumeFrom;
+            try {
+                resumeFrom = parseResumeSequence(exchange);
+            } catch (NumberFormatException e) {
+                HttpUtils.sendError(exchange, 400, "Invalid Last-Event-ID");
+                return;
+            }
+
+            // 接続は長時間続くため、同時実行数の制限とは別に接続数を制限する
+            if (clients.incrementAndGet() > maxClients) {
+                clients.decrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", String.valueOf(RETRY_MILLIS / 1000));
+                HttpUtils.sendError(exchange, 503, "Too many event stream clients");
+                return;
+            }
+
+            try {
+                stream(exchange, resumeFrom);
+            } finally {
+                clients.decrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            // サーバーの停止による割り込み
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // クライアントが切断した
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * 変更を配信し続ける（クライアントが切断するか、フィードが停止するまで戻らない）
+     * @param exchange HTTPエクスチェンジ
+     * @param resumeFrom 再開する連番、新規接続の場合はnull
+     */
+    private void stream(HttpExchange exchange, Long resumeFrom) throws IOException, InterruptedException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.getResponseHeaders().set("X-Accel-Buffering", "no");
+        exchange.sendResponseHeaders(200, 0);
+
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8))) {
+            out.write("retry: " + RETRY_MILLIS + "\n\n");
+            out.flush();
+
+            long cursor = resumeFrom != null ? resumeFrom : feed.getLastSequence();
+            while (!feed.isClosed()) {
+                List<ChangeFeed.Event> events = feed.await(cursor, heartbeatMillis);
+
+                if (events == null) {
+                    // 続きを配信できないため、最新の連番から購読し直してもらう
+                    cursor = feed.getLastSequence();
+                    writeReset(out, cursor);
+                } else if (events.isEmpty()) {
+                    // 中継するプロキシに切断されないよう、変更がなくてもコメントを送る
+                    out.write(": ping\n\n");
+                } else {
+                    for (ChangeFeed.Event event : events) {
+                        writeEvent(out, event);
+                    }
+                    cursor = events.get(events.size() - 1).getSequence();
+                }
+                out.flush();
+            }
+        }
+    }
+
+    /**
+     * 再開する連番を取得
+     * Last-Event-IDヘッダーを優先し、なければsinceパラメータを使用する
+     * @return 連番、指定がなければnull
+     * @throws NumberFormatException 連番が数値でない場合
+     */
+    private Long parseResumeSequence(HttpExchange exchange) {
+        String lastEventId = exchange.getRequestHeaders().getFirst("Last-Event-ID");
+        if (lastEventId != null && !lastEventId.isBlank()) {
+            return Long.parseLong(lastEventId.trim());
+        }
+
+        String rawQuery = exchange.getRequestURI().getRawQuery();
+        if (rawQuery != null) {
+            for (String pair : rawQuery.split("&")) {
+                if (pair.startsWith("since=")) {
+                    return Long.parseLong(pair.substring(6));
+                }
+            }
+        }
+        return null;
+    }
+
+    private void writeEvent(Writer out, ChangeFeed.Event event) throws IOException {
+        CatalogChange change = event.getChange();
+
+        StringWriter data = new StringWriter();
+        try (JsonStreamWriter json = new JsonStreamWriter(data)) {
+            json.beginObject();
+            json.name("seq").value(event.getSequence());
+            json.name("type").value(change.getType().getEventName());
+            json.name("id").value(change.getId());
+            json.name("timestamp").value(change.getTimestamp());
+            json.endObject();
+        }
+
+        out.write("id: " + event.getSequence() + "\n");
+        out.write("event: " + change.getType().getEventName() + "\n");
+        out.write("data: " + data + "\n\n");
+    }
+
+    private void writeReset(Writer out, long sequence) throws IOException {
+        out.write("id: " + sequence + "\n");
+        out.write("event: reset\n");
+        out.write("data: {\"seq\":" + sequence + "}\n\n");
+    }
+}
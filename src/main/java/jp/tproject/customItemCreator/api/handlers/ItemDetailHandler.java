@@ -3,20 +3,30 @@ package jp.tproject.customItemCreator.api.handlers;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import jp.tproject.customItemCreator.CustomItemCreator;
-import jp.tproject.customItemCreator.api.utils.JsonUtils;
+import jp.tproject.customItemCreator.api.DetailCache;
+import jp.tproject.customItemCreator.api.ResponseSnapshot;
+import jp.tproject.customItemCreator.api.utils.HttpUtils;
 import org.bukkit.inventory.ItemStack;
 
 import java.io.IOException;
-import java.io.OutputStream;
 
 /**
  * アイテム詳細を取得するAPIハンドラ
+ * 生成した詳細JSONはアイテムのリビジョンごとにキャッシュし、更新されるまで使い回す
  */
 public class ItemDetailHandler implements HttpHandler {
     private final CustomItemCreator plugin;
 
-    public ItemDetailHandler(CustomItemCreator plugin) {
+    // 圧縮する最小サイズ (バイト)、圧縮しない場合は負の値
+    private final int compressionThreshold;
+
+    // 生成済みの詳細JSON
+    private final DetailCache detailCache;
+
+    public ItemDetailHandler(CustomItemCreator plugin, int compressionThreshold, DetailCache detailCache) {
         this.plugin = plugin;
+        this.compressionThreshold = compressionThreshold;
+        this.detailCache = detailCache;
     }
 
     @Override
@@ -25,7 +35,8 @@ public class ItemDetailHandler implements HttpHandler {
             // CORSヘッダーを設定
             exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
             exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "GET, OPTIONS");
-            exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type,Authorization");
+            exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type,Authorization,If-None-Match");
+            exchange.getResponseHeaders().add("Access-Control-Expose-Headers", "ETag");
 
             // OPTIONSリクエストの処理
             if (exchange.getRequestMethod().equalsIgnoreCase("OPTIONS")) {
@@ -35,7 +46,7 @@ public class ItemDetailHandler implements HttpHandler {
 
             // GETリクエスト以外は405エラー
             if (!exchange.getRequestMethod().equalsIgnoreCase("GET")) {
-                sendResponse(exchange, 405, "Method Not Allowed");
+                HttpUtils.sendError(exchange, 405, "Method Not Allowed");
                 return;
             }
 
@@ -44,48 +55,42 @@ public class ItemDetailHandler implements HttpHandler {
             String itemId = path.substring(path.lastIndexOf("/") + 1);
 
             if (itemId.isEmpty()) {
-                sendResponse(exchange, 400, "Item ID is required");
+                HttpUtils.sendError(exchange, 400, "Item ID is required");
                 return;
             }
 
-            // アイテムを取得
-            ItemStack item = plugin.getConfigManager().getItem(itemId);
+            // リビジョンはアイテムより先に読む（取得中に更新された場合は次のリクエストで生成し直される）
+            long revision = plugin.getConfigManager().getItemRevision(itemId);
+            ResponseSnapshot snapshot = revision >= 0 ? detailCache.get(itemId, revision) : null;
 
-            if (item == null) {
-                sendResponse(exchange, 404, "Item not found: " + itemId);
-                return;
-            }
+            if (snapshot == null) {
+                // アイテムを取得
+                ItemStack item = revision >= 0 ? plugin.getConfigManager().getItem(itemId) : null;
+
+                if (item == null) {
+                    HttpUtils.sendError(exchange, 404, "Item not found: " + itemId);
+                    return;
+                }
 
-            // JSON形式に変換して返す
-            String response = JsonUtils.itemToDetailJson(itemId, item, plugin.getCustomItemKey());
+                // JSON形式に変換してキャッシュする
+                snapshot = detailCache.render(itemId, item, revision);
+            }
 
             // 成功レスポンスを送信
-            exchange.getResponseHeaders().set("Content-Type", "application/json");
-            exchange.sendResponseHeaders(200, response.getBytes().length);
-            try (OutputStream os = exchange.getResponseBody()) {
-                os.write(response.getBytes());
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.getResponseHeaders().set("ETag", snapshot.getETag());
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+
+            if (HttpUtils.matchesIfNoneMatch(exchange, snapshot.getETag())) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
             }
+            HttpUtils.sendSnapshot(exchange, snapshot, compressionThreshold);
         } catch (Exception e) {
             // エラーが発生した場合は500エラー
-            sendResponse(exchange, 500, "Internal Server Error: " + e.getMessage());
+            HttpUtils.sendError(exchange, 500, "Internal Server Error: " + e.getMessage());
         } finally {
             exchange.close();
         }
     }
-
-    /**
-     * エラーレスポンスを送信
-     * @param exchange HTTPエクスチェンジ
-     * @param statusCode ステータスコード
-     * @param message エラーメッセージ
-     * @throws IOException IO例外
-     */
-    private void sendResponse(HttpExchange exchange, int statusCode, String message) throws IOException {
-        String response = "{\"error\":\"" + message + "\"}";
-        exchange.getResponseHeaders().set("Content-Type", "application/json");
-        exchange.sendResponseHeaders(statusCode, response.getBytes().length);
-        try (OutputStream os = exchange.getResponseBody()) {
-            os.write(response.getBytes());
-        }
-    }
-}
\ No newline at end of file
+}
@@ -3,21 +3,55 @@ package jp.tproject.customItemCreator.api.handlers;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import jp.tproject.customItemCreator.CustomItemCreator;
+import jp.tproject.customItemCreator.api.ResponseSnapshot;
+import jp.tproject.customItemCreator.api.utils.HttpUtils;
+import jp.tproject.customItemCreator.api.utils.JsonStreamWriter;
 import jp.tproject.customItemCreator.api.utils.JsonUtils;
-import org.bukkit.inventory.ItemStack;
+import jp.tproject.customItemCreator.model.ItemPage;
+import jp.tproject.customItemCreator.model.ItemQuery;
+import jp.tproject.customItemCreator.model.Rarity;
+import jp.tproject.customItemCreator.util.CatalogSnapshot;
+import org.bukkit.Material;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * アイテム一覧を取得するAPIハンドラ
+ * パラメータがない場合は全件を、ページ指定・絞り込み・項目指定がある場合は1ページ分を返す
  */
 public class ItemsHandler implements HttpHandler {
+    // ページ指定時のデフォルトと上限の件数
+    private static final int DEFAULT_LIMIT = 50;
+    private static final int MAX_LIMIT = 500;
+
+    // いずれかが指定された場合に1ページ分だけ返すパラメータ
+    private static final Set<String> PAGED_PARAMS = Set.of("limit", "cursor", "material", "rarity",
+            "minCustomModelData", "maxCustomModelData", "name", "fields");
+
+    // 全件一覧を生成する際のバッファの余裕 (バイト)
+    private static final int INITIAL_BUFFER_MARGIN = 8192;
+
     private final CustomItemCreator plugin;
 
-    public ItemsHandler(CustomItemCreator plugin) {
+    // 圧縮する最小サイズ (バイト)、圧縮しない場合は負の値
+    private final int compressionThreshold;
+
+    // 全件一覧のレスポンス（カタログのバージョンが変わるまで使い回す）
+    private volatile ResponseSnapshot listSnapshot;
+
+    public ItemsHandler(CustomItemCreator plugin, int compressionThreshold) {
         this.plugin = plugin;
+        this.compressionThreshold = compressionThreshold;
     }
 
     @Override
@@ -26,7 +60,8 @@ public class ItemsHandler implements HttpHandler {
             // CORSヘッダーを設定
             exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
             exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "GET, OPTIONS");
-            exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type,Authorization");
+            exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type,Authorization,If-None-Match");
+            exchange.getResponseHeaders().add("Access-Control-Expose-Headers", "ETag");
 
             // OPTIONSリクエストの処理
             if (exchange.getRequestMethod().equalsIgnoreCase("OPTIONS")) {
@@ -36,43 +71,183 @@ public class ItemsHandler implements HttpHandler {
 
             // GETリクエスト以外は405エラー
             if (!exchange.getRequestMethod().equalsIgnoreCase("GET")) {
-                sendResponse(exchange, 405, "Method Not Allowed");
+                HttpUtils.sendError(exchange, 405, "Method Not Allowed");
                 return;
             }
 
-            // アイテム一覧を取得
-            Map<String, ItemStack> items = plugin.getConfigManager().getAllItems();
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+
+            if (!Collections.disjoint(query.keySet(), PAGED_PARAMS)) {
+                // ページ指定・絞り込み・項目指定がある場合はカーソルの続きから1ページ分だけ返す
+                int limit;
+                ItemQuery itemQuery;
+                Set<String> fields;
+                try {
+                    Integer requestedLimit = parseInteger(query, "limit");
+                    limit = requestedLimit != null ? requestedLimit : DEFAULT_LIMIT;
+                    itemQuery = parseItemQuery(query);
+                    fields = parseFields(query.get("fields"));
+                } catch (IllegalArgumentException e) {
+                    HttpUtils.sendError(exchange, 400, "Invalid parameter: " + e.getMessage());
+                    return;
+                }
+                limit = Math.max(1, Math.min(limit, MAX_LIMIT));
 
-            // JSON形式に変換して返す
-            String response = JsonUtils.itemMapToJson(items);
+                ItemPage page;
+                try {
+                    page = plugin.getConfigManager().getCatalogSnapshot().query(itemQuery, query.get("cursor"), limit);
+                } catch (IllegalArgumentException e) {
+                    HttpUtils.sendError(exchange, 400, "Invalid cursor");
+                    return;
+                }
+                HttpUtils.sendJson(exchange, 200, compressionThreshold,
+                        writer -> JsonUtils.writeItemPage(writer, page, fields));
+            } else {
+                // 生成済みの一覧を使い、変更がなければ本文を送らずに304を返す
+                ResponseSnapshot snapshot = getListSnapshot();
+                exchange.getResponseHeaders().set("ETag", snapshot.getETag());
+                exchange.getResponseHeaders().set("Cache-Control", "no-cache");
 
-            // 成功レスポンスを送信
-            exchange.getResponseHeaders().set("Content-Type", "application/json");
-            exchange.sendResponseHeaders(200, response.getBytes().length);
-            try (OutputStream os = exchange.getResponseBody()) {
-                os.write(response.getBytes());
+                if (HttpUtils.matchesIfNoneMatch(exchange, snapshot.getETag())) {
+                    exchange.sendResponseHeaders(304, -1);
+                    return;
+                }
+                HttpUtils.sendSnapshot(exchange, snapshot, compressionThreshold);
             }
         } catch (Exception e) {
             // エラーが発生した場合は500エラー
-            sendResponse(exchange, 500, "Internal Server Error: " + e.getMessage());
+            HttpUtils.sendError(exchange, 500, "Internal Server Error: " + e.getMessage());
         } finally {
             exchange.close();
         }
     }
 
     /**
-     * エラーレスポンスを送信
-     * @param exchange HTTPエクスチェンジ
-     * @param statusCode ステータスコード
-     * @param message エラーメッセージ
+     * 全件一覧のレスポンスを取得
+     * カタログのバージョンが変わっている場合のみメタデータからJSONを生成し直す
+     * @return 一覧のスナップショット
+     */
+    private ResponseSnapshot getListSnapshot() throws IOException {
+        CatalogSnapshot catalog = plugin.getConfigManager().getCatalogSnapshot();
+        ResponseSnapshot snapshot = listSnapshot;
+        if (snapshot != null && snapshot.getVersion() == catalog.getVersion()) {
+            return snapshot;
+        }
+
+        // 同時に来たリクエストで重複して生成しないよう、生成は1つのスレッドだけが行う
+        synchronized (this) {
+            snapshot = listSnapshot;
+            if (snapshot == null || snapshot.getVersion() != catalog.getVersion()) {
+                // カタログのスナップショットは変更されないため、バージョンと内容は必ず一致する
+                snapshot = new ResponseSnapshot(catalog.getVersion(), encodeSummaryList(catalog, snapshot));
+                listSnapshot = snapshot;
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * 全件一覧をUTF-8のJSONに変換
+     * 文字列を経由せずにバイト列へ直接書き込み、前回の本文のサイズでバッファを確保して拡張を減らす
+     * @param catalog カタログのスナップショット
+     * @param previous 前回のスナップショット（ない場合はnull）
+     * @return JSONのバイト列
      * @throws IOException IO例外
      */
-    private void sendResponse(HttpExchange exchange, int statusCode, String message) throws IOException {
-        String response = "{\"error\":\"" + message + "\"}";
-        exchange.getResponseHeaders().set("Content-Type", "application/json");
-        exchange.sendResponseHeaders(statusCode, response.getBytes().length);
-        try (OutputStream os = exchange.getResponseBody()) {
-            os.write(response.getBytes());
+    private byte[] encodeSummaryList(CatalogSnapshot catalog, ResponseSnapshot previous) throws IOException {
+        int initialSize = previous != null ? previous.getBody().length + INITIAL_BUFFER_MARGIN : INITIAL_BUFFER_MARGIN;
+        ByteArrayOutputStream out = new ByteArrayOutputStream(initialSize);
+        try (JsonStreamWriter writer = JsonStreamWriter.of(out)) {
+            JsonUtils.writeSummaryList(writer, catalog.getSummaries());
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * クエリパラメータから絞り込み条件を作成
+     * @param query クエリパラメータ
+     * @return 絞り込み条件
+     * @throws IllegalArgumentException 値が不正な場合
+     */
+    private ItemQuery parseItemQuery(Map<String, String> query) {
+        Material material = null;
+        String materialName = query.get("material");
+        if (materialName != null && !materialName.isEmpty()) {
+            material = Material.matchMaterial(materialName);
+            if (material == null) {
+                throw new IllegalArgumentException("material");
+            }
+        }
+
+        Rarity rarity = null;
+        String rarityName = query.get("rarity");
+        if (rarityName != null && !rarityName.isEmpty()) {
+            try {
+                rarity = Rarity.valueOf(rarityName.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("rarity");
+            }
+        }
+
+        return new ItemQuery(material, rarity, parseInteger(query, "minCustomModelData"),
+                parseInteger(query, "maxCustomModelData"), query.get("name"));
+    }
+
+    private Integer parseInteger(Map<String, String> query, String key) {
+        String value = query.get(key);
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key);
+        }
+    }
+
+    /**
+     * fieldsパラメータから出力する項目を取得
+     * @param value カンマ区切りの項目名
+     * @return 項目のセット、指定なしの場合はnull（全ての項目を出力）
+     * @throws IllegalArgumentException 不明な項目が含まれる場合
+     */
+    private Set<String> parseFields(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+
+        Set<String> fields = new HashSet<>();
+        for (String field : value.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!JsonUtils.SUMMARY_FIELDS.contains(name)) {
+                throw new IllegalArgumentException("fields");
+            }
+            fields.add(name);
+        }
+        return fields.isEmpty() ? null : fields;
+    }
+
+    /**
+     * クエリ文字列をパラメータのマップに変換
+     * @param rawQuery URLエンコードされたクエリ文字列
+     * @return パラメータ名と値のマップ
+     */
+    private Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return params;
+        }
+
+        for (String pair : rawQuery.split("&")) {
+            int separator = pair.indexOf('=');
+            String key = separator >= 0 ? pair.substring(0, separator) : pair;
+            String value = separator >= 0 ? pair.substring(separator + 1) : "";
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
         }
+        return params;
     }
-}
\ No newline at end of file
+}
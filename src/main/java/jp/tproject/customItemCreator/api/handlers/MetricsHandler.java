@@ -0,0 +1,129 @@
+package jp.tproject.customItemCreator.api.handlers;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import jp.tproject.customItemCreator.api.ApiMetrics;
+import jp.tproject.customItemCreator.api.ApiServer;
+import jp.tproject.customItemCreator.api.DetailCache;
+import jp.tproject.customItemCreator.api.KeepAliveFilter;
+import jp.tproject.customItemCreator.api.utils.HttpUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * APIサーバーの処理状況（同時実行数・処理時間のヒストグラム）を返すAPIハンドラ
+ * 受付制限の対象外のため、混雑している間も取得できる
+ */
+public class MetricsHandler implements HttpHandler {
+    private final ApiServer apiServer;
+
+    public MetricsHandler(ApiServer apiServer) {
+        this.apiServer = apiServer;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            // CORSヘッダーを設定
+            exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
+            exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "GET, OPTIONS");
+            exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type,Authorization");
+
+            // OPTIONSリクエストの処理
+            if (exchange.getRequestMethod().equalsIgnoreCase("OPTIONS")) {
+                exchange.sendResponseHeaders(204, -1);
+                return;
+            }
+
+            // GETリクエスト以外は405エラー
+            if (!exchange.getRequestMethod().equalsIgnoreCase("GET")) {
+                HttpUtils.sendError(exchange, 405, "Method Not Allowed");
+                return;
+            }
+
+            byte[] response = toJson().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(response);
+            }
+        } catch (Exception e) {
+            // エラーが発生した場合は500エラー
+            HttpUtils.sendError(exchange, 500, "Internal Server Error: " + e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * 処理状況をJSON形式に変換
+     * @return JSON文字列
+     */
+    private String toJson() {
+        ApiMetrics metrics = apiServer.getMetrics();
+        StringBuilder sb = new StringBuilder();
+        sb.append("{");
+        sb.append("\"executor\":\"").append(apiServer.getExecutorMode()).append("\",");
+        sb.append("\"maxConcurrent\":").append(apiServer.getMaxConcurrent()).append(",");
+        sb.append("\"inFlight\":").append(metrics.getInFlight()).append(",");
+        KeepAliveFilter keepAlive = apiServer.getKeepAliveFilter();
+        sb.append("\"keepAlive\":{");
+        sb.append("\"idleTimeout\":").append(apiServer.getIdleTimeout());
+        if (keepAlive != null) {
+            sb.append(",\"maxRequests\":").append(keepAlive.getMaxRequests()).append(",");
+            sb.append("\"connections\":").append(keepAlive.getTrackedConnections()).append(",");
+            sb.append("\"closedByLimit\":").append(keepAlive.getClosedByLimit());
+        }
+        sb.append("},");
+        DetailCache detailCache = apiServer.getDetailCache();
+        if (detailCache != null) {
+            sb.append("\"detailCache\":{");
+            sb.append("\"size\":").append(detailCache.size()).append(",");
+            sb.append("\"maxEntries\":").append(detailCache.getMaxEntries()).append(",");
+            sb.append("\"hits\":").append(detailCache.getHits()).append(",");
+            sb.append("\"misses\":").append(detailCache.getMisses());
+            sb.append("},");
+        }
+        sb.append("\"bucketsMs\":").append(toJsonArray(ApiMetrics.getBucketBoundsMillis())).append(",");
+        sb.append("\"endpoints\":{");
+
+        boolean first = true;
+        for (Map.Entry<String, ApiMetrics.EndpointStats> entry : metrics.getEndpoints().entrySet()) {
+            if (!first) {
+                sb.append(",");
+            }
+            first = false;
+
+            ApiMetrics.EndpointStats stats = entry.getValue();
+            sb.append("\"").append(entry.getKey()).append("\":{");
+            sb.append("\"count\":").append(stats.getCount()).append(",");
+            sb.append("\"clientErrors\":").append(stats.getClientErrors()).append(",");
+            sb.append("\"serverErrors\":").append(stats.getServerErrors()).append(",");
+            sb.append("\"rejected\":").append(stats.getRejected()).append(",");
+            sb.append("\"avgMs\":").append(String.format(Locale.ROOT, "%.3f", stats.getAverageMillis())).append(",");
+            sb.append("\"p50Ms\":").append(stats.getPercentileMillis(50)).append(",");
+            sb.append("\"p95Ms\":").append(stats.getPercentileMillis(95)).append(",");
+            sb.append("\"p99Ms\":").append(stats.getPercentileMillis(99)).append(",");
+            sb.append("\"histogram\":").append(toJsonArray(stats.getBucketCounts()));
+            sb.append("}");
+        }
+
+        sb.append("}}");
+        return sb.toString();
+    }
+
+    private static String toJsonArray(long[] values) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                sb.append(",");
+            }
+            sb.append(values[i]);
+        }
+        return sb.append("]").toString();
+    }
+}
@@ -0,0 +1,232 @@
+package jp.tproject.customItemCreator.api.utils;
+
+import com.sun.net.httpserver.HttpExchange;
+import jp.tproject.customItemCreator.api.ResponseSnapshot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * HTTPの条件付きリクエストや圧縮などを扱うユーティリティクラス
+ */
+public class HttpUtils {
+
+    // 圧縮しながら送信する際のバッファサイズ
+    private static final int STREAM_BUFFER_SIZE = 8192;
+
+    /**
+     * レスポンスを送信
+     * 一定サイズ以上でクライアントがgzipを受け付ける場合は、圧縮しながらチャンク形式で送信する
+     * @param exchange HTTPエクスチェンジ
+     * @param statusCode ステータスコード
+     * @param body レスポンス本文
+     * @param compressionThreshold 圧縮する最小サイズ (バイト)、圧縮しない場合は負の値
+     * @throws IOException IO例外
+     */
+    public static void sendBody(HttpExchange exchange, int statusCode, byte[] body,
+                                int compressionThreshold) throws IOException {
+        exchange.getResponseHeaders().add("Vary", "Accept-Encoding");
+
+        if (!shouldCompress(exchange, body.length, compressionThreshold)) {
+            exchange.sendResponseHeaders(statusCode, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+            return;
+        }
+
+        // 長さ0を指定するとチャンク形式になり、圧縮後のサイズを事前に計算せずに送信できる
+        exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        exchange.sendResponseHeaders(statusCode, 0);
+        try (OutputStream os = new GZIPOutputStream(exchange.getResponseBody(), STREAM_BUFFER_SIZE)) {
+            for (int offset = 0; offset < body.length; offset += STREAM_BUFFER_SIZE) {
+                os.write(body, offset, Math.min(STREAM_BUFFER_SIZE, body.length - offset));
+            }
+        }
+    }
+
+    /**
+     * エラーレスポンスを送信
+     * 本文は1度だけUTF-8に変換し、その長さをContent-Lengthとして送る
+     * @param exchange HTTPエクスチェンジ
+     * @param statusCode ステータスコード
+     * @param message エラーメッセージ
+     * @throws IOException IO例外
+     */
+    public static void sendError(HttpExchange exchange, int statusCode, String message) throws IOException {
+        byte[] body = ("{\"error\":\"" + JsonUtils.escapeJson(message) + "\"}").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(statusCode, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    /**
+     * JSONの本文を書き込む処理
+     */
+    @FunctionalInterface
+    public interface JsonBody {
+        void write(JsonStreamWriter writer) throws IOException;
+    }
+
+    /**
+     * JSONを生成しながらチャンク形式で送信
+     * 本文全体をメモリ上に組み立てないため、大きな一覧でも必要なメモリは要素1つ分で済む
+     * 事前にサイズが分からないため、圧縮するかはクライアントがgzipを受け付けるかだけで判断する
+     * @param exchange HTTPエクスチェンジ
+     * @param statusCode ステータスコード
+     * @param compressionThreshold 圧縮する最小サイズ (バイト)、圧縮しない場合は負の値
+     * @param body 本文を書き込む処理
+     * @throws IOException IO例外
+     */
+    public static void sendJson(HttpExchange exchange, int statusCode, int compressionThreshold,
+                                JsonBody body) throws IOException {
+        exchange.getResponseHeaders().add("Vary", "Accept-Encoding");
+
+        boolean compress = compressionThreshold >= 0 && acceptsGzip(exchange);
+        if (compress) {
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(statusCode, 0);
+
+        OutputStream os = exchange.getResponseBody();
+        if (compress) {
+            os = new GZIPOutputStream(os, STREAM_BUFFER_SIZE);
+        }
+        try (JsonStreamWriter writer = JsonStreamWriter.of(os)) {
+            body.write(writer);
+        }
+    }
+
+    /**
+     * 事前に生成したレスポンスを送信
+     * 圧縮した本文はスナップショットに保持されるため、圧縮はバージョンごとに1度だけ行われる
+     * @param exchange HTTPエクスチェンジ
+     * @param snapshot スナップショット
+     * @param compressionThreshold 圧縮する最小サイズ (バイト)、圧縮しない場合は負の値
+     * @throws IOException IO例外
+     */
+    public static void sendSnapshot(HttpExchange exchange, ResponseSnapshot snapshot,
+                                    int compressionThreshold) throws IOException {
+        exchange.getResponseHeaders().add("Vary", "Accept-Encoding");
+
+        byte[] body = snapshot.getBody();
+        if (shouldCompress(exchange, body.length, compressionThreshold)) {
+            body = snapshot.getGzipBody();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    private static boolean shouldCompress(HttpExchange exchange, int length, int compressionThreshold) {
+        return compressionThreshold >= 0 && length >= compressionThreshold && acceptsGzip(exchange);
+    }
+
+    /**
+     * クライアントがgzipを受け付けるか
+     * Accept-Encodingの q=0 は拒否として扱う
+     * @param exchange HTTPエクスチェンジ
+     * @return 受け付ける場合true
+     */
+    public static boolean acceptsGzip(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (header == null) {
+            return false;
+        }
+
+        for (String part : header.split(",")) {
+            String[] params = part.trim().split(";");
+            String coding = params[0].trim().toLowerCase(Locale.ROOT);
+            if (!coding.equals("gzip") && !coding.equals("x-gzip") && !coding.equals("*")) {
+                continue;
+            }
+
+            double quality = 1.0;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(param.substring(2));
+                    } catch (NumberFormatException e) {
+                        quality = 0.0;
+                    }
+                }
+            }
+            return quality > 0.0;
+        }
+        return false;
+    }
+
+    /**
+     * バイト列をgzip圧縮
+     * @param data 圧縮するデータ
+     * @return 圧縮したデータ
+     */
+    public static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            // メモリ上の書き込みのため発生しない
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * レスポンス本文から強いETagを作成
+     * 内容のハッシュから作るため、サーバーを再起動しても同じ内容なら同じETagになる
+     * @param body レスポンス本文
+     * @return 引用符付きのETag
+     */
+    public static String createETag(byte[] body) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(hash, 16)) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256は全てのJava実装で利用できる
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * If-None-Matchヘッダーが指定したETagと一致するか
+     * If-None-Matchは弱い比較のため、W/ の有無は区別しない
+     * @param exchange HTTPエクスチェンジ
+     * @param etag 現在のETag
+     * @return 一致する場合true（304を返してよい）
+     */
+    public static boolean matchesIfNoneMatch(HttpExchange exchange, String etag) {
+        String header = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (header == null) {
+            return false;
+        }
+
+        String opaqueTag = stripWeak(etag);
+        for (String candidate : header.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || stripWeak(tag).equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+}
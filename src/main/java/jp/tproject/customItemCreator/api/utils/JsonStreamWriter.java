@@ -0,0 +1,238 @@
+package jp.tproject.customItemCreator.api.utils;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * JSONを書き込み先へ順に出力するライター
+ * 文書全体を文字列として組み立てないため、大きな一覧でも必要なメモリは要素1つ分で済む
+ * 要素間のカンマは自動で挿入する
+ */
+public class JsonStreamWriter implements Closeable, Flushable {
+
+    // 書き込み時のバッファサイズ
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Writer out;
+
+    // 入れ子ごとに、次の要素の前にカンマが必要か
+    private boolean[] needsComma = new boolean[8];
+    private int depth;
+
+    // 直前にオブジェクトのキーを書き込んだか（値の前にカンマを入れない）
+    private boolean afterName;
+
+    /**
+     * ライターを作成
+     * @param out 書き込み先
+     */
+    public JsonStreamWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * UTF-8で出力ストリームに書き込むライターを作成
+     * @param out 出力ストリーム
+     * @return ライター
+     */
+    public static JsonStreamWriter of(OutputStream out) {
+        return new JsonStreamWriter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE));
+    }
+
+    /**
+     * 配列を開始
+     * @return このライター
+     * @throws IOException IO例外
+     */
+    public JsonStreamWriter beginArray() throws IOException {
+        beforeValue();
+        out.write('[');
+        push();
+        return this;
+    }
+
+    /**
+     * 配列を終了
+     * @return このライター
+     * @throws IOException IO例外
+     */
+    public JsonStreamWriter endArray() throws IOException {
+        pop();
+        out.write(']');
+        return this;
+    }
+
+    /**
+     * オブジェクトを開始
+     * @return このライター
+     * @throws IOException IO例外
+     */
+    public JsonStreamWriter beginObject() throws IOException {
+        beforeValue();
+        out.write('{');
+        push();
+        return this;
+    }
+
+    /**
+     * オブジェクトを終了
+     * @return このライター
+     * @throws IOException IO例外
+     */
+    public JsonStreamWriter endObject() throws IOException {
+        pop();
+        out.write('}');
+        return this;
+    }
+
+    /**
+     * オブジェクトのキーを書き込む
+     * @param name キー
+     * @return このライター
+     * @throws IOException IO例外
+     */
+    public JsonStreamWriter name(String name) throws IOException {
+        beforeValue();
+        writeString(name);
+        out.write(':');
+        afterName = true;
+        return this;
+    }
+
+    /**
+     * 文字列を書き込む
+     * @param value 値（nullの場合はnull）
+     * @return このライター
+     * @throws IOException IO例外
+     */
+    public JsonStreamWriter value(String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        beforeValue();
+        writeString(value);
+        return this;
+    }
+
+    /**
+     * 数値を書き込む
+     * @param value 値
+     * @return このライター
+     * @throws IOException IO例外
+     */
+    public JsonStreamWriter value(long value) throws IOException {
+        beforeValue();
+        out.write(Long.toString(value));
+        return this;
+    }
+
+    /**
+     * 真偽値を書き込む
+     * @param value 値
+     * @return このライター
+     * @throws IOException IO例外
+     */
+    public JsonStreamWriter value(boolean value) throws IOException {
+        beforeValue();
+        out.write(value ? "true" : "false");
+        return this;
+    }
+
+    /**
+     * nullを書き込む
+     * @return このライター
+     * @throws IOException IO例外
+     */
+    public JsonStreamWriter nullValue() throws IOException {
+        beforeValue();
+        out.write("null");
+        return this;
+    }
+
+    /**
+     * 生成済みのJSONをそのまま値として書き込む
+     * @param json JSON文字列
+     * @return このライター
+     * @throws IOException IO例外
+     */
+    public JsonStreamWriter rawValue(String json) throws IOException {
+        beforeValue();
+        out.write(json);
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void beforeValue() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (depth > 0) {
+            if (needsComma[depth - 1]) {
+                out.write(',');
+            }
+            needsComma[depth - 1] = true;
+        }
+    }
+
+    private void push() {
+        if (depth == needsComma.length) {
+            needsComma = Arrays.copyOf(needsComma, depth * 2);
+        }
+        needsComma[depth++] = false;
+    }
+
+    private void pop() {
+        if (depth == 0) {
+            throw new IllegalStateException("閉じる配列またはオブジェクトがありません");
+        }
+        depth--;
+    }
+
+    /**
+     * 文字列をエスケープしながら引用符付きで書き込む
+     */
+    private void writeString(String text) throws IOException {
+        out.write('"');
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            String escaped;
+            switch (c) {
+                case '"' -> escaped = "\\\"";
+                case '\\' -> escaped = "\\\\";
+                case '\n' -> escaped = "\\n";
+                case '\r' -> escaped = "\\r";
+                case '\t' -> escaped = "\\t";
+                default -> {
+                    if (c >= 0x20) {
+                        continue;
+                    }
+                    escaped = String.format("\\u%04x", (int) c);
+                }
+            }
+            // エスケープが不要な区間はまとめて書き込む
+            out.write(text, start, i - start);
+            out.write(escaped);
+            start = i + 1;
+        }
+        out.write(text, start, text.length() - start);
+        out.write('"');
+    }
+}
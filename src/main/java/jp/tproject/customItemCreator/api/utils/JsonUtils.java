@@ -1,5 +1,7 @@
 package jp.tproject.customItemCreator.api.utils;
 
+import jp.tproject.customItemCreator.model.ItemPage;
+import jp.tproject.customItemCreator.model.ItemSummary;
 import org.bukkit.Material;
 import org.bukkit.attribute.Attribute;
 import org.bukkit.attribute.AttributeModifier;
@@ -12,10 +14,15 @@ import org.bukkit.persistence.PersistentDataContainer;
 import org.bukkit.persistence.PersistentDataType;
 import org.bukkit.NamespacedKey;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * アイテムデータをJSON形式にシリアライズするユーティリティクラス
@@ -23,29 +30,86 @@ import java.util.Map;
 public class JsonUtils {
 
     /**
-     * アイテムマップをJSON配列にシリアライズ
-     * @param items アイテムマップ
-     * @return JSON文字列
+     * 一覧のJSONに含まれる項目（fieldsで選択できる項目）
      */
-    public static String itemMapToJson(Map<String, ItemStack> items) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("[");
-
-        boolean first = true;
-        for (Map.Entry<String, ItemStack> entry : items.entrySet()) {
-            if (!first) {
-                sb.append(",");
-            }
-            first = false;
+    public static final Set<String> SUMMARY_FIELDS = Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(
+            "id", "type", "amount", "displayName", "customModelData", "rarity", "updatedAt")));
 
-            String itemId = entry.getKey();
-            ItemStack item = entry.getValue();
+    /**
+     * アイテムのメタデータ一覧をJSON配列として書き込む
+     * アイテム本体をデコードせず、1件ずつ書き込み先へ出力する
+     * @param writer 書き込み先
+     * @param summaries メタデータの一覧
+     * @throws IOException IO例外
+     */
+    public static void writeSummaryList(JsonStreamWriter writer, Iterable<ItemSummary> summaries) throws IOException {
+        writeSummaryList(writer, summaries, null);
+    }
 
-            sb.append(itemToBasicJson(itemId, item));
+    /**
+     * アイテムのメタデータ一覧を、指定した項目だけのJSON配列として書き込む
+     * @param writer 書き込み先
+     * @param summaries メタデータの一覧
+     * @param fields 出力する項目、全て出力する場合はnull
+     * @throws IOException IO例外
+     */
+    public static void writeSummaryList(JsonStreamWriter writer, Iterable<ItemSummary> summaries,
+                                        Set<String> fields) throws IOException {
+        writer.beginArray();
+        for (ItemSummary summary : summaries) {
+            writeSummary(writer, summary, fields);
         }
+        writer.endArray();
+    }
 
-        sb.append("]");
-        return sb.toString();
+    /**
+     * アイテム一覧の1ページ分をJSONオブジェクトとして書き込む
+     * @param writer 書き込み先
+     * @param page ページ
+     * @param fields 各アイテムに出力する項目、全て出力する場合はnull
+     * @throws IOException IO例外
+     */
+    public static void writeItemPage(JsonStreamWriter writer, ItemPage page, Set<String> fields) throws IOException {
+        writer.beginObject();
+        writer.name("items");
+        writeSummaryList(writer, page.getItems(), fields);
+        writer.name("nextCursor").value(page.hasNext() ? page.getNextCursor() : null);
+        writer.name("total").value(page.getTotalCount());
+        writer.endObject();
+    }
+
+    /**
+     * アイテムのメタデータをJSONとして書き込む（一覧表示用）
+     * itemToBasicJsonと同じ項目に加えてレア度と更新日時を含む
+     * @param writer 書き込み先
+     * @param summary アイテムのメタデータ
+     * @param fields 出力する項目（SUMMARY_FIELDSの部分集合）、全て出力する場合はnull
+     * @throws IOException IO例外
+     */
+    public static void writeSummary(JsonStreamWriter writer, ItemSummary summary, Set<String> fields) throws IOException {
+        writer.beginObject();
+        if (fields == null || fields.contains("id")) {
+            writer.name("id").value(summary.getItemId());
+        }
+        if (fields == null || fields.contains("type")) {
+            writer.name("type").value(summary.getMaterial().name());
+        }
+        if (fields == null || fields.contains("amount")) {
+            writer.name("amount").value(summary.getAmount());
+        }
+        if (fields == null || fields.contains("displayName")) {
+            writer.name("displayName").value(summary.getName() != null ? summary.getName() : "");
+        }
+        if (fields == null || fields.contains("customModelData")) {
+            writer.name("customModelData").value(summary.getCustomModelData());
+        }
+        if (fields == null || fields.contains("rarity")) {
+            writer.name("rarity").value(summary.getRarity().name());
+        }
+        if (fields == null || fields.contains("updatedAt")) {
+            writer.name("updatedAt").value(summary.getUpdatedAt());
+        }
+        writer.endObject();
     }
 
     /**
@@ -277,6 +341,91 @@ public class JsonUtils {
         sb.append("}");
     }
 
+    /**
+     * 文字列だけを含むJSON配列を解析
+     * リクエスト本文のID一覧など、単純な配列の読み込みにのみ使用する
+     * @param json JSON文字列
+     * @return 文字列のリスト
+     * @throws IllegalArgumentException 文字列の配列として解析できない場合
+     */
+    public static List<String> parseStringArray(String json) {
+        List<String> values = new ArrayList<>();
+        int pos = skipWhitespace(json, 0);
+        if (pos >= json.length() || json.charAt(pos) != '[') {
+            throw new IllegalArgumentException("配列ではありません");
+        }
+        pos = skipWhitespace(json, pos + 1);
+        if (pos < json.length() && json.charAt(pos) == ']') {
+            return values;
+        }
+
+        while (true) {
+            if (pos >= json.length() || json.charAt(pos) != '"') {
+                throw new IllegalArgumentException("文字列ではない要素があります");
+            }
+
+            StringBuilder value = new StringBuilder();
+            pos++;
+            while (true) {
+                if (pos >= json.length()) {
+                    throw new IllegalArgumentException("文字列が閉じられていません");
+                }
+                char c = json.charAt(pos++);
+                if (c == '"') {
+                    break;
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (pos >= json.length()) {
+                    throw new IllegalArgumentException("不正なエスケープです");
+                }
+                char escaped = json.charAt(pos++);
+                switch (escaped) {
+                    case '"', '\\', '/' -> value.append(escaped);
+                    case 'b' -> value.append('\b');
+                    case 'f' -> value.append('\f');
+                    case 'n' -> value.append('\n');
+                    case 'r' -> value.append('\r');
+                    case 't' -> value.append('\t');
+                    case 'u' -> {
+                        if (pos + 4 > json.length()) {
+                            throw new IllegalArgumentException("不正なエスケープです");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(json.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw new IllegalArgumentException("不正なエスケープです", e);
+                        }
+                        pos += 4;
+                    }
+                    default -> throw new IllegalArgumentException("不正なエスケープです");
+                }
+            }
+            values.add(value.toString());
+
+            pos = skipWhitespace(json, pos);
+            if (pos < json.length() && json.charAt(pos) == ',') {
+                pos = skipWhitespace(json, pos + 1);
+            } else if (pos < json.length() && json.charAt(pos) == ']') {
+                if (skipWhitespace(json, pos + 1) != json.length()) {
+                    throw new IllegalArgumentException("配列の後に余分な文字があります");
+                }
+                return values;
+            } else {
+                throw new IllegalArgumentException("配列が閉じられていません");
+            }
+        }
+    }
+
+    private static int skipWhitespace(String json, int pos) {
+        while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
     /**
      * JSON文字列をエスケープ
      * @param text エスケープする文字列
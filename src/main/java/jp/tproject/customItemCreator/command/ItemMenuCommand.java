@@ -13,7 +13,7 @@ import org.bukkit.entity.Player;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 
 /**
  * アイテムメニューコマンドを実行するクラス
@@ -53,11 +53,10 @@ public class ItemMenuCommand implements CommandExecutor, TabCompleter {
                     }
 
                     // 保存済みアイテム一覧を表示
-                    Map<String, org.bukkit.inventory.ItemStack> items =
-                            CustomItemCreator.getInstance().getConfigManager().getAllItems();
+                    int itemCount = CustomItemCreator.getInstance().getConfigManager().getItemCount();
 
                     player.sendMessage(ChatColor.GREEN + "保存済みアイテム一覧を表示します。全 " +
-                            items.size() + " 個のアイテムが登録されています。");
+                            itemCount + " 個のアイテムが登録されています。");
 
                     SavedItemsMenu.open(player, page);
                     return true;
@@ -163,22 +162,20 @@ public class ItemMenuCommand implements CommandExecutor, TabCompleter {
             }
         } else if (args.length == 2 && args[0].equalsIgnoreCase("get")) {
             // アイテムIDの補完（実装されていない部分を追加）
-            Map<String, org.bukkit.inventory.ItemStack> items =
-                    CustomItemCreator.getInstance().getConfigManager().getAllItems();
+            Set<String> itemIds = CustomItemCreator.getInstance().getConfigManager().getItemIds();
 
             // すべてのアイテムIDを取得
-            for (String itemId : items.keySet()) {
+            for (String itemId : itemIds) {
                 if (itemId.startsWith(args[1])) {
                     completions.add(itemId);
                 }
             }
         } else if (args.length == 2 && (args[0].equalsIgnoreCase("list") || args[0].equalsIgnoreCase("page"))) {
             // ページ番号の補完
-            Map<String, org.bukkit.inventory.ItemStack> items =
-                    CustomItemCreator.getInstance().getConfigManager().getAllItems();
+            int itemCount = CustomItemCreator.getInstance().getConfigManager().getItemCount();
 
             // アイテム数からページ数を計算
-            int totalPages = (int) Math.ceil(items.size() / 45.0);
+            int totalPages = (int) Math.ceil(itemCount / 45.0);
 
             for (int i = 1; i <= totalPages; i++) {
                 String pageNum = String.valueOf(i);
@@ -1,12 +1,20 @@
 package jp.tproject.customItemCreator.command;
 
 import jp.tproject.customItemCreator.CustomItemCreator;
+import jp.tproject.customItemCreator.storage.CachingItemStore;
+import jp.tproject.customItemCreator.storage.MetricsItemStore;
+import jp.tproject.customItemCreator.storage.MigrationJob;
+import jp.tproject.customItemCreator.storage.WriteBehindItemStore;
 import jp.tproject.customItemCreator.util.ConfigManager;
+import jp.tproject.customItemCreator.util.ItemSerializer;
+import jp.tproject.customItemCreator.util.StorageExecutor;
+import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabCompleter;
+import org.bukkit.scheduler.BukkitTask;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -55,13 +63,40 @@ public class StorageCommand implements CommandExecutor, TabCompleter {
 
             case "migrate":
                 if (args.length < 2) {
-                    sender.sendMessage(ChatColor.RED + "移行先を指定してください: mysql または yaml");
+                    sender.sendMessage(ChatColor.RED + "移行先を指定してください: mysql、h2 または yaml");
+                    return true;
+                }
+
+                if (args[1].equalsIgnoreCase("status")) {
+                    showMigrationStatus(sender);
+                    return true;
+                }
+
+                if (args[1].equalsIgnoreCase("cancel")) {
+                    cancelMigration(sender);
                     return true;
                 }
 
                 migrateStorage(sender, args[1]);
                 return true;
 
+            case "convert":
+                if (plugin.getConfigManager().isMigrating()) {
+                    sender.sendMessage(ChatColor.RED + "移行中のため変換できません。移行の完了後に実行してください。");
+                    return true;
+                }
+
+                sender.sendMessage(ChatColor.YELLOW + "保存済みデータを " + ItemSerializer.getFormat() + " 形式に変換しています...");
+                plugin.getConfigManager().convertStorageFormat().whenComplete((converted, error) -> {
+                    if (error != null) {
+                        sender.sendMessage(ChatColor.RED + "変換に失敗しました: " + error.getMessage());
+                        return;
+                    }
+                    sender.sendMessage(ChatColor.GREEN + "" + converted + " 個のアイテムを " +
+                            ItemSerializer.getFormat() + " 形式に変換しました。");
+                });
+                return true;
+
             default:
                 showHelp(sender);
                 return true;
@@ -77,10 +112,17 @@ public class StorageCommand implements CommandExecutor, TabCompleter {
 
         sender.sendMessage(ChatColor.GOLD + "===== CustomItemCreator ストレージ情報 =====");
         sender.sendMessage(ChatColor.YELLOW + "現在のストレージタイプ: " + ChatColor.WHITE + configManager.getStorageType());
+        sender.sendMessage(ChatColor.YELLOW + "保存形式: " + ChatColor.WHITE + ItemSerializer.getFormat());
 
         if (configManager.getStorageType() == ConfigManager.StorageType.YAML) {
             sender.sendMessage(ChatColor.YELLOW + "ファイルパス: " + ChatColor.WHITE +
                     plugin.getDataFolder().getAbsolutePath() + "/items.yml");
+        } else if (configManager.getStorageType() == ConfigManager.StorageType.H2) {
+            sender.sendMessage(ChatColor.YELLOW + "ファイルパス: " + ChatColor.WHITE +
+                    plugin.getDataFolder().getAbsolutePath() + "/" +
+                    plugin.getConfig().getString("storage.h2.file", "items-db") + ".mv.db");
+            sender.sendMessage(ChatColor.YELLOW + "テーブルプレフィックス: " + ChatColor.WHITE +
+                    plugin.getConfig().getString("storage.h2.table-prefix", "customitem_"));
         } else {
             sender.sendMessage(ChatColor.YELLOW + "MySQLホスト: " + ChatColor.WHITE +
                     plugin.getConfig().getString("storage.mysql.host", "localhost") + ":" +
@@ -91,34 +133,177 @@ public class StorageCommand implements CommandExecutor, TabCompleter {
                     plugin.getConfig().getString("storage.mysql.table-prefix", "customitem_"));
         }
 
+        CachingItemStore itemStore = configManager.getItemStore();
         sender.sendMessage(ChatColor.YELLOW + "アイテム数: " + ChatColor.WHITE +
-                configManager.getAllItems().size());
+                configManager.getItemCount());
+        sender.sendMessage(ChatColor.YELLOW + "デコード済み: " + ChatColor.WHITE +
+                itemStore.getCache().getDecodedSize() + " 個 (累計 " +
+                itemStore.getCache().getDecodeCount() + " 回)");
+
+        // 書き込みキューの状態
+        StorageExecutor storageExecutor = configManager.getStorageExecutor();
+        sender.sendMessage(ChatColor.YELLOW + "書き込みキュー: " + ChatColor.WHITE +
+                storageExecutor.getQueueDepth() + "/" + storageExecutor.getQueueCapacity() +
+                " (完了: " + storageExecutor.getCompletedTasks() +
+                ", 失敗: " + storageExecutor.getFailedTasks() +
+                ", 拒否: " + storageExecutor.getRejectedTasks() + ")");
+        sender.sendMessage(ChatColor.YELLOW + "書き込み遅延: " + ChatColor.WHITE +
+                String.format("平均 %.2fms / 最大 %.2fms",
+                        storageExecutor.getAverageLatencyMillis(),
+                        storageExecutor.getMaxLatencyMillis()));
+
+        // データベース書き込みバッファの状態
+        WriteBehindItemStore writeBehind = itemStore.unwrap(WriteBehindItemStore.class);
+        if (writeBehind != null) {
+            sender.sendMessage(ChatColor.YELLOW + "書き込みバッファ: " + ChatColor.WHITE +
+                    "待機 " + writeBehind.getPendingCount() +
+                    " 件, 統合 " + writeBehind.getCoalescedWrites() + " 件" +
+                    ", 再試行 " + writeBehind.getRetriedWrites() + " 件, 破棄 " + writeBehind.getDroppedWrites() + " 件");
+            sender.sendMessage(ChatColor.YELLOW + "バッチ: " + ChatColor.WHITE +
+                    writeBehind.getCommittedBatches() + " 回 (失敗 " + writeBehind.getFailedBatches() + ")" +
+                    String.format(", サイズ 直近 %d / 平均 %.1f / 最大 %d",
+                            writeBehind.getLastBatchSize(),
+                            writeBehind.getAverageBatchSize(),
+                            writeBehind.getMaxBatchSize()));
+        }
+
+        // 移行の進捗
+        MigrationJob migrationJob = configManager.getMigrationJob();
+        if (migrationJob != null) {
+            sendMigrationProgress(sender, migrationJob);
+        }
+
+        // 保存先への読み書きの統計
+        MetricsItemStore metrics = itemStore.unwrap(MetricsItemStore.class);
+        if (metrics != null) {
+            sendOperationStats(sender, "読み込み", metrics.getReads());
+            sendOperationStats(sender, "ページ取得", metrics.getPages());
+            sendOperationStats(sender, "まとめ書き", metrics.getBatches());
+        }
+    }
+
+    /**
+     * 保存先への操作の統計を表示
+     * @param sender コマンド送信者
+     * @param label 操作名
+     * @param stats 統計
+     */
+    private void sendOperationStats(CommandSender sender, String label, MetricsItemStore.OperationStats stats) {
+        sender.sendMessage(ChatColor.YELLOW + label + ": " + ChatColor.WHITE +
+                stats.getCount() + " 回 (失敗 " + stats.getFailures() + ")" +
+                String.format(", 平均 %.2fms / 最大 %.2fms", stats.getAverageMillis(), stats.getMaxMillis()));
     }
 
     /**
-     * ストレージを移行
+     * ストレージの移行を開始
+     * 移行はバックグラウンドで行い、一定間隔で進捗を送信する
      * @param sender コマンド送信者
-     * @param target 移行先 (mysql/yaml)
+     * @param target 移行先 (mysql/h2/yaml)
      */
     private void migrateStorage(CommandSender sender, String target) {
         ConfigManager configManager = plugin.getConfigManager();
-        int count = 0;
-
-        if (target.equalsIgnoreCase("mysql")) {
-            // YAMLからMySQLへの移行
-            if (configManager.getStorageType() == ConfigManager.StorageType.MYSQL) {
-                count = configManager.migrateFromYamlToMysql();
-                sender.sendMessage(ChatColor.GREEN + "YAMLからMySQLに " + count + " 個のアイテムを移行しました。");
-            } else {
-                sender.sendMessage(ChatColor.RED + "MySQLが有効になっていません。config.ymlで有効にしてください。");
+        ConfigManager.StorageType storageType = configManager.getStorageType();
+
+        if (configManager.isMigrating()) {
+            sender.sendMessage(ChatColor.RED + "既に移行中です。");
+            showMigrationStatus(sender);
+            return;
+        }
+
+        MigrationJob job;
+        if (target.equalsIgnoreCase("mysql") || target.equalsIgnoreCase("h2")) {
+            // YAMLからデータベースへの移行
+            if (!storageType.name().equalsIgnoreCase(target)) {
+                sender.sendMessage(ChatColor.RED + target.toUpperCase() + "が有効になっていません。config.ymlで有効にしてください。");
+                return;
             }
+            job = configManager.migrateFromYamlToDatabase();
         } else if (target.equalsIgnoreCase("yaml")) {
-            // MySQLからYAMLへの移行
-            count = configManager.migrateFromMysqlToYaml();
-            sender.sendMessage(ChatColor.GREEN + "MySQLからYAMLに " + count + " 個のアイテムを移行しました。");
+            // データベースからYAMLへの移行
+            if (!storageType.isDatabase()) {
+                sender.sendMessage(ChatColor.RED + "データベースが有効になっていないため、YAMLへは移行できません。");
+                return;
+            }
+            job = configManager.migrateFromDatabaseToYaml();
         } else {
-            sender.sendMessage(ChatColor.RED + "無効な移行先です。mysql または yaml を指定してください。");
+            sender.sendMessage(ChatColor.RED + "無効な移行先です。mysql、h2 または yaml を指定してください。");
+            return;
+        }
+
+        if (job == null) {
+            sender.sendMessage(ChatColor.RED + "移行を開始できませんでした。ログを確認してください。");
+            return;
         }
+
+        sender.sendMessage(ChatColor.GREEN + "移行を開始しました: " + job.getDescription());
+        if (!target.equalsIgnoreCase("yaml")) {
+            sender.sendMessage(ChatColor.YELLOW + "移行中もアイテムを編集できます。移行中に保存・削除したアイテムは" +
+                    "移行元のYAMLの内容で上書きされず、編集後の内容が残ります。");
+        }
+
+        // 完了するまで一定間隔で進捗を送信
+        long interval = Math.max(1, plugin.getConfig().getLong("storage.migration.progress-interval", 5)) * 20L;
+        BukkitTask progressTask = Bukkit.getScheduler().runTaskTimer(plugin, () -> {
+            if (job.isRunning()) {
+                sendMigrationProgress(sender, job);
+            }
+        }, interval, interval);
+
+        job.getResult().whenComplete((count, error) -> {
+            progressTask.cancel();
+            if (error != null) {
+                sender.sendMessage(ChatColor.RED + "移行に失敗しました (" + job.getMigrated() +
+                        " 個まで完了)。再度実行すると続きから再開します。");
+                return;
+            }
+            sender.sendMessage(ChatColor.GREEN + job.getDescription() + " に " + count + " 個のアイテムを移行しました。" +
+                    String.format(" (%.1f 秒, %.0f 件/秒)", job.getElapsedMillis() / 1000.0, job.getItemsPerSecond()));
+            if (job.getSkipped() > 0) {
+                sender.sendMessage(ChatColor.YELLOW + "読み込めなかったアイテム: " + job.getSkipped() + " 個");
+            }
+        });
+    }
+
+    /**
+     * 移行の進捗を表示
+     * @param sender コマンド送信者
+     */
+    private void showMigrationStatus(CommandSender sender) {
+        MigrationJob job = plugin.getConfigManager().getMigrationJob();
+        if (job == null) {
+            sender.sendMessage(ChatColor.YELLOW + "実行中の移行はありません。");
+            return;
+        }
+        sendMigrationProgress(sender, job);
+    }
+
+    /**
+     * 実行中の移行を中断
+     * @param sender コマンド送信者
+     */
+    private void cancelMigration(CommandSender sender) {
+        MigrationJob job = plugin.getConfigManager().getMigrationJob();
+        if (job == null) {
+            sender.sendMessage(ChatColor.YELLOW + "実行中の移行はありません。");
+            return;
+        }
+        job.cancel();
+        sender.sendMessage(ChatColor.YELLOW + "移行を中断します。再度実行すると続きから再開します。");
+    }
+
+    /**
+     * 移行の進捗を1行で送信
+     * @param sender コマンド送信者
+     * @param job 移行ジョブ
+     */
+    private void sendMigrationProgress(CommandSender sender, MigrationJob job) {
+        int total = job.getTotal();
+        String progress = total > 0 ?
+                String.format("%d / %d (%.1f%%)", job.getMigrated(), total, job.getMigrated() * 100.0 / total) :
+                String.valueOf(job.getMigrated());
+        sender.sendMessage(ChatColor.YELLOW + "移行中 " + job.getDescription() + ": " + ChatColor.WHITE + progress +
+                String.format(", %.0f 件/秒, 経過 %d 秒", job.getItemsPerSecond(), job.getElapsedMillis() / 1000) +
+                (job.isResumed() ? " (再開)" : ""));
     }
 
     /**
@@ -129,7 +314,9 @@ public class StorageCommand implements CommandExecutor, TabCompleter {
         sender.sendMessage(ChatColor.GOLD + "===== CustomItemCreator ストレージコマンド =====");
         sender.sendMessage(ChatColor.YELLOW + "/itemstorage info " + ChatColor.WHITE + "- ストレージ情報を表示します");
         sender.sendMessage(ChatColor.YELLOW + "/itemstorage reload " + ChatColor.WHITE + "- 設定を再読み込みします");
-        sender.sendMessage(ChatColor.YELLOW + "/itemstorage migrate <mysql|yaml> " + ChatColor.WHITE + "- データを移行します");
+        sender.sendMessage(ChatColor.YELLOW + "/itemstorage migrate <mysql|h2|yaml> " + ChatColor.WHITE + "- データをバックグラウンドで移行します");
+        sender.sendMessage(ChatColor.YELLOW + "/itemstorage migrate <status|cancel> " + ChatColor.WHITE + "- 移行の進捗を表示・中断します");
+        sender.sendMessage(ChatColor.YELLOW + "/itemstorage convert " + ChatColor.WHITE + "- 保存済みデータを現在の保存形式で書き直します");
     }
 
     /**
@@ -145,7 +332,7 @@ public class StorageCommand implements CommandExecutor, TabCompleter {
 
         if (args.length == 1) {
             // サブコマンドの補完
-            List<String> subCommands = Arrays.asList("info", "reload", "migrate");
+            List<String> subCommands = Arrays.asList("info", "reload", "migrate", "convert");
             for (String subCmd : subCommands) {
                 if (subCmd.startsWith(args[0].toLowerCase())) {
                     completions.add(subCmd);
@@ -153,7 +340,7 @@ public class StorageCommand implements CommandExecutor, TabCompleter {
             }
         } else if (args.length == 2 && args[0].equalsIgnoreCase("migrate")) {
             // 移行先の補完
-            List<String> targets = Arrays.asList("mysql", "yaml");
+            List<String> targets = Arrays.asList("mysql", "h2", "yaml", "status", "cancel");
             for (String target : targets) {
                 if (target.startsWith(args[1].toLowerCase())) {
                     completions.add(target);
@@ -88,10 +88,18 @@ public class ConfirmationMenu {
             // アイテム名を取得（IDがない場合はアイテムタイプを使用）
             String name = meta.hasDisplayName() ? meta.getDisplayName() : item.getType().name();
 
-            // アイテムを保存
-            CustomItemCreator.getInstance().getConfigManager().saveItem(itemId, item, name);
-
-            player.sendMessage(ChatColor.GREEN + "アイテムが正常に保存されました。ID: " + itemId);
+            // アイテムを保存（完了通知はメインスレッドで受け取る）
+            CustomItemCreator.getInstance().getConfigManager().saveItem(itemId, item, name)
+                    .whenComplete((success, error) -> {
+                        if (!player.isOnline()) {
+                            return;
+                        }
+                        if (error == null && Boolean.TRUE.equals(success)) {
+                            player.sendMessage(ChatColor.GREEN + "アイテムが正常に保存されました。ID: " + itemId);
+                        } else {
+                            player.sendMessage(ChatColor.RED + "アイテムの保存に失敗しました。ID: " + itemId);
+                        }
+                    });
 
             // プレイヤーのインベントリにアイテムを追加
             player.getInventory().addItem(item.clone());
@@ -2,6 +2,10 @@ package jp.tproject.customItemCreator.gui;
 
 import jp.tproject.customItemCreator.CustomItemCreator;
 import jp.tproject.customItemCreator.model.CustomItem;
+import jp.tproject.customItemCreator.model.CustomRecipe;
+import jp.tproject.customItemCreator.model.ItemPage;
+import jp.tproject.customItemCreator.model.ItemSummary;
+import jp.tproject.customItemCreator.util.ConfigManager;
 import jp.tproject.customItemCreator.util.GuiUtil;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
@@ -13,6 +17,7 @@ import org.bukkit.inventory.meta.ItemMeta;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -35,55 +40,54 @@ public class SavedItemsMenu {
 
     /**
      * 保存アイテム一覧メニューを指定ページで開く
+     * コマンドなどから開く場合に使用し、前回までのページ位置は破棄する
      * @param player メニューを開くプレイヤー
      * @param page ページ番号（0から始まる）
      */
     public static void open(Player player, int page) {
-        Inventory inventory = Bukkit.createInventory(null, MENU_SIZE, MENU_TITLE + " - ページ " + (page + 1));
+        CustomItemCreator.getInstance().getItemManager().setPlayerData(player, "page_cursors", new HashMap<Integer, String>());
+        openPage(player, page);
+    }
+
+    /**
+     * 保存アイテム一覧メニューを指定ページで開く
+     * 表示したページの位置をカーソルとして覚えておき、ページ送りでは続きから取得する
+     * @param player メニューを開くプレイヤー
+     * @param page ページ番号（0から始まる）
+     */
+    private static void openPage(Player player, int page) {
+        ConfigManager configManager = CustomItemCreator.getInstance().getConfigManager();
+
+        // アイテムの総数とページ数を計算
+        int totalItems = configManager.getItemCount();
+        int totalPages = Math.max(1, (int) Math.ceil((double) totalItems / ITEMS_PER_PAGE));
 
-        // 保存済みアイテムを取得
-        Map<String, ItemStack> savedItems = CustomItemCreator.getInstance().getConfigManager().getAllItems();
+        // ページが範囲外なら調整
+        if (page < 0) page = 0;
+        if (page >= totalPages) page = totalPages - 1;
 
-        if (savedItems.isEmpty()) {
+        Inventory inventory = Bukkit.createInventory(null, MENU_SIZE, MENU_TITLE + " - ページ " + (page + 1));
+
+        if (totalItems == 0) {
             // 保存アイテムがない場合
             inventory.setItem(22, GuiUtil.createMenuItem(Material.BARRIER,
                     ChatColor.RED + "アイテムがありません",
                     "アイテムを作成してください"));
         } else {
-            // アイテムの総数とページ数を計算
-            int totalItems = savedItems.size();
-            int totalPages = (int) Math.ceil((double) totalItems / ITEMS_PER_PAGE);
-
-            // ページが範囲外なら調整
-            if (page < 0) page = 0;
-            if (page >= totalPages) page = totalPages - 1;
-
-            // 現在のページのアイテムのみ表示
-            List<Map.Entry<String, ItemStack>> itemList = new ArrayList<>(savedItems.entrySet());
-            int startIndex = page * ITEMS_PER_PAGE;
-            int endIndex = Math.min(startIndex + ITEMS_PER_PAGE, totalItems);
+            // 現在のページのメタデータのみ取得（アイテム本体はデコードしない）
+            ItemPage itemPage = loadPage(player, configManager, page);
 
             // アイテムを表示
-            for (int i = startIndex; i < endIndex; i++) {
-                Map.Entry<String, ItemStack> entry = itemList.get(i);
-                int slot = i - startIndex;
+            List<ItemSummary> pageItems = itemPage.getItems();
+            for (int slot = 0; slot < pageItems.size(); slot++) {
+                ItemSummary summary = pageItems.get(slot);
 
                 // アイテムIDを一時データとして保存
                 CustomItemCreator.getInstance().getItemManager().setPlayerData(
-                        player, "item_id_slot_" + slot, entry.getKey());
-
-                // アイテムの表示（アイテムIDもロアに追加）
-                ItemStack displayItem = entry.getValue().clone();
-                ItemMeta meta = displayItem.getItemMeta();
-                if (meta != null) {
-                    List<String> lore = meta.hasLore() ? new ArrayList<>(meta.getLore()) : new ArrayList<>();
-                    lore.add("");
-                    lore.add(ChatColor.GRAY + "ID: " + entry.getKey());
-                    meta.setLore(lore);
-                    displayItem.setItemMeta(meta);
-                }
+                        player, "item_id_slot_" + slot, summary.getItemId());
 
-                inventory.setItem(slot, displayItem);
+                // メタデータから表示用アイテムを作成
+                inventory.setItem(slot, createSummaryIcon(summary));
             }
 
             // ページ情報をプレイヤーに保存
@@ -139,7 +143,7 @@ public class SavedItemsMenu {
         if (slot == 48) { // 前のページ
             Integer currentPage = (Integer) CustomItemCreator.getInstance().getItemManager().getPlayerData(player, "current_page");
             if (currentPage != null && currentPage > 0) {
-                open(player, currentPage - 1);
+                openPage(player, currentPage - 1);
             }
             return;
         }
@@ -148,7 +152,7 @@ public class SavedItemsMenu {
             Integer currentPage = (Integer) CustomItemCreator.getInstance().getItemManager().getPlayerData(player, "current_page");
             Integer totalPages = (Integer) CustomItemCreator.getInstance().getItemManager().getPlayerData(player, "total_pages");
             if (currentPage != null && totalPages != null && currentPage < totalPages - 1) {
-                open(player, currentPage + 1);
+                openPage(player, currentPage + 1);
             }
             return;
         }
@@ -164,10 +168,88 @@ public class SavedItemsMenu {
                     .getPlayerData(player, "item_id_slot_" + slot);
 
             if (itemId != null) {
+                // 選択されたアイテムだけをデコードする
+                ItemStack item = CustomItemCreator.getInstance().getConfigManager().getItem(itemId);
+                if (item == null) {
+                    player.sendMessage(ChatColor.RED + "そのアイテムは存在しません。");
+                    openPage(player, getCurrentPage(player));
+                    return;
+                }
+
                 // アイテム編集のサブメニューを表示
-                openItemActionMenu(player, clickedItem, itemId);
+                openItemActionMenu(player, item, itemId);
+            }
+        }
+    }
+
+    /**
+     * 指定ページのメタデータを取得し、前後のページのカーソルを記録
+     * @param player プレイヤー
+     * @param configManager コンフィグマネージャー
+     * @param page ページ番号（0から始まる）
+     * @return ページ
+     */
+    private static ItemPage loadPage(Player player, ConfigManager configManager, int page) {
+        Map<Integer, String> cursors = CustomItemCreator.getInstance().getItemManager().getPlayerData(player, "page_cursors");
+        if (cursors == null) {
+            cursors = new HashMap<>();
+            CustomItemCreator.getInstance().getItemManager().setPlayerData(player, "page_cursors", cursors);
+        }
+
+        ItemPage itemPage = null;
+        if (page == 0) {
+            itemPage = configManager.getItemPage(null, ITEMS_PER_PAGE);
+        } else if (cursors.containsKey(page)) {
+            itemPage = configManager.getItemPage(cursors.get(page), ITEMS_PER_PAGE);
+        }
+
+        // カーソルがない場合や、削除などでカーソル以降が空になった場合はページ番号から取得
+        if (itemPage == null || itemPage.getItems().isEmpty()) {
+            itemPage = configManager.getItemPageAt(page, ITEMS_PER_PAGE);
+        }
+
+        if (itemPage.getCursor() != null) {
+            cursors.put(page, itemPage.getCursor());
+        }
+        if (itemPage.hasNext()) {
+            cursors.put(page + 1, itemPage.getNextCursor());
+        }
+        return itemPage;
+    }
+
+    /**
+     * メタデータから一覧表示用のアイテムを作成
+     * @param summary アイテムのメタデータ
+     * @return 表示用アイテム
+     */
+    private static ItemStack createSummaryIcon(ItemSummary summary) {
+        ItemStack icon = new ItemStack(summary.getMaterial().isItem() ? summary.getMaterial() : Material.PAPER,
+                Math.max(1, summary.getAmount()));
+        ItemMeta meta = icon.getItemMeta();
+        if (meta != null) {
+            meta.setDisplayName(summary.getName());
+            if (summary.getCustomModelData() != 0) {
+                meta.setCustomModelData(summary.getCustomModelData());
             }
+
+            List<String> lore = new ArrayList<>();
+            lore.add(summary.getRarity().getDisplayName());
+            lore.add("");
+            lore.add(ChatColor.GRAY + "ID: " + summary.getItemId());
+            meta.setLore(lore);
+            icon.setItemMeta(meta);
         }
+        return icon;
+    }
+
+    /**
+     * プレイヤーが表示中のページ番号を取得
+     * @param player プレイヤー
+     * @return ページ番号、不明な場合は0
+     */
+    private static int getCurrentPage(Player player) {
+        Integer currentPage = (Integer) CustomItemCreator.getInstance().getItemManager().getPlayerData(player, "current_page");
+        return currentPage != null ? currentPage : 0;
     }
 
     /**
@@ -255,7 +337,7 @@ public class SavedItemsMenu {
             case 8: // 戻る
                 // 現在のページを取得して戻る
                 Integer currentPage = (Integer) CustomItemCreator.getInstance().getItemManager().getPlayerData(player, "current_page");
-                open(player, currentPage != null ? currentPage : 0);
+                openPage(player, currentPage != null ? currentPage : 0);
                 break;
         }
     }
@@ -275,10 +357,15 @@ public class SavedItemsMenu {
         // アイテムプレビュー
         inventory.setItem(4, item);
 
-        // 確認ボタン
+        // 確認ボタン（他のレシピの材料に使われている場合は警告を表示）
+        List<String> confirmLore = new ArrayList<>();
+        confirmLore.add(ChatColor.GRAY + "このアイテムを削除します");
+        int usedIn = CustomItemCreator.getInstance().getConfigManager().getRecipesUsingItem(itemId).size();
+        if (usedIn > 0) {
+            confirmLore.add(ChatColor.YELLOW + "材料として " + usedIn + " 個のレシピで使われています");
+        }
         inventory.setItem(2, GuiUtil.createMenuItem(Material.RED_CONCRETE,
-                ChatColor.RED + "削除する",
-                "このアイテムを削除します"));
+                ChatColor.RED + "削除する", confirmLore));
 
         // キャンセルボタン
         inventory.setItem(6, GuiUtil.createMenuItem(Material.GREEN_CONCRETE,
@@ -312,18 +399,33 @@ public class SavedItemsMenu {
 
         switch (slot) {
             case 2: // 削除確定
-                CustomItemCreator.getInstance().getConfigManager().removeItem(itemId);
-                player.sendMessage(ChatColor.GREEN + "アイテムを削除しました。");
+                // 削除するとレシピも設定から消えるため、先に対象のレシピを確定させる
+                List<String> recipeIds = new ArrayList<>();
+                for (CustomRecipe recipe : CustomItemCreator.getInstance().getConfigManager().getRecipesForItem(itemId)) {
+                    recipeIds.add(recipe.getRecipeId());
+                }
 
-                // 関連するレシピも削除
-                CustomItemCreator.getInstance().getRecipeManager().unregisterRecipe(itemId);
+                CustomItemCreator.getInstance().getConfigManager().removeItem(itemId)
+                        .whenComplete((success, error) -> {
+                            if (!player.isOnline()) {
+                                return;
+                            }
+                            if (error == null && Boolean.TRUE.equals(success)) {
+                                player.sendMessage(ChatColor.GREEN + "アイテムを削除しました。");
+                            } else {
+                                player.sendMessage(ChatColor.RED + "アイテムの削除に失敗しました。");
+                            }
+                        });
+
+                // 関連するレシピもサーバーから削除
+                CustomItemCreator.getInstance().getRecipeManager().unregisterRecipes(recipeIds);
 
                 // 前のページを開く（削除後にアイテム数が減る可能性があるため）
-                open(player, page);
+                openPage(player, page);
                 break;
 
             case 6: // キャンセル
-                open(player, page);
+                openPage(player, page);
                 break;
         }
     }
@@ -0,0 +1,49 @@
+package jp.tproject.customItemCreator.listener;
+
+import jp.tproject.customItemCreator.CustomItemCreator;
+import jp.tproject.customItemCreator.util.RecipeManager;
+import org.bukkit.Keyed;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.inventory.PrepareItemCraftEvent;
+import org.bukkit.inventory.CraftingInventory;
+import org.bukkit.inventory.Recipe;
+
+/**
+ * カスタムレシピのクラフト結果を決めるリスナークラス
+ * 材料の判定方法が FINGERPRINT の場合のみ動作し、サーバーが種類だけで選んだカスタムレシピの結果を
+ * グリッドのフィンガープリントで判定し直す（カスタムアイテムを材料に含むレシピのみ）
+ */
+public class CraftingListener implements Listener {
+
+    private final CustomItemCreator plugin;
+
+    /**
+     * リスナーを初期化
+     * @param plugin プラグインインスタンス
+     */
+    public CraftingListener(CustomItemCreator plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * クラフトグリッドの変更を処理
+     */
+    @EventHandler(priority = EventPriority.HIGH)
+    public void onPrepareItemCraft(PrepareItemCraftEvent event) {
+        RecipeManager recipeManager = plugin.getRecipeManager();
+        if (recipeManager.getMatchingMode() != RecipeManager.MatchingMode.FINGERPRINT) {
+            return;
+        }
+
+        Recipe recipe = event.getRecipe();
+        if (!(recipe instanceof Keyed keyed) || !recipeManager.isFingerprintRecipe(keyed.getKey())) {
+            return;
+        }
+
+        // 種類は一致していてもカスタムアイテムが違う場合は結果を出さない
+        CraftingInventory inventory = event.getInventory();
+        inventory.setResult(recipeManager.matchResult(inventory.getMatrix()));
+    }
+}
@@ -0,0 +1,74 @@
+package jp.tproject.customItemCreator.model;
+
+/**
+ * アイテム・レシピの変更通知
+ * ConfigManagerで保存・削除が行われるたびに作成され、変更フィードなどの購読者に渡される
+ */
+public class CatalogChange {
+
+    /**
+     * 変更の種類
+     */
+    public enum Type {
+        ITEM_SAVED("item.saved"),
+        ITEM_REMOVED("item.removed"),
+        RECIPE_SAVED("recipe.saved"),
+        RECIPE_REMOVED("recipe.removed"),
+        // 再読み込みや一括変換など、個別の変更として通知できない変更（購読者は全件を取得し直す）
+        RELOADED("reload");
+
+        private final String eventName;
+
+        Type(String eventName) {
+            this.eventName = eventName;
+        }
+
+        /**
+         * イベント名を取得
+         * @return イベント名
+         */
+        public String getEventName() {
+            return eventName;
+        }
+    }
+
+    private final Type type;
+    private final String id;
+    private final long timestamp;
+
+    /**
+     * 変更通知を作成
+     * @param type 変更の種類
+     * @param id 変更されたアイテムIDまたはレシピID、RELOADEDの場合はnull
+     * @param timestamp 変更日時 (エポックミリ秒)
+     */
+    public CatalogChange(Type type, String id, long timestamp) {
+        this.type = type;
+        this.id = id;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * 変更の種類を取得
+     * @return 変更の種類
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * 変更されたアイテムIDまたはレシピIDを取得
+     * @return ID、RELOADEDの場合はnull
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * 変更日時を取得
+     * @return 変更日時 (エポックミリ秒)
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
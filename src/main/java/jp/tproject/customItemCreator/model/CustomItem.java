@@ -90,12 +90,7 @@ public class CustomItem {
     private Rarity determineRarity() {
         ItemMeta meta = itemStack.getItemMeta();
         if (meta != null && meta.hasDisplayName()) {
-            String displayName = meta.getDisplayName();
-            for (Rarity rarity : Rarity.values()) {
-                if (displayName.startsWith(rarity.getDisplayName())) {
-                    return rarity;
-                }
-            }
+            return Rarity.fromDisplayName(meta.getDisplayName());
         }
         return Rarity.COMMON;
     }
@@ -20,16 +20,33 @@ public class CustomRecipe {
      * @param ingredients 材料アイテム（9マス分の配列）
      */
     public CustomRecipe(String recipeId, String resultItemId, ItemStack[] ingredients) {
+        this(recipeId, resultItemId, ingredients, true);
+    }
+
+    private CustomRecipe(String recipeId, String resultItemId, ItemStack[] ingredients, boolean copy) {
         this.recipeId = recipeId;
         this.resultItemId = resultItemId;
 
         // 9マスになるよう調整
         this.ingredients = new ItemStack[9];
         for (int i = 0; i < Math.min(ingredients.length, 9); i++) {
-            this.ingredients[i] = ingredients[i] != null ? ingredients[i].clone() : null;
+            this.ingredients[i] = ingredients[i] != null && copy ? ingredients[i].clone() : ingredients[i];
         }
     }
 
+    /**
+     * 読み込み時にデコードした材料を共有してレシピを作成
+     * 同じ材料を使うマスやレシピの間で1つのItemStackを共有するため、渡した材料は変更しないこと
+     * （getIngredientsはコピーを返すため、共有した材料が外部から変更されることはない）
+     * @param recipeId レシピID
+     * @param resultItemId 結果アイテムのID
+     * @param ingredients 材料アイテム（9マス分の配列）
+     * @return レシピ
+     */
+    public static CustomRecipe withSharedIngredients(String recipeId, String resultItemId, ItemStack[] ingredients) {
+        return new CustomRecipe(recipeId, resultItemId, ingredients, false);
+    }
+
     /**
      * レシピIDを取得
      * @return レシピID
@@ -0,0 +1,104 @@
+package jp.tproject.customItemCreator.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 保存済みアイテム一覧の1ページ分
+ * 並び順は更新日時の新しい順、同じ日時の場合はアイテムIDの昇順で、
+ * 次のページは最後のアイテムの (更新日時, ID) を表すカーソルから取得する
+ */
+public class ItemPage {
+
+    private final List<ItemSummary> items;
+    private final String cursor;
+    private final String nextCursor;
+    private final int totalCount;
+
+    /**
+     * ページを作成
+     * @param items このページのアイテム
+     * @param cursor このページを取得したカーソル、最初のページの場合はnull
+     * @param nextCursor 次のページのカーソル、最後のページの場合はnull
+     * @param totalCount 全アイテム数、不明な場合は-1
+     */
+    public ItemPage(List<ItemSummary> items, String cursor, String nextCursor, int totalCount) {
+        this.items = Collections.unmodifiableList(items);
+        this.cursor = cursor;
+        this.nextCursor = nextCursor;
+        this.totalCount = totalCount;
+    }
+
+    /**
+     * このページのアイテムを取得
+     * @return メタデータのリスト（変更不可）
+     */
+    public List<ItemSummary> getItems() {
+        return items;
+    }
+
+    /**
+     * このページを取得したカーソルを取得
+     * @return カーソル、最初のページの場合はnull
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+    /**
+     * 次のページのカーソルを取得
+     * @return カーソル、最後のページの場合はnull
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * 次のページがあるか
+     * @return 次のページがあればtrue
+     */
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    /**
+     * 全アイテム数を取得
+     * @return 全アイテム数、不明な場合は-1
+     */
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * アイテムの位置を表すカーソルを作成
+     * @param summary カーソルの位置にあるアイテム
+     * @return カーソル文字列
+     */
+    public static String encodeCursor(ItemSummary summary) {
+        String key = summary.getUpdatedAt() + ":" + summary.getItemId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * カーソルから並び順のキーを復元
+     * @param cursor カーソル文字列
+     * @return 更新日時とIDだけを持つメタデータ
+     * @throws IllegalArgumentException カーソルが不正な場合
+     */
+    public static ItemSummary decodeCursor(String cursor) {
+        String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        int separator = key.indexOf(':');
+        if (separator <= 0) {
+            throw new IllegalArgumentException("不正なカーソルです: " + cursor);
+        }
+
+        try {
+            long updatedAt = Long.parseLong(key.substring(0, separator));
+            return new ItemSummary(key.substring(separator + 1), null, null, null, 0, 0, updatedAt);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("不正なカーソルです: " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package jp.tproject.customItemCreator.model;
+
+import org.bukkit.ChatColor;
+import org.bukkit.Material;
+
+import java.util.Locale;
+
+/**
+ * アイテム一覧の絞り込み条件
+ * 指定されていない条件（null）は全てのアイテムに一致する
+ */
+public class ItemQuery {
+
+    /**
+     * 条件なし（全てのアイテムに一致する）
+     */
+    public static final ItemQuery ALL = new ItemQuery(null, null, null, null, null);
+
+    private final Material material;
+    private final Rarity rarity;
+    private final Integer minCustomModelData;
+    private final Integer maxCustomModelData;
+    private final String namePrefix;
+
+    /**
+     * 絞り込み条件を作成
+     * @param material アイテムの種類
+     * @param rarity レア度
+     * @param minCustomModelData カスタムモデルデータの下限（含む）
+     * @param maxCustomModelData カスタムモデルデータの上限（含む）
+     * @param namePrefix 表示名の前方一致（色コードと大文字小文字は区別しない）
+     */
+    public ItemQuery(Material material, Rarity rarity, Integer minCustomModelData,
+                     Integer maxCustomModelData, String namePrefix) {
+        this.material = material;
+        this.rarity = rarity;
+        this.minCustomModelData = minCustomModelData;
+        this.maxCustomModelData = maxCustomModelData;
+        this.namePrefix = namePrefix == null || namePrefix.isEmpty() ? null : normalizeName(namePrefix);
+    }
+
+    /**
+     * 条件に一致するか
+     * @param summary アイテムのメタデータ
+     * @return 全ての条件に一致すればtrue
+     */
+    public boolean matches(ItemSummary summary) {
+        if (material != null && summary.getMaterial() != material) {
+            return false;
+        }
+        if (rarity != null && summary.getRarity() != rarity) {
+            return false;
+        }
+        if (minCustomModelData != null && summary.getCustomModelData() < minCustomModelData) {
+            return false;
+        }
+        if (maxCustomModelData != null && summary.getCustomModelData() > maxCustomModelData) {
+            return false;
+        }
+        return namePrefix == null || normalizeName(summary.getName()).startsWith(namePrefix);
+    }
+
+    /**
+     * 条件が1つも指定されていないか
+     * @return 条件なしの場合true
+     */
+    public boolean isEmpty() {
+        return material == null && rarity == null && minCustomModelData == null
+                && maxCustomModelData == null && namePrefix == null;
+    }
+
+    /**
+     * 名前を前方一致の比較用に正規化
+     * @param name 表示名
+     * @return 色コードを除いて小文字にした名前
+     */
+    public static String normalizeName(String name) {
+        if (name == null) {
+            return "";
+        }
+        String stripped = ChatColor.stripColor(name);
+        return (stripped != null ? stripped : name).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * アイテムの種類の条件を取得
+     * @return アイテムの種類、指定なしの場合はnull
+     */
+    public Material getMaterial() {
+        return material;
+    }
+
+    /**
+     * レア度の条件を取得
+     * @return レア度、指定なしの場合はnull
+     */
+    public Rarity getRarity() {
+        return rarity;
+    }
+
+    /**
+     * カスタムモデルデータの下限を取得
+     * @return 下限（含む）、指定なしの場合はnull
+     */
+    public Integer getMinCustomModelData() {
+        return minCustomModelData;
+    }
+
+    /**
+     * カスタムモデルデータの上限を取得
+     * @return 上限（含む）、指定なしの場合はnull
+     */
+    public Integer getMaxCustomModelData() {
+        return maxCustomModelData;
+    }
+
+    /**
+     * 表示名の前方一致の条件を取得
+     * @return 正規化した前方一致の文字列、指定なしの場合はnull
+     */
+    public String getNamePrefix() {
+        return namePrefix;
+    }
+}
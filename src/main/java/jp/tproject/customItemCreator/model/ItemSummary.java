@@ -0,0 +1,124 @@
+package jp.tproject.customItemCreator.model;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.Comparator;
+
+/**
+ * 保存済みアイテムの一覧表示用メタデータ
+ * 保存データの横に保持され、一覧・件数・ページ送りはアイテム本体をデコードせずにこれだけで処理する
+ */
+public class ItemSummary {
+
+    /**
+     * 一覧の並び順（更新日時の新しい順、同じ日時の場合はアイテムIDの昇順）
+     */
+    public static final Comparator<ItemSummary> LISTING_ORDER = Comparator
+            .comparingLong(ItemSummary::getUpdatedAt).reversed()
+            .thenComparing(ItemSummary::getItemId);
+
+    private final String itemId;
+    private final String name;
+    private final Material material;
+    private final Rarity rarity;
+    private final int customModelData;
+    private final int amount;
+    private final long updatedAt;
+
+    /**
+     * メタデータを作成
+     * @param itemId アイテムID
+     * @param name 表示名
+     * @param material アイテムの種類
+     * @param rarity レア度
+     * @param customModelData カスタムモデルデータ、未設定の場合は0
+     * @param amount 個数
+     * @param updatedAt 更新日時 (エポックミリ秒)
+     */
+    public ItemSummary(String itemId, String name, Material material, Rarity rarity,
+                       int customModelData, int amount, long updatedAt) {
+        this.itemId = itemId;
+        this.name = name;
+        this.material = material != null ? material : Material.STONE;
+        this.rarity = rarity != null ? rarity : Rarity.COMMON;
+        this.customModelData = customModelData;
+        this.amount = amount;
+        this.updatedAt = updatedAt;
+    }
+
+    /**
+     * アイテムからメタデータを作成
+     * @param itemId アイテムID
+     * @param item アイテム
+     * @param updatedAt 更新日時 (エポックミリ秒)
+     * @return メタデータ
+     */
+    public static ItemSummary of(String itemId, ItemStack item, long updatedAt) {
+        ItemMeta meta = item.getItemMeta();
+        boolean hasDisplayName = meta != null && meta.hasDisplayName();
+
+        String name = hasDisplayName ? meta.getDisplayName() : item.getType().name();
+        Rarity rarity = hasDisplayName ? Rarity.fromDisplayName(meta.getDisplayName()) : Rarity.COMMON;
+        int customModelData = meta != null && meta.hasCustomModelData() ? meta.getCustomModelData() : 0;
+
+        return new ItemSummary(itemId, name, item.getType(), rarity, customModelData, item.getAmount(), updatedAt);
+    }
+
+    /**
+     * アイテムIDを取得
+     * @return アイテムID
+     */
+    public String getItemId() {
+        return itemId;
+    }
+
+    /**
+     * 表示名を取得
+     * @return 表示名、未設定の場合はアイテムの種類名
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * アイテムの種類を取得
+     * @return アイテムの種類
+     */
+    public Material getMaterial() {
+        return material;
+    }
+
+    /**
+     * レア度を取得
+     * @return レア度
+     */
+    public Rarity getRarity() {
+        return rarity;
+    }
+
+    /**
+     * カスタムモデルデータを取得
+     * @return カスタムモデルデータ、未設定の場合は0
+     */
+    public int getCustomModelData() {
+        return customModelData;
+    }
+
+    /**
+     * 個数を取得
+     * @return 個数
+     */
+    public int getAmount() {
+        return amount;
+    }
+
+    /**
+     * 更新日時を取得
+     * @return 更新日時 (エポックミリ秒)
+     */
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+}
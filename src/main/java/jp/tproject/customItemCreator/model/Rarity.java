@@ -50,4 +50,20 @@ public enum Rarity {
         }
         return COMMON;
     }
-}
\ No newline at end of file
+
+    /**
+     * 表示名の先頭からレア度を判定
+     * @param displayName アイテムの表示名
+     * @return レア度、判定できない場合はCOMMON
+     */
+    public static Rarity fromDisplayName(String displayName) {
+        if (displayName != null) {
+            for (Rarity rarity : values()) {
+                if (displayName.startsWith(rarity.getDisplayName())) {
+                    return rarity;
+                }
+            }
+        }
+        return COMMON;
+    }
+}
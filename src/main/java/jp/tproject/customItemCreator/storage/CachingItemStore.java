@@ -0,0 +1,251 @@
+package jp.tproject.customItemCreator.storage;
+
+import jp.tproject.customItemCreator.model.ItemPage;
+import jp.tproject.customItemCreator.model.ItemQuery;
+import jp.tproject.customItemCreator.model.ItemSummary;
+import jp.tproject.customItemCreator.util.CatalogSnapshot;
+import jp.tproject.customItemCreator.util.ItemCache;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 全アイテムのメタデータと、必要になった時点でデコードしたアイテムをメモリに持つデコレーター
+ * 一覧やページの取得は内側の保存先にアクセスせずに応答し、書き込みはキャッシュを更新してから委譲する
+ * 書き込みが最終的に失敗した場合は、そのアイテムを内側の保存先から読み直してキャッシュと揃える
+ */
+public class CachingItemStore extends ItemStoreDecorator {
+
+    // 起動時にメタデータを読み込む際のページサイズ
+    private static final int LOAD_PAGE_SIZE = 1000;
+
+    private final ItemCache cache;
+
+    /**
+     * キャッシュを初期化
+     * @param delegate キャッシュする保存先
+     */
+    public CachingItemStore(ItemStore delegate) {
+        super(delegate);
+        this.cache = new ItemCache(delegate::getItem, delegate::getItems);
+    }
+
+    /**
+     * 内側の保存先を開き、全アイテムのメタデータを読み込む
+     * 一覧を読み込めなかった場合は空のカタログで開かず、失敗として閉じる
+     */
+    @Override
+    public boolean open() {
+        if (!delegate.open()) {
+            return false;
+        }
+
+        try {
+            loadSummaries();
+        } catch (IllegalStateException e) {
+            delegate.close();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 内側の保存先を読み直し、メタデータを読み込み直す
+     * 一覧を読み込めなかった場合は現在のカタログを維持する（原因は保存先でログに出力済み）
+     */
+    @Override
+    public void reload() {
+        delegate.reload();
+        try {
+            loadSummaries();
+        } catch (IllegalStateException e) {
+            // 現在のカタログを維持する
+        }
+    }
+
+    /**
+     * 内側の保存先から全アイテムのメタデータをページ単位で読み込み、キャッシュを置き換える
+     * 途中のページで失敗した場合はキャッシュを変更しない
+     * @throws IllegalStateException 一覧を取得できなかった場合
+     */
+    private void loadSummaries() {
+        List<ItemSummary> summaries = new ArrayList<>();
+        String cursor = null;
+        do {
+            ItemPage page = delegate.getPage(cursor, LOAD_PAGE_SIZE);
+            summaries.addAll(page.getItems());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        cache.load(summaries);
+    }
+
+    @Override
+    public ItemStack getItem(String itemId) {
+        return cache.get(itemId);
+    }
+
+    @Override
+    public Map<String, ItemStack> getItems(Collection<String> itemIds) {
+        return cache.getAll(itemIds);
+    }
+
+    @Override
+    public ItemPage getPage(String cursor, int limit) {
+        return cache.getPage(cursor, limit);
+    }
+
+    @Override
+    public int count() {
+        return cache.size();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> save(String itemId, ItemStack item, String name) {
+        cache.put(ItemSummary.of(itemId, item, System.currentTimeMillis()), item);
+        return revertOnFailure(itemId, delegate.save(itemId, item.clone(), name));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> remove(String itemId) {
+        cache.remove(itemId);
+        return revertOnFailure(itemId, delegate.remove(itemId));
+    }
+
+    /**
+     * 書き込みが失敗した場合、その後に変更されていなければキャッシュを内側の保存先の内容に戻す
+     * @param itemId アイテムID
+     * @param result 書き込み結果
+     * @return 書き込み結果
+     */
+    private CompletableFuture<Boolean> revertOnFailure(String itemId, CompletableFuture<Boolean> result) {
+        long revision = cache.getRevision(itemId);
+        result.whenComplete((success, error) -> {
+            if ((error != null || !Boolean.TRUE.equals(success)) && cache.getRevision(itemId) == revision) {
+                cache.invalidate(itemId);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public boolean writeBatch(Map<String, ItemStack> saves, Map<String, String> names, Collection<String> removals) {
+        applyBatch(saves, removals);
+
+        boolean success = delegate.writeBatch(saves, names, removals);
+        if (!success) {
+            for (String itemId : saves.keySet()) {
+                cache.invalidate(itemId);
+            }
+            for (String itemId : removals) {
+                cache.invalidate(itemId);
+            }
+        }
+        return success;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> writeBatchAsync(Map<String, ItemStack> saves, Map<String, String> names,
+                                                      Collection<String> removals) {
+        applyBatch(saves, removals);
+
+        CompletableFuture<Boolean> result = delegate.writeBatchAsync(saves, names, removals);
+        for (String itemId : saves.keySet()) {
+            revertOnFailure(itemId, result);
+        }
+        for (String itemId : removals) {
+            revertOnFailure(itemId, result);
+        }
+        return result;
+    }
+
+    /**
+     * まとめ書きの内容をキャッシュに反映
+     */
+    private void applyBatch(Map<String, ItemStack> saves, Collection<String> removals) {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, ItemStack> entry : saves.entrySet()) {
+            cache.put(ItemSummary.of(entry.getKey(), entry.getValue(), now), entry.getValue());
+        }
+        for (String itemId : removals) {
+            cache.remove(itemId);
+        }
+    }
+
+    /**
+     * 現在のカタログのスナップショットを取得
+     * @return スナップショット（変更されない）
+     */
+    public CatalogSnapshot getSnapshot() {
+        return cache.getSnapshot();
+    }
+
+    /**
+     * 条件に一致するメタデータをカーソルの次から1ページ分取得
+     * @param query 絞り込み条件
+     * @param cursor 前のページのカーソル、最初のページの場合はnull
+     * @param limit ページサイズ
+     * @return ページ
+     * @throws IllegalArgumentException カーソルが不正な場合
+     */
+    public ItemPage query(ItemQuery query, String cursor, int limit) {
+        return cache.query(query, cursor, limit);
+    }
+
+    /**
+     * ページ番号を指定して1ページ分のメタデータを取得
+     * @param pageIndex ページ番号（0から始まる）
+     * @param pageSize ページサイズ
+     * @return ページ
+     */
+    public ItemPage getPageAt(int pageIndex, int pageSize) {
+        return cache.getPageAt(pageIndex, pageSize);
+    }
+
+    /**
+     * 全てのアイテムのメタデータを一覧の並び順で取得
+     * @return メタデータのリスト
+     */
+    public List<ItemSummary> getSummaries() {
+        return cache.getSummaries();
+    }
+
+    /**
+     * アイテムのメタデータを取得
+     * @param itemId アイテムID
+     * @return メタデータ、見つからなければnull
+     */
+    public ItemSummary getSummary(String itemId) {
+        return cache.getSummary(itemId);
+    }
+
+    /**
+     * 全てのアイテムIDを取得
+     * @return アイテムIDのセット
+     */
+    public Set<String> getItemIds() {
+        return cache.getItemIds();
+    }
+
+    /**
+     * 全てのアイテムを取得
+     * 未デコードのアイテムも全てデコードするため、一括処理でのみ使用すること
+     * @return アイテムIDとItemStack（クローン）のマップ
+     */
+    public Map<String, ItemStack> getAll() {
+        return cache.getAll();
+    }
+
+    /**
+     * キャッシュを取得
+     * @return キャッシュ
+     */
+    public ItemCache getCache() {
+        return cache;
+    }
+}
@@ -0,0 +1,113 @@
+package jp.tproject.customItemCreator.storage;
+
+import jp.tproject.customItemCreator.model.ItemPage;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * アイテムの保存先を表すインターフェース
+ * YAMLやデータベースなどの保存先はこれを実装し、キャッシュ・書き込みバッファ・計測は
+ * 他のItemStoreを包むデコレーターとして組み合わせる
+ */
+public interface ItemStore {
+
+    /**
+     * 保存先の名前を取得
+     * @return 表示用の名前
+     */
+    String getName();
+
+    /**
+     * 保存先を開く
+     * @return 使用できる状態になった場合true
+     */
+    boolean open();
+
+    /**
+     * 保存先の内容を読み直す
+     */
+    void reload();
+
+    /**
+     * 保留中の書き込みを反映し、保存先を閉じる
+     */
+    void close();
+
+    /**
+     * アイテムを取得
+     * 呼び出したスレッドで同期的に読み込む
+     * @param itemId アイテムID
+     * @return アイテム、見つからなければnull
+     */
+    ItemStack getItem(String itemId);
+
+    /**
+     * 複数のアイテムをまとめて取得
+     * @param itemIds アイテムID
+     * @return アイテムIDとアイテムのマップ（見つからないIDは含まない）
+     */
+    Map<String, ItemStack> getItems(Collection<String> itemIds);
+
+    /**
+     * カーソルの次から1ページ分のメタデータを取得
+     * 並び順はItemSummary.LISTING_ORDER
+     * @param cursor 前のページのカーソル、最初のページの場合はnull
+     * @param limit ページサイズ
+     * @return ページ
+     * @throws IllegalArgumentException カーソルが不正な場合
+     */
+    ItemPage getPage(String cursor, int limit);
+
+    /**
+     * 保存されているアイテム数を取得
+     * @return アイテム数
+     */
+    int count();
+
+    /**
+     * アイテムを保存
+     * @param itemId アイテムID
+     * @param item アイテム（呼び出し側で変更されないコピーを渡すこと）
+     * @param name アイテム名
+     * @return 保存結果（メインスレッドで完了する）
+     */
+    CompletableFuture<Boolean> save(String itemId, ItemStack item, String name);
+
+    /**
+     * アイテムを削除
+     * @param itemId アイテムID
+     * @return 削除結果（メインスレッドで完了する）
+     */
+    CompletableFuture<Boolean> remove(String itemId);
+
+    /**
+     * 複数アイテムの保存と削除をまとめて書き込む
+     * 書き込み終えるまで呼び出したスレッドで待つため、データベースの場合はメインスレッドから呼び出さないこと
+     * @param saves 保存するアイテム (ID -> アイテム)
+     * @param names 保存するアイテムの名前 (ID -> 名前)
+     * @param removals 削除するアイテムID
+     * @return 書き込みに成功した場合true
+     */
+    boolean writeBatch(Map<String, ItemStack> saves, Map<String, String> names, Collection<String> removals);
+
+    /**
+     * 複数アイテムの保存と削除をまとめて書き込む
+     * 書き込みキューを使う保存先では、先に受け付けた書き込みの後に非同期で実行する
+     * @param saves 保存するアイテム (ID -> アイテム)
+     * @param names 保存するアイテムの名前 (ID -> 名前)
+     * @param removals 削除するアイテムID
+     * @return 書き込み結果（メインスレッドで完了する）
+     */
+    default CompletableFuture<Boolean> writeBatchAsync(Map<String, ItemStack> saves, Map<String, String> names,
+                                                       Collection<String> removals) {
+        return CompletableFuture.completedFuture(writeBatch(saves, names, removals));
+    }
+
+    /**
+     * 保留中の書き込みを全て反映し終えるまで待つ
+     */
+    void flush();
+}
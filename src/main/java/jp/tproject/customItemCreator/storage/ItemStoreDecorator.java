@@ -0,0 +1,110 @@
+package jp.tproject.customItemCreator.storage;
+
+import jp.tproject.customItemCreator.model.ItemPage;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 他のItemStoreを包むデコレーターの基底クラス
+ * 全ての操作をそのまま内側の保存先に委譲するため、サブクラスは必要な操作だけを上書きする
+ */
+public abstract class ItemStoreDecorator implements ItemStore {
+
+    protected final ItemStore delegate;
+
+    /**
+     * デコレーターを初期化
+     * @param delegate 内側の保存先
+     */
+    protected ItemStoreDecorator(ItemStore delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * 内側の保存先を取得
+     * @return 内側の保存先
+     */
+    public ItemStore getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public boolean open() {
+        return delegate.open();
+    }
+
+    @Override
+    public void reload() {
+        delegate.reload();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    @Override
+    public ItemStack getItem(String itemId) {
+        return delegate.getItem(itemId);
+    }
+
+    @Override
+    public Map<String, ItemStack> getItems(Collection<String> itemIds) {
+        return delegate.getItems(itemIds);
+    }
+
+    @Override
+    public ItemPage getPage(String cursor, int limit) {
+        return delegate.getPage(cursor, limit);
+    }
+
+    @Override
+    public int count() {
+        return delegate.count();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> save(String itemId, ItemStack item, String name) {
+        return delegate.save(itemId, item, name);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> remove(String itemId) {
+        return delegate.remove(itemId);
+    }
+
+    @Override
+    public boolean writeBatch(Map<String, ItemStack> saves, Map<String, String> names, Collection<String> removals) {
+        return delegate.writeBatch(saves, names, removals);
+    }
+
+    @Override
+    public void flush() {
+        delegate.flush();
+    }
+
+    /**
+     * 指定した種類のデコレーターまたは保存先を内側から探す
+     * @param type 探す種類
+     * @param <T> 種類
+     * @return 見つかった保存先、なければnull
+     */
+    public <T extends ItemStore> T unwrap(Class<T> type) {
+        ItemStore current = this;
+        while (current != null) {
+            if (type.isInstance(current)) {
+                return type.cast(current);
+            }
+            current = current instanceof ItemStoreDecorator ? ((ItemStoreDecorator) current).delegate : null;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,175 @@
+package jp.tproject.customItemCreator.storage;
+
+import jp.tproject.customItemCreator.model.ItemPage;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 内側の保存先への読み書きの回数と所要時間を記録するデコレーター
+ * 保存先の実装に関係なく同じ統計が取れるよう、バックエンドのすぐ外側に置く
+ */
+public class MetricsItemStore extends ItemStoreDecorator {
+
+    /**
+     * 1種類の操作の統計
+     */
+    public static class OperationStats {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private void record(long nanos, boolean success) {
+            count.incrementAndGet();
+            if (!success) {
+                failures.incrementAndGet();
+            }
+            totalNanos.addAndGet(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        /**
+         * 実行回数を取得
+         * @return 実行回数
+         */
+        public long getCount() {
+            return count.get();
+        }
+
+        /**
+         * 失敗した回数を取得
+         * @return 失敗した回数
+         */
+        public long getFailures() {
+            return failures.get();
+        }
+
+        /**
+         * 平均所要時間を取得
+         * @return 平均所要時間 (ミリ秒)
+         */
+        public double getAverageMillis() {
+            long n = count.get();
+            return n == 0 ? 0.0 : totalNanos.get() / (double) n / 1_000_000.0;
+        }
+
+        /**
+         * 最大所要時間を取得
+         * @return 最大所要時間 (ミリ秒)
+         */
+        public double getMaxMillis() {
+            return maxNanos.get() / 1_000_000.0;
+        }
+    }
+
+    private final OperationStats reads = new OperationStats();
+    private final OperationStats multiReads = new OperationStats();
+    private final OperationStats pages = new OperationStats();
+    private final OperationStats batches = new OperationStats();
+    private final AtomicLong saves = new AtomicLong();
+    private final AtomicLong removals = new AtomicLong();
+
+    /**
+     * 計測を初期化
+     * @param delegate 計測する保存先
+     */
+    public MetricsItemStore(ItemStore delegate) {
+        super(delegate);
+    }
+
+    @Override
+    public ItemStack getItem(String itemId) {
+        long start = System.nanoTime();
+        ItemStack item = delegate.getItem(itemId);
+        reads.record(System.nanoTime() - start, item != null);
+        return item;
+    }
+
+    @Override
+    public Map<String, ItemStack> getItems(Collection<String> itemIds) {
+        long start = System.nanoTime();
+        Map<String, ItemStack> items = delegate.getItems(itemIds);
+        multiReads.record(System.nanoTime() - start, true);
+        return items;
+    }
+
+    @Override
+    public ItemPage getPage(String cursor, int limit) {
+        long start = System.nanoTime();
+        ItemPage page = delegate.getPage(cursor, limit);
+        pages.record(System.nanoTime() - start, true);
+        return page;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> save(String itemId, ItemStack item, String name) {
+        saves.incrementAndGet();
+        return delegate.save(itemId, item, name);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> remove(String itemId) {
+        removals.incrementAndGet();
+        return delegate.remove(itemId);
+    }
+
+    @Override
+    public boolean writeBatch(Map<String, ItemStack> saves, Map<String, String> names, Collection<String> removals) {
+        long start = System.nanoTime();
+        boolean success = delegate.writeBatch(saves, names, removals);
+        batches.record(System.nanoTime() - start, success);
+        return success;
+    }
+
+    /**
+     * 単体読み込みの統計を取得（見つからなかった場合は失敗として数える）
+     * @return 統計
+     */
+    public OperationStats getReads() {
+        return reads;
+    }
+
+    /**
+     * まとめ読みの統計を取得
+     * @return 統計
+     */
+    public OperationStats getMultiReads() {
+        return multiReads;
+    }
+
+    /**
+     * ページ取得の統計を取得
+     * @return 統計
+     */
+    public OperationStats getPages() {
+        return pages;
+    }
+
+    /**
+     * まとめ書きの統計を取得
+     * @return 統計
+     */
+    public OperationStats getBatches() {
+        return batches;
+    }
+
+    /**
+     * 個別に保存された回数を取得
+     * @return 保存回数
+     */
+    public long getSaveCount() {
+        return saves.get();
+    }
+
+    /**
+     * 個別に削除された回数を取得
+     * @return 削除回数
+     */
+    public long getRemoveCount() {
+        return removals.get();
+    }
+}
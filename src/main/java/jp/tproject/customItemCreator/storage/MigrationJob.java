@@ -0,0 +1,463 @@
+package jp.tproject.customItemCreator.storage;
+
+import jp.tproject.customItemCreator.CustomItemCreator;
+import jp.tproject.customItemCreator.model.ItemPage;
+import jp.tproject.customItemCreator.model.ItemSummary;
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.IllegalPluginAccessException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * 保存先の間でアイテムをバックグラウンドで移行するジョブ
+ * 移行元をページ単位で読み出し、デコードをワーカースレッドで並列に行い、1ページを1回のまとめ書きで移行先に書き込む
+ * ページを書き込むたびにカーソルをチェックポイントファイルに、移行したIDをIDファイルに記録するため、中断しても続きから再開できる
+ * 最後に移行したIDと移行元のIDを突き合わせ、移行中に移行元から削除されたアイテムを移行先からも削除する
+ */
+public class MigrationJob {
+
+    private final CustomItemCreator plugin;
+    private final ItemStore source;
+    private final ItemStore target;
+    private final File checkpointFile;
+
+    // 移行したアイテムIDを1行ずつ追記するファイル
+    private final File copiedIdsFile;
+
+    // 1回のまとめ書きで書き込むアイテム数
+    private final int batchSize;
+
+    // デコードを並列に行うスレッド数
+    private final int threads;
+
+    private final ExecutorService coordinator;
+    private final ExecutorService decodePool;
+    private final CompletableFuture<Integer> result = new CompletableFuture<>();
+
+    private volatile boolean running;
+    private volatile boolean cancelled;
+    private volatile boolean resumed;
+    private volatile long startedAt;
+    private volatile long runStartedNanos;
+    private volatile int total = -1;
+
+    // 進捗（同じアイテムを2回移行しても1つと数えるようIDで管理する）
+    private final Set<String> copiedIds = ConcurrentHashMap.newKeySet();
+    private final Set<String> skippedIds = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger migratedThisRun = new AtomicInteger();
+    private final AtomicLong batches = new AtomicLong();
+
+    /**
+     * 移行ジョブを初期化
+     * @param plugin プラグインインスタンス
+     * @param source 移行元
+     * @param target 移行先
+     * @param checkpointFile 進捗を記録するファイル
+     */
+    public MigrationJob(CustomItemCreator plugin, ItemStore source, ItemStore target, File checkpointFile) {
+        this.plugin = plugin;
+        this.source = source;
+        this.target = target;
+        this.checkpointFile = checkpointFile;
+        this.copiedIdsFile = new File(checkpointFile.getParentFile(), checkpointFile.getName() + ".ids");
+        this.batchSize = Math.max(1, plugin.getConfig().getInt("storage.migration.batch-size", 500));
+        this.threads = Math.max(1, plugin.getConfig().getInt("storage.migration.threads",
+                Math.max(2, Runtime.getRuntime().availableProcessors() / 2)));
+
+        this.coordinator = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "CustomItemCreator-Migration");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        AtomicInteger workerId = new AtomicInteger();
+        this.decodePool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "CustomItemCreator-Migration-" + workerId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 移行を開始
+     * チェックポイントが同じ移行元・移行先のものであれば続きから再開する
+     * @return 移行したアイテム数（メインスレッドで完了する）
+     */
+    public CompletableFuture<Integer> start() {
+        running = true;
+        runStartedNanos = System.nanoTime();
+        coordinator.execute(this::run);
+        return result;
+    }
+
+    /**
+     * 移行を中断
+     * 書き込み中のページを書き終えた時点で停止し、チェックポイントは残る
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * 中断したジョブのスレッドが停止するまで待つ
+     * @param timeoutMillis 待機する時間 (ミリ秒)
+     * @return 時間内に停止した場合true
+     */
+    public boolean awaitStop(long timeoutMillis) {
+        coordinator.shutdown();
+        try {
+            return coordinator.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void run() {
+        try {
+            String cursor = loadCheckpoint();
+            total = source.count();
+
+            // 移行元をカーソル順にたどる
+            copyPages(cursor, Long.MIN_VALUE);
+
+            // 移行中に更新されたアイテムは先頭に移動しているため、開始時刻以降のものを追加で移行する
+            if (!cancelled) {
+                copyPages(null, startedAt);
+            }
+
+            // 移行中に移行元から削除されたアイテムを移行先からも削除する
+            if (!cancelled) {
+                removeDeleted();
+            }
+
+            if (cancelled) {
+                plugin.getLogger().info("移行を中断しました (" + copiedIds.size() + " 個まで完了)。再度実行すると続きから再開します");
+            } else {
+                Files.deleteIfExists(checkpointFile.toPath());
+                Files.deleteIfExists(copiedIdsFile.toPath());
+                plugin.getLogger().info(source.getName() + " から " + target.getName() + " に " +
+                        copiedIds.size() + " 個のアイテムを移行しました" +
+                        (!skippedIds.isEmpty() ? " (読み込めなかったアイテム: " + skippedIds.size() + " 個)" : ""));
+            }
+            complete(copiedIds.size(), null);
+        } catch (Throwable t) {
+            plugin.getLogger().log(Level.SEVERE, "移行に失敗しました (" + copiedIds.size() + " 個まで完了)", t);
+            complete(null, t);
+        } finally {
+            running = false;
+            decodePool.shutdown();
+            coordinator.shutdown();
+        }
+    }
+
+    /**
+     * カーソルの次から最後のページまで移行する
+     * @param cursor 開始位置のカーソル、先頭から移行する場合はnull
+     * @param updatedSince この時刻以降に更新されたアイテムだけを移行する（全件の場合はLong.MIN_VALUE）
+     */
+    private void copyPages(String cursor, long updatedSince) throws Exception {
+        while (!cancelled) {
+            ItemPage page = source.getPage(cursor, batchSize);
+
+            List<ItemSummary> summaries = new ArrayList<>(page.getItems().size());
+            boolean reachedOlder = false;
+            for (ItemSummary summary : page.getItems()) {
+                if (summary.getUpdatedAt() < updatedSince) {
+                    reachedOlder = true;
+                    break;
+                }
+                summaries.add(summary);
+            }
+
+            if (!summaries.isEmpty()) {
+                writePage(summaries);
+            }
+
+            // 更新日時順のため、開始時刻より古いアイテムに到達したら残りは移行済み
+            if (page.getNextCursor() == null || reachedOlder) {
+                break;
+            }
+
+            cursor = page.getNextCursor();
+            if (updatedSince == Long.MIN_VALUE) {
+                saveCheckpoint(cursor);
+            }
+        }
+    }
+
+    /**
+     * 1ページ分のアイテムを並列にデコードし、1回のまとめ書きで書き込む
+     * @param summaries 書き込むアイテムのメタデータ
+     */
+    private void writePage(List<ItemSummary> summaries) throws Exception {
+        // スレッド数に分割してデコード
+        int chunkSize = (summaries.size() + threads - 1) / threads;
+        List<CompletableFuture<Map<String, ItemStack>>> chunks = new ArrayList<>();
+        for (int from = 0; from < summaries.size(); from += chunkSize) {
+            List<String> itemIds = new ArrayList<>(chunkSize);
+            for (ItemSummary summary : summaries.subList(from, Math.min(from + chunkSize, summaries.size()))) {
+                itemIds.add(summary.getItemId());
+            }
+            chunks.add(CompletableFuture.supplyAsync(() -> source.getItems(itemIds), decodePool));
+        }
+
+        Map<String, ItemStack> items = new LinkedHashMap<>();
+        for (CompletableFuture<Map<String, ItemStack>> chunk : chunks) {
+            items.putAll(chunk.get());
+        }
+
+        Map<String, String> names = new HashMap<>();
+        for (ItemSummary summary : summaries) {
+            names.put(summary.getItemId(), summary.getName());
+        }
+
+        if (!items.isEmpty() && !target.writeBatch(items, names, Collections.emptyList())) {
+            throw new IOException(target.getName() + " への書き込みに失敗しました");
+        }
+
+        // 再開時に削除の突き合わせに使えるよう、書き込んだIDを記録する
+        if (!items.isEmpty()) {
+            Files.write(copiedIdsFile.toPath(), items.keySet(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+
+        for (ItemSummary summary : summaries) {
+            String itemId = summary.getItemId();
+            if (items.containsKey(itemId)) {
+                copiedIds.add(itemId);
+                skippedIds.remove(itemId);
+            } else {
+                skippedIds.add(itemId);
+            }
+        }
+        migratedThisRun.addAndGet(items.size());
+        batches.incrementAndGet();
+    }
+
+    /**
+     * 移行したアイテムのうち、移行元に残っていないものを移行先から削除する
+     * 移行先に元からあったアイテムは移行したものではないため対象にしない
+     */
+    private void removeDeleted() throws IOException {
+        Set<String> sourceIds = new HashSet<>();
+        String cursor = null;
+        do {
+            ItemPage page = source.getPage(cursor, batchSize);
+            for (ItemSummary summary : page.getItems()) {
+                sourceIds.add(summary.getItemId());
+            }
+            cursor = page.getNextCursor();
+        } while (cursor != null && !cancelled);
+
+        if (cancelled) {
+            return;
+        }
+        total = sourceIds.size();
+
+        List<String> deleted = new ArrayList<>();
+        for (String itemId : copiedIds) {
+            if (!sourceIds.contains(itemId)) {
+                deleted.add(itemId);
+            }
+        }
+        skippedIds.retainAll(sourceIds);
+        if (deleted.isEmpty()) {
+            return;
+        }
+
+        if (!target.writeBatch(Collections.emptyMap(), Collections.emptyMap(), deleted)) {
+            throw new IOException(target.getName() + " からの削除に失敗しました");
+        }
+        deleted.forEach(copiedIds::remove);
+        plugin.getLogger().info("移行中に削除された " + deleted.size() + " 個のアイテムを " + target.getName() + " から削除しました");
+    }
+
+    /**
+     * チェックポイントを読み込む
+     * 別の移行のチェックポイントであれば破棄して最初から移行する
+     * @return 再開するカーソル、最初から移行する場合はnull
+     */
+    private String loadCheckpoint() throws IOException {
+        startedAt = System.currentTimeMillis();
+        if (!checkpointFile.exists()) {
+            Files.deleteIfExists(copiedIdsFile.toPath());
+            return null;
+        }
+
+        YamlConfiguration checkpoint = YamlConfiguration.loadConfiguration(checkpointFile);
+        if (!source.getName().equals(checkpoint.getString("source")) ||
+                !target.getName().equals(checkpoint.getString("target"))) {
+            plugin.getLogger().info("別の移行のチェックポイントを破棄しました: " +
+                    checkpoint.getString("source") + " -> " + checkpoint.getString("target"));
+            Files.deleteIfExists(copiedIdsFile.toPath());
+            return null;
+        }
+
+        resumed = true;
+        startedAt = checkpoint.getLong("started-at", startedAt);
+        if (copiedIdsFile.exists()) {
+            for (String itemId : Files.readAllLines(copiedIdsFile.toPath(), StandardCharsets.UTF_8)) {
+                if (!itemId.isEmpty()) {
+                    copiedIds.add(itemId);
+                }
+            }
+        }
+        String cursor = checkpoint.getString("cursor");
+        plugin.getLogger().info("チェックポイントから移行を再開します (" + copiedIds.size() + " 個まで完了)");
+        return cursor;
+    }
+
+    /**
+     * 書き込み済みの位置をチェックポイントに記録
+     * 一時ファイルに書き出してからリネームするため、途中で停止しても壊れない
+     * @param cursor 書き込み済みの最後の位置
+     */
+    private void saveCheckpoint(String cursor) throws IOException {
+        YamlConfiguration checkpoint = new YamlConfiguration();
+        checkpoint.set("source", source.getName());
+        checkpoint.set("target", target.getName());
+        checkpoint.set("cursor", cursor);
+        checkpoint.set("migrated", copiedIds.size());
+        checkpoint.set("started-at", startedAt);
+
+        File tempFile = new File(checkpointFile.getParentFile(), checkpointFile.getName() + ".tmp");
+        checkpoint.save(tempFile);
+        try {
+            Files.move(tempFile.toPath(), checkpointFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile.toPath(), checkpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * 結果をメインスレッドで通知する
+     * プラグイン停止中はスケジューラーが使えないため、その場で完了させる
+     */
+    private void complete(Integer count, Throwable error) {
+        Runnable completion = () -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(count);
+            }
+        };
+
+        if (!plugin.isEnabled()) {
+            completion.run();
+            return;
+        }
+
+        try {
+            Bukkit.getScheduler().runTask(plugin, completion);
+        } catch (IllegalPluginAccessException e) {
+            completion.run();
+        }
+    }
+
+    /**
+     * 移行の結果を取得
+     * @return 移行したアイテム数（メインスレッドで完了する）
+     */
+    public CompletableFuture<Integer> getResult() {
+        return result;
+    }
+
+    /**
+     * 移行中か
+     * @return 移行中の場合true
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * チェックポイントから再開したか
+     * @return 再開した場合true
+     */
+    public boolean isResumed() {
+        return resumed;
+    }
+
+    /**
+     * 移行の説明を取得
+     * @return 移行元と移行先
+     */
+    public String getDescription() {
+        return source.getName() + " -> " + target.getName();
+    }
+
+    /**
+     * 移行したアイテム数を取得（再開前の分を含み、同じアイテムは1つと数える）
+     * @return 移行したアイテム数
+     */
+    public int getMigrated() {
+        return copiedIds.size();
+    }
+
+    /**
+     * 移行元のアイテム数を取得（完了時に移行元の最新の件数に更新される）
+     * @return アイテム数、数え終わっていない場合は-1
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * 読み込めずに移行できなかったアイテム数を取得
+     * @return アイテム数
+     */
+    public int getSkipped() {
+        return skippedIds.size();
+    }
+
+    /**
+     * 書き込んだバッチ数を取得
+     * @return バッチ数
+     */
+    public long getBatches() {
+        return batches.get();
+    }
+
+    /**
+     * 今回の実行での経過時間を取得
+     * @return 経過時間 (ミリ秒)
+     */
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - runStartedNanos);
+    }
+
+    /**
+     * 今回の実行での1秒あたりの移行数を取得
+     * @return 1秒あたりのアイテム数
+     */
+    public double getItemsPerSecond() {
+        long elapsed = getElapsedMillis();
+        return elapsed == 0 ? 0.0 : migratedThisRun.get() * 1000.0 / elapsed;
+    }
+}
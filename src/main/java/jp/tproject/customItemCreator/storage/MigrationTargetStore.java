@@ -0,0 +1,80 @@
+package jp.tproject.customItemCreator.storage;
+
+import jp.tproject.customItemCreator.util.StorageExecutor;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 稼働中の保存先へ移行する際の書き込み先となるデコレーター
+ * 移行のまとめ書きを書き込みキューで実行し、通常の保存・削除と同じ順序で反映する
+ * 移行中に編集・削除されたアイテムは編集後の内容を優先し、移行元の内容で上書きしない
+ */
+public class MigrationTargetStore extends ItemStoreDecorator {
+
+    private final StorageExecutor storageExecutor;
+
+    // 移行中に編集・削除されたアイテムID
+    private final Set<String> editedIds = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 書き込み先を初期化
+     * @param delegate 移行先の保存先（キャッシュと書き込みバッファの内側）
+     * @param storageExecutor 通常の書き込みと共有する書き込みキュー
+     */
+    public MigrationTargetStore(ItemStore delegate, StorageExecutor storageExecutor) {
+        super(delegate);
+        this.storageExecutor = storageExecutor;
+    }
+
+    /**
+     * 移行中にアイテムが編集・削除されたことを記録
+     * 書き込みバッファに渡す前に呼び出すこと
+     * @param itemId アイテムID
+     */
+    public void markEdited(String itemId) {
+        editedIds.add(itemId);
+    }
+
+    /**
+     * 移行中に編集・削除されたアイテム数を取得
+     * @return アイテム数
+     */
+    public int getEditedCount() {
+        return editedIds.size();
+    }
+
+    /**
+     * 移行中に編集・削除されたアイテムを除き、書き込みキューでまとめて書き込む
+     * 除外の判定もキューの中で行うため、先にキューに入った編集は必ず判定に含まれる
+     */
+    @Override
+    public boolean writeBatch(Map<String, ItemStack> saves, Map<String, String> names, Collection<String> removals) {
+        try {
+            return storageExecutor.submitAndWait(() -> {
+                Map<String, ItemStack> unchangedSaves = new LinkedHashMap<>(saves);
+                unchangedSaves.keySet().removeAll(editedIds);
+
+                List<String> unchangedRemovals = new ArrayList<>(removals);
+                unchangedRemovals.removeAll(editedIds);
+
+                if (unchangedSaves.isEmpty() && unchangedRemovals.isEmpty()) {
+                    return true;
+                }
+                return delegate.writeBatch(unchangedSaves, names, unchangedRemovals);
+            });
+        } catch (ExecutionException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package jp.tproject.customItemCreator.storage;
+
+import jp.tproject.customItemCreator.model.CustomRecipe;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * レシピの保存先を抽象化したインターフェース
+ * 読み取りは起動時・再読み込み時にloadAllで全件を読み込み、以降はレシピカタログから行う
+ * save・removeはメインスレッドから呼ばれるため、保存先に時間のかかる書き込みは非同期に行うこと
+ */
+public interface RecipeStore {
+
+    /**
+     * 保存先の名前を取得
+     * @return 名前
+     */
+    String getName();
+
+    /**
+     * 保存先を開く
+     * @return 開けた場合true
+     */
+    boolean open();
+
+    /**
+     * 全てのレシピを読み込む
+     * @return レシピのリスト、読み込めなかった場合はnull
+     */
+    List<CustomRecipe> loadAll();
+
+    /**
+     * レシピを保存
+     * @param recipe レシピ
+     */
+    void save(CustomRecipe recipe);
+
+    /**
+     * 複数のレシピをまとめて保存
+     * @param recipes レシピ
+     */
+    default void saveAll(Collection<CustomRecipe> recipes) {
+        for (CustomRecipe recipe : recipes) {
+            save(recipe);
+        }
+    }
+
+    /**
+     * レシピを削除
+     * @param recipeId レシピID
+     */
+    void remove(String recipeId);
+
+    /**
+     * 保留中の書き込みを全て保存先に反映する
+     */
+    void flush();
+
+    /**
+     * 保留中の書き込みを反映してから閉じる
+     */
+    void close();
+}
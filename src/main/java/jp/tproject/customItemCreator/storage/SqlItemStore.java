@@ -0,0 +1,111 @@
+package jp.tproject.customItemCreator.storage;
+
+import jp.tproject.customItemCreator.model.ItemPage;
+import jp.tproject.customItemCreator.util.DatabaseUtil;
+import jp.tproject.customItemCreator.util.StorageExecutor;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * データベース (MySQLまたはH2) にアイテムを保存するItemStore
+ * 書き込みはストレージキューで非同期に実行し、ページの取得はキーセットページングで行う
+ */
+public class SqlItemStore implements ItemStore {
+
+    private final DatabaseUtil databaseUtil;
+    private final StorageExecutor storageExecutor;
+
+    /**
+     * 保存先を初期化
+     * @param databaseUtil 接続するデータベース
+     * @param storageExecutor 書き込みを実行するキュー
+     */
+    public SqlItemStore(DatabaseUtil databaseUtil, StorageExecutor storageExecutor) {
+        this.databaseUtil = databaseUtil;
+        this.storageExecutor = storageExecutor;
+    }
+
+    /**
+     * 接続するデータベースを取得
+     * @return データベース
+     */
+    public DatabaseUtil getDatabaseUtil() {
+        return databaseUtil;
+    }
+
+    @Override
+    public String getName() {
+        return databaseUtil.getType().name();
+    }
+
+    @Override
+    public boolean open() {
+        return databaseUtil.connect();
+    }
+
+    @Override
+    public void reload() {
+        // データベースが常に最新のため読み直すものはない
+    }
+
+    @Override
+    public void close() {
+        flush();
+        databaseUtil.disconnect();
+    }
+
+    @Override
+    public ItemStack getItem(String itemId) {
+        return databaseUtil.getItem(itemId);
+    }
+
+    @Override
+    public Map<String, ItemStack> getItems(Collection<String> itemIds) {
+        return databaseUtil.getItems(itemIds);
+    }
+
+    /**
+     * カーソルの次から1ページ分のメタデータを取得
+     * 空のページと区別できるよう、取得に失敗した場合は例外を投げる
+     * @throws IllegalStateException データベースから取得できなかった場合
+     */
+    @Override
+    public ItemPage getPage(String cursor, int limit) {
+        ItemPage page = databaseUtil.getSummaryPage(cursor, limit);
+        if (page == null) {
+            throw new IllegalStateException(getName() + " からアイテム一覧を取得できませんでした");
+        }
+        return page;
+    }
+
+    @Override
+    public int count() {
+        return databaseUtil.getItemCount();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> save(String itemId, ItemStack item, String name) {
+        return storageExecutor.submit(() -> databaseUtil.writeBatch(
+                Collections.singletonMap(itemId, item), Collections.singletonMap(itemId, name), Collections.emptyList()));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> remove(String itemId) {
+        return storageExecutor.submit(() -> databaseUtil.writeBatch(
+                Collections.emptyMap(), Collections.emptyMap(), Collections.singletonList(itemId)));
+    }
+
+    @Override
+    public boolean writeBatch(Map<String, ItemStack> saves, Map<String, String> names, Collection<String> removals) {
+        return databaseUtil.writeBatch(saves, names, removals);
+    }
+
+    @Override
+    public void flush() {
+        storageExecutor.drain();
+    }
+}
@@ -0,0 +1,204 @@
+package jp.tproject.customItemCreator.storage;
+
+import jp.tproject.customItemCreator.CustomItemCreator;
+import jp.tproject.customItemCreator.model.CustomRecipe;
+import jp.tproject.customItemCreator.util.DatabaseUtil;
+import jp.tproject.customItemCreator.util.StorageExecutor;
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * データベース (MySQLまたはH2) にレシピを保存するRecipeStore
+ * 保存・削除は一定時間バッファし、同じレシピへの連続した変更を最後の1件にまとめてから
+ * 1つのトランザクションとして書き込みキューで非同期に書き込む
+ * 書き込みに失敗したバッチは保留中に戻し、再試行の上限までは次の書き込みでやり直す
+ * 接続はアイテムの保存先と共有するため、閉じる際も切断しない
+ */
+public class SqlRecipeStore implements RecipeStore {
+
+    private final CustomItemCreator plugin;
+    private final DatabaseUtil databaseUtil;
+    private final StorageExecutor storageExecutor;
+
+    // 書き込みまでの待ち時間 (tick)
+    private final long flushInterval;
+
+    // 失敗した書き込みを再試行する回数
+    private final int maxRetries;
+
+    // 書き込み待ちのレシピ (レシピID -> レシピ、削除の場合はnull)
+    private Map<String, CustomRecipe> pending = new LinkedHashMap<>();
+
+    // 書き込みに失敗した回数 (レシピID -> 回数)
+    private final Map<String, Integer> failedAttempts = new HashMap<>();
+
+    private BukkitTask flushTask;
+
+    /**
+     * 保存先を初期化
+     * @param plugin プラグインインスタンス
+     * @param databaseUtil 接続するデータベース（アイテムの保存先と共有）
+     * @param storageExecutor 書き込みを実行するキュー
+     */
+    public SqlRecipeStore(CustomItemCreator plugin, DatabaseUtil databaseUtil, StorageExecutor storageExecutor) {
+        this.plugin = plugin;
+        this.databaseUtil = databaseUtil;
+        this.storageExecutor = storageExecutor;
+        this.flushInterval = Math.max(1, plugin.getConfig().getLong("storage.write-behind.flush-interval", 20));
+        this.maxRetries = Math.max(0, plugin.getConfig().getInt("storage.write-behind.max-retries", 3));
+    }
+
+    @Override
+    public String getName() {
+        return databaseUtil.getType().name();
+    }
+
+    @Override
+    public boolean open() {
+        return databaseUtil.connect();
+    }
+
+    @Override
+    public List<CustomRecipe> loadAll() {
+        return databaseUtil.loadRecipes();
+    }
+
+    @Override
+    public void save(CustomRecipe recipe) {
+        enqueue(recipe.getRecipeId(), recipe);
+    }
+
+    @Override
+    public void remove(String recipeId) {
+        enqueue(recipeId, null);
+    }
+
+    private synchronized void enqueue(String recipeId, CustomRecipe recipe) {
+        // 削除後に同じIDで保存し直した場合も、順序を保つため末尾に移す
+        pending.remove(recipeId);
+        pending.put(recipeId, recipe);
+        failedAttempts.remove(recipeId);
+
+        scheduleFlush();
+    }
+
+    private synchronized void scheduleFlush() {
+        if (flushTask == null && plugin.isEnabled()) {
+            flushTask = Bukkit.getScheduler().runTaskLater(plugin, this::flushAsync, flushInterval);
+        }
+    }
+
+    /**
+     * 保留中の書き込みを1つのバッチとして書き込みキューに送る
+     */
+    private void flushAsync() {
+        Map<String, CustomRecipe> batch;
+
+        synchronized (this) {
+            if (flushTask != null) {
+                flushTask.cancel();
+                flushTask = null;
+            }
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new LinkedHashMap<>();
+        }
+
+        List<CustomRecipe> saves = new ArrayList<>();
+        List<String> removals = new ArrayList<>();
+        for (Map.Entry<String, CustomRecipe> entry : batch.entrySet()) {
+            if (entry.getValue() != null) {
+                saves.add(entry.getValue());
+            } else {
+                removals.add(entry.getKey());
+            }
+        }
+
+        storageExecutor.submit(() -> databaseUtil.writeRecipeBatch(saves, removals))
+                .whenComplete((success, error) -> {
+                    if (error != null || !Boolean.TRUE.equals(success)) {
+                        retryFailed(batch);
+                    } else {
+                        synchronized (this) {
+                            failedAttempts.keySet().removeAll(batch.keySet());
+                        }
+                    }
+                });
+    }
+
+    /**
+     * 失敗したバッチの書き込みを保留中に戻し、次の書き込みで再試行する
+     * 同じレシピへの新しい書き込みがある場合はそちらを優先する
+     * 再試行の上限に達した書き込みは破棄する
+     * @param batch 失敗したバッチ
+     */
+    private void retryFailed(Map<String, CustomRecipe> batch) {
+        int retried = 0;
+        int dropped = 0;
+
+        synchronized (this) {
+            // 失敗した書き込みは後から予約された書き込みより先に並べる
+            Map<String, CustomRecipe> requeued = new LinkedHashMap<>();
+            for (Map.Entry<String, CustomRecipe> entry : batch.entrySet()) {
+                String recipeId = entry.getKey();
+                if (pending.containsKey(recipeId)) {
+                    continue;
+                }
+                int attempts = failedAttempts.getOrDefault(recipeId, 0);
+                if (attempts < maxRetries) {
+                    failedAttempts.put(recipeId, attempts + 1);
+                    requeued.put(recipeId, entry.getValue());
+                    retried++;
+                } else {
+                    failedAttempts.remove(recipeId);
+                    dropped++;
+                }
+            }
+            requeued.putAll(pending);
+            pending = requeued;
+        }
+
+        if (retried > 0) {
+            plugin.getLogger().warning("レシピの書き込みに失敗したため、" + retried + " 件のレシピを再試行します");
+            scheduleFlush();
+        }
+        if (dropped > 0) {
+            plugin.getLogger().severe("再試行の上限に達したため、" + dropped + " 件のレシピの書き込みを破棄しました");
+        }
+    }
+
+    /**
+     * 保留中の書き込みをキューに送り、反映し終えるまで待つ
+     */
+    @Override
+    public void flush() {
+        flushAsync();
+        storageExecutor.drain();
+    }
+
+    @Override
+    public void close() {
+        flush();
+
+        // 停止時に失敗した書き込みは再試行できない
+        int remaining;
+        synchronized (this) {
+            if (flushTask != null) {
+                flushTask.cancel();
+                flushTask = null;
+            }
+            remaining = pending.size();
+        }
+        if (remaining > 0) {
+            plugin.getLogger().severe(remaining + " 件のレシピの書き込みを保存できませんでした");
+        }
+    }
+}
@@ -0,0 +1,385 @@
+package jp.tproject.customItemCreator.storage;
+
+import jp.tproject.customItemCreator.CustomItemCreator;
+import jp.tproject.customItemCreator.util.StorageExecutor;
+import org.bukkit.Bukkit;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * アイテムの書き込みを一定時間バッファし、まとめて内側の保存先に書き込むデコレーター
+ * 同じアイテムIDへの連続した保存・削除は最後の1件にまとめられ、
+ * 件数または時間のしきい値に達した時点で1回のwriteBatchとして書き込みキューに送られる
+ * 書き込みに失敗したバッチは、同じIDへの新しい書き込みがなければ上限回数まで次の書き込みで再試行する
+ */
+public class WriteBehindItemStore extends ItemStoreDecorator {
+
+    private final CustomItemCreator plugin;
+    private final StorageExecutor storageExecutor;
+
+    // この件数に達したら即座に書き込む
+    private final int batchSize;
+
+    // 書き込み間隔 (tick)
+    private final long flushInterval;
+
+    // 失敗した書き込みを再試行する回数
+    private final int maxRetries;
+
+    // 書き込み待ちのアイテム (ID -> 保留中の書き込み)
+    private Map<String, PendingWrite> pending = new LinkedHashMap<>();
+
+    private BukkitTask flushTask;
+
+    // 統計情報
+    private final AtomicLong committedBatches = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final AtomicLong writtenItems = new AtomicLong();
+    private final AtomicLong coalescedWrites = new AtomicLong();
+    private final AtomicLong retriedWrites = new AtomicLong();
+    private final AtomicLong droppedWrites = new AtomicLong();
+    private final AtomicLong maxBatchSize = new AtomicLong();
+    private volatile int lastBatchSize;
+
+    /**
+     * 保留中の書き込み（itemがnullの場合は削除）
+     */
+    private static class PendingWrite {
+        private ItemStack item;
+        private String name;
+        private int attempts;
+        private final List<CompletableFuture<Boolean>> waiters = new ArrayList<>();
+    }
+
+    /**
+     * 書き込みバッファを初期化
+     * @param plugin プラグインインスタンス
+     * @param storageExecutor 書き込みを実行するキュー
+     * @param delegate 書き込み先の保存先
+     */
+    public WriteBehindItemStore(CustomItemCreator plugin, StorageExecutor storageExecutor, ItemStore delegate) {
+        super(delegate);
+        this.plugin = plugin;
+        this.storageExecutor = storageExecutor;
+        this.batchSize = Math.max(1, plugin.getConfig().getInt("storage.write-behind.batch-size", 100));
+        this.flushInterval = Math.max(1, plugin.getConfig().getLong("storage.write-behind.flush-interval", 20));
+        this.maxRetries = Math.max(0, plugin.getConfig().getInt("storage.write-behind.max-retries", 3));
+    }
+
+    /**
+     * 内側の保存先を開き、定期書き込みを開始
+     */
+    @Override
+    public boolean open() {
+        if (!delegate.open()) {
+            return false;
+        }
+
+        if (flushTask == null) {
+            flushTask = Bukkit.getScheduler().runTaskTimer(plugin, this::flushAsync, flushInterval, flushInterval);
+        }
+        return true;
+    }
+
+    /**
+     * 定期書き込みを停止し、残っている書き込みを反映してから内側の保存先を閉じる
+     */
+    @Override
+    public void close() {
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+        flushAsync();
+        delegate.flush();
+
+        // 停止時に失敗した書き込みは再試行できない
+        int remaining = getPendingCount();
+        if (remaining > 0) {
+            plugin.getLogger().severe(remaining + " 件のアイテムの書き込みを保存できませんでした");
+        }
+        delegate.close();
+    }
+
+    /**
+     * アイテムの保存を予約
+     * @param itemId アイテムID
+     * @param item アイテム（呼び出し側で変更されないコピーを渡すこと）
+     * @param name アイテム名
+     * @return 書き込み結果（メインスレッドで完了する）
+     */
+    @Override
+    public CompletableFuture<Boolean> save(String itemId, ItemStack item, String name) {
+        return enqueue(itemId, item, name);
+    }
+
+    /**
+     * アイテムの削除を予約
+     * @param itemId アイテムID
+     * @return 書き込み結果（メインスレッドで完了する）
+     */
+    @Override
+    public CompletableFuture<Boolean> remove(String itemId) {
+        return enqueue(itemId, null, null);
+    }
+
+    /**
+     * 保留中の書き込みの後に書き込みキューでまとめて書き込み、完了まで待つ
+     * 順序が入れ替わって古い書き込みで上書きされないよう、キューの順番に従う
+     */
+    @Override
+    public boolean writeBatch(Map<String, ItemStack> saves, Map<String, String> names, Collection<String> removals) {
+        flushAsync();
+        try {
+            return storageExecutor.submitAndWait(() -> delegate.writeBatch(saves, names, removals));
+        } catch (ExecutionException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * 保留中の書き込みの後に書き込みキューでまとめて書き込む
+     */
+    @Override
+    public CompletableFuture<Boolean> writeBatchAsync(Map<String, ItemStack> saves, Map<String, String> names,
+                                                      Collection<String> removals) {
+        flushAsync();
+        return storageExecutor.submit(() -> delegate.writeBatch(saves, names, removals));
+    }
+
+    /**
+     * 保留中の書き込みをキューに送り、反映し終えるまで待つ
+     */
+    @Override
+    public void flush() {
+        flushAsync();
+        delegate.flush();
+    }
+
+    private CompletableFuture<Boolean> enqueue(String itemId, ItemStack item, String name) {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        boolean full;
+
+        synchronized (this) {
+            PendingWrite write = pending.get(itemId);
+            if (write == null) {
+                write = new PendingWrite();
+                pending.put(itemId, write);
+            } else {
+                coalescedWrites.incrementAndGet();
+            }
+
+            write.item = item;
+            write.name = name;
+            write.waiters.add(future);
+
+            full = pending.size() >= batchSize;
+        }
+
+        if (full) {
+            flushAsync();
+        }
+
+        return future;
+    }
+
+    /**
+     * 保留中の書き込みを1つのバッチとして書き込みキューに送る
+     */
+    private void flushAsync() {
+        Map<String, PendingWrite> batch;
+
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new LinkedHashMap<>();
+        }
+
+        Map<String, ItemStack> saves = new LinkedHashMap<>();
+        Map<String, String> names = new LinkedHashMap<>();
+        List<String> removals = new ArrayList<>();
+
+        for (Map.Entry<String, PendingWrite> entry : batch.entrySet()) {
+            PendingWrite write = entry.getValue();
+            if (write.item != null) {
+                saves.put(entry.getKey(), write.item);
+                names.put(entry.getKey(), write.name);
+            } else {
+                removals.add(entry.getKey());
+            }
+        }
+
+        storageExecutor.submit(() -> {
+            boolean success = delegate.writeBatch(saves, names, removals);
+            recordBatch(batch.size(), success);
+            return success;
+        }).whenComplete((success, error) -> {
+            if (error != null || !Boolean.TRUE.equals(success)) {
+                // キューに受け付けられなかった場合も同じく再試行する
+                if (error != null) {
+                    recordBatch(batch.size(), false);
+                }
+                retryFailed(batch);
+                return;
+            }
+            for (PendingWrite write : batch.values()) {
+                complete(write, true);
+            }
+        });
+    }
+
+    /**
+     * 失敗したバッチの書き込みを保留中に戻し、次の書き込みで再試行する
+     * 同じIDへの新しい書き込みがある場合はそちらで上書きされるため、その結果を待つ
+     * 再試行の上限に達した書き込みは破棄して失敗を通知する
+     * @param batch 失敗したバッチ
+     */
+    private void retryFailed(Map<String, PendingWrite> batch) {
+        List<PendingWrite> dropped = new ArrayList<>();
+        int retried = 0;
+
+        synchronized (this) {
+            for (Map.Entry<String, PendingWrite> entry : batch.entrySet()) {
+                PendingWrite write = entry.getValue();
+                PendingWrite newer = pending.get(entry.getKey());
+                if (newer != null) {
+                    newer.waiters.addAll(write.waiters);
+                } else if (write.attempts < maxRetries) {
+                    write.attempts++;
+                    pending.put(entry.getKey(), write);
+                    retried++;
+                } else {
+                    dropped.add(write);
+                }
+            }
+        }
+
+        if (retried > 0) {
+            retriedWrites.addAndGet(retried);
+            plugin.getLogger().warning("書き込みに失敗したため、" + retried + " 件のアイテムを再試行します");
+        }
+        if (!dropped.isEmpty()) {
+            droppedWrites.addAndGet(dropped.size());
+            plugin.getLogger().severe("再試行の上限に達したため、" + dropped.size() + " 件のアイテムの書き込みを破棄しました");
+            for (PendingWrite write : dropped) {
+                complete(write, false);
+            }
+        }
+    }
+
+    private void complete(PendingWrite write, boolean result) {
+        for (CompletableFuture<Boolean> waiter : write.waiters) {
+            waiter.complete(result);
+        }
+    }
+
+    /**
+     * バッチの書き込み結果を記録
+     */
+    private void recordBatch(int size, boolean success) {
+        if (!success) {
+            failedBatches.incrementAndGet();
+            return;
+        }
+
+        committedBatches.incrementAndGet();
+        writtenItems.addAndGet(size);
+        lastBatchSize = size;
+        maxBatchSize.accumulateAndGet(size, Math::max);
+    }
+
+    /**
+     * 書き込み待ちのアイテム数を取得
+     * @return 書き込み待ちの件数
+     */
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * コミットしたバッチ数を取得
+     * @return バッチ数
+     */
+    public long getCommittedBatches() {
+        return committedBatches.get();
+    }
+
+    /**
+     * 失敗したバッチ数を取得
+     * @return 失敗したバッチ数
+     */
+    public long getFailedBatches() {
+        return failedBatches.get();
+    }
+
+    /**
+     * 書き込んだアイテム数を取得
+     * @return 書き込んだ件数
+     */
+    public long getWrittenItems() {
+        return writtenItems.get();
+    }
+
+    /**
+     * 同じIDへの書き込みがまとめられた回数を取得
+     * @return まとめられた回数
+     */
+    public long getCoalescedWrites() {
+        return coalescedWrites.get();
+    }
+
+    /**
+     * 失敗して再試行した書き込み数を取得
+     * @return 再試行した件数
+     */
+    public long getRetriedWrites() {
+        return retriedWrites.get();
+    }
+
+    /**
+     * 再試行の上限に達して破棄した書き込み数を取得
+     * @return 破棄した件数
+     */
+    public long getDroppedWrites() {
+        return droppedWrites.get();
+    }
+
+    /**
+     * 直前のバッチサイズを取得
+     * @return バッチサイズ
+     */
+    public int getLastBatchSize() {
+        return lastBatchSize;
+    }
+
+    /**
+     * 最大バッチサイズを取得
+     * @return バッチサイズ
+     */
+    public long getMaxBatchSize() {
+        return maxBatchSize.get();
+    }
+
+    /**
+     * 平均バッチサイズを取得
+     * @return 平均バッチサイズ
+     */
+    public double getAverageBatchSize() {
+        long batches = committedBatches.get();
+        return batches == 0 ? 0.0 : writtenItems.get() / (double) batches;
+    }
+}
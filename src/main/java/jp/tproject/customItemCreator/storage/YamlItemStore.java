@@ -0,0 +1,318 @@
+package jp.tproject.customItemCreator.storage;
+
+import jp.tproject.customItemCreator.CustomItemCreator;
+import jp.tproject.customItemCreator.model.ItemPage;
+import jp.tproject.customItemCreator.model.ItemSummary;
+import jp.tproject.customItemCreator.model.Rarity;
+import jp.tproject.customItemCreator.util.ItemSerializer;
+import jp.tproject.customItemCreator.util.StorageExecutor;
+import jp.tproject.customItemCreator.util.YamlJournal;
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.inventory.ItemStack;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+
+/**
+ * YAMLファイル (items.yml) にアイテムを保存するItemStore
+ * 変更はジャーナルに追記されるため、書き込みはメインスレッドで同期的に完了する
+ * FileConfigurationはスレッドセーフではないため、APIのスレッドなどからの読み取りも含めて全ての操作をこのインスタンスで同期する
+ */
+public class YamlItemStore implements ItemStore {
+
+    private final CustomItemCreator plugin;
+    private final File itemsFile;
+    private final YamlJournal itemsJournal;
+    private FileConfiguration itemsConfig;
+
+    // 一覧の並び順に並べたメタデータ（変更があるまで使い回す）
+    private List<ItemSummary> sortedSummaries;
+
+    /**
+     * 保存先を初期化
+     * @param plugin プラグインインスタンス
+     * @param storageExecutor ジャーナルの統合を実行するキュー
+     * @param itemsFile 保存先のYAMLファイル
+     */
+    public YamlItemStore(CustomItemCreator plugin, StorageExecutor storageExecutor, File itemsFile) {
+        this.plugin = plugin;
+        this.itemsFile = itemsFile;
+        this.itemsJournal = new YamlJournal(plugin, storageExecutor, itemsFile);
+    }
+
+    @Override
+    public String getName() {
+        return "YAML";
+    }
+
+    @Override
+    public boolean open() {
+        if (!itemsFile.exists()) {
+            itemsFile.getParentFile().mkdirs();
+            try {
+                itemsFile.createNewFile();
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.SEVERE, "アイテム設定ファイルを作成できませんでした", e);
+            }
+        }
+
+        // スナップショットにジャーナルを適用して読み込み
+        reload();
+        itemsJournal.start();
+        return true;
+    }
+
+    @Override
+    public synchronized void reload() {
+        itemsConfig = itemsJournal.load();
+        sortedSummaries = null;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (itemsConfig != null) {
+            itemsJournal.writeSnapshot(itemsConfig);
+        }
+        itemsJournal.close();
+    }
+
+    /**
+     * メモリ上の状態をスナップショットとして書き出し、ジャーナルを空にする
+     */
+    public synchronized void saveSnapshot() {
+        itemsJournal.writeSnapshot(itemsConfig);
+    }
+
+    @Override
+    public ItemStack getItem(String itemId) {
+        // 設定の読み取りだけを書き込みと同期し、デコードはロックの外で行う
+        String encodedItem;
+        synchronized (this) {
+            encodedItem = itemsConfig.getString("items." + itemId + ".data");
+        }
+        return ItemSerializer.fromBase64(encodedItem);
+    }
+
+    @Override
+    public Map<String, ItemStack> getItems(Collection<String> itemIds) {
+        Map<String, ItemStack> items = new LinkedHashMap<>();
+        for (String itemId : itemIds) {
+            ItemStack item = getItem(itemId);
+            if (item != null) {
+                items.put(itemId, item);
+            }
+        }
+        return items;
+    }
+
+    @Override
+    public synchronized ItemPage getPage(String cursor, int limit) {
+        List<ItemSummary> sorted = getSortedSummaries();
+
+        int start = 0;
+        if (cursor != null) {
+            int index = Collections.binarySearch(sorted, ItemPage.decodeCursor(cursor), ItemSummary.LISTING_ORDER);
+            start = index >= 0 ? index + 1 : -(index + 1);
+        }
+
+        int end = Math.min(start + limit, sorted.size());
+        List<ItemSummary> items = new ArrayList<>(sorted.subList(start, end));
+        String nextCursor = end < sorted.size() && !items.isEmpty() ?
+                ItemPage.encodeCursor(items.get(items.size() - 1)) : null;
+        return new ItemPage(items, cursor, nextCursor, sorted.size());
+    }
+
+    @Override
+    public synchronized int count() {
+        ConfigurationSection itemsSection = itemsConfig.getConfigurationSection("items");
+        return itemsSection != null ? itemsSection.getKeys(false).size() : 0;
+    }
+
+    @Override
+    public synchronized CompletableFuture<Boolean> save(String itemId, ItemStack item, String name) {
+        return CompletableFuture.completedFuture(writeItem(itemId, item, name, this::setItemValue));
+    }
+
+    @Override
+    public synchronized CompletableFuture<Boolean> remove(String itemId) {
+        setItemValue("items." + itemId, null);
+        sortedSummaries = null;
+        return CompletableFuture.completedFuture(true);
+    }
+
+    /**
+     * まとめ書きは全ての変更を1回の追記としてジャーナルに記録する
+     * 移行ジョブからはメインスレッド以外で呼ばれるため、書き込み同士は同期する
+     */
+    @Override
+    public synchronized boolean writeBatch(Map<String, ItemStack> saves, Map<String, String> names,
+                                           Collection<String> removals) {
+        Map<String, String> changes = new LinkedHashMap<>();
+        boolean success = true;
+        for (Map.Entry<String, ItemStack> entry : saves.entrySet()) {
+            String name = names.get(entry.getKey());
+            success &= writeItem(entry.getKey(), entry.getValue(), name != null ? name : "Unknown Item",
+                    changes::put);
+        }
+        for (String itemId : removals) {
+            changes.put("items." + itemId, null);
+        }
+
+        for (Map.Entry<String, String> change : changes.entrySet()) {
+            itemsConfig.set(change.getKey(), change.getValue());
+        }
+        itemsJournal.appendAll(changes);
+        sortedSummaries = null;
+        return success;
+    }
+
+    @Override
+    public void flush() {
+        // ジャーナルへの追記は同期的に完了しているため待つものはない
+    }
+
+    /**
+     * アイテムを現在の保存形式でエンコードして書き込む
+     * @param itemId アイテムID
+     * @param item アイテム
+     * @param name アイテム名
+     * @param setter 値を設定する処理
+     * @return 書き込めた場合true
+     */
+    private boolean writeItem(String itemId, ItemStack item, String name, BiConsumer<String, String> setter) {
+        // 保存用のセクションがなければ作成
+        if (!itemsConfig.contains("items")) {
+            itemsConfig.createSection("items");
+        }
+
+        // Base64に変換して保存
+        String encodedItem = ItemSerializer.serialize(item);
+        if (encodedItem == null) {
+            return false;
+        }
+
+        ItemSummary summary = ItemSummary.of(itemId, item, System.currentTimeMillis());
+        writeItemEntry(itemId, encodedItem, name, summary, setter);
+        sortedSummaries = null;
+        return true;
+    }
+
+    /**
+     * アイテム設定を変更し、ジャーナルに記録
+     * @param path 設定のパス
+     * @param value 設定する値、削除の場合はnull
+     */
+    private void setItemValue(String path, String value) {
+        itemsConfig.set(path, value);
+        itemsJournal.append(path, value);
+    }
+
+    /**
+     * YAMLにアイテムのデータとメタデータを書き込む
+     * @param itemId アイテムID
+     * @param encodedItem エンコードされたアイテム
+     * @param name アイテム名
+     * @param summary アイテムのメタデータ
+     * @param setter 値を設定する処理
+     */
+    private void writeItemEntry(String itemId, String encodedItem, String name, ItemSummary summary,
+                                BiConsumer<String, String> setter) {
+        String path = "items." + itemId;
+        setter.accept(path + ".data", encodedItem);
+        setter.accept(path + ".name", name);
+        setter.accept(path + ".material", summary.getMaterial().name());
+        setter.accept(path + ".rarity", summary.getRarity().name());
+        setter.accept(path + ".customModelData", String.valueOf(summary.getCustomModelData()));
+        setter.accept(path + ".amount", String.valueOf(summary.getAmount()));
+        setter.accept(path + ".updatedAt", String.valueOf(summary.getUpdatedAt()));
+    }
+
+    /**
+     * 一覧の並び順に並べたメタデータを取得
+     * @return メタデータのリスト
+     */
+    private List<ItemSummary> getSortedSummaries() {
+        if (sortedSummaries == null) {
+            List<ItemSummary> summaries = loadSummaries();
+            summaries.sort(ItemSummary.LISTING_ORDER);
+            sortedSummaries = summaries;
+        }
+        return sortedSummaries;
+    }
+
+    /**
+     * 全てのアイテムのメタデータを読み込み
+     * メタデータがない旧データはデコードして補完する
+     * @return メタデータのリスト
+     */
+    private List<ItemSummary> loadSummaries() {
+        List<ItemSummary> summaries = new ArrayList<>();
+        ConfigurationSection itemsSection = itemsConfig.getConfigurationSection("items");
+        if (itemsSection == null) {
+            return summaries;
+        }
+
+        int backfilled = 0;
+        for (String itemId : itemsSection.getKeys(false)) {
+            String path = "items." + itemId;
+            Material material = Material.matchMaterial(itemsConfig.getString(path + ".material", ""));
+
+            if (material != null) {
+                summaries.add(new ItemSummary(
+                        itemId,
+                        itemsConfig.getString(path + ".name", material.name()),
+                        material,
+                        Rarity.fromString(itemsConfig.getString(path + ".rarity")),
+                        parseInt(itemsConfig.getString(path + ".customModelData"), 0),
+                        parseInt(itemsConfig.getString(path + ".amount"), 1),
+                        parseLong(itemsConfig.getString(path + ".updatedAt"), 0L)));
+                continue;
+            }
+
+            // メタデータがない旧データはデコードして補完する
+            ItemStack item = ItemSerializer.fromBase64(itemsConfig.getString(path + ".data"));
+            if (item == null) {
+                continue;
+            }
+
+            ItemSummary summary = ItemSummary.of(itemId, item, itemsFile.lastModified());
+            writeItemEntry(itemId, itemsConfig.getString(path + ".data"),
+                    itemsConfig.getString(path + ".name", summary.getName()), summary, this::setItemValue);
+            summaries.add(summary);
+            backfilled++;
+        }
+
+        if (backfilled > 0) {
+            plugin.getLogger().info(backfilled + " 個のアイテムのメタデータを補完しました");
+        }
+
+        return summaries;
+    }
+
+    private static int parseInt(String value, int defaultValue) {
+        try {
+            return value != null ? Integer.parseInt(value) : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static long parseLong(String value, long defaultValue) {
+        try {
+            return value != null ? Long.parseLong(value) : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package jp.tproject.customItemCreator.storage;
+
+import jp.tproject.customItemCreator.CustomItemCreator;
+import jp.tproject.customItemCreator.model.CustomRecipe;
+import jp.tproject.customItemCreator.util.ItemSerializer;
+import jp.tproject.customItemCreator.util.StorageExecutor;
+import jp.tproject.customItemCreator.util.YamlJournal;
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.inventory.ItemStack;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+
+/**
+ * YAMLファイル (recipes.yml) にレシピを保存するRecipeStore
+ * 変更はジャーナルに追記されるため、書き込みはメインスレッドで同期的に完了する
+ * 材料は内容のハッシュをキーに ingredients セクションへ1度だけ保存し、レシピの各マスからはハッシュで参照する
+ * 旧バージョンの、各マスに材料を直接保存した形式もそのまま読み込める
+ */
+public class YamlRecipeStore implements RecipeStore {
+
+    private final CustomItemCreator plugin;
+    private final File recipesFile;
+    private final YamlJournal recipesJournal;
+    private FileConfiguration recipesConfig;
+
+    /**
+     * 保存先を初期化
+     * @param plugin プラグインインスタンス
+     * @param storageExecutor ジャーナルの統合を実行するキュー
+     * @param recipesFile 保存先のYAMLファイル
+     */
+    public YamlRecipeStore(CustomItemCreator plugin, StorageExecutor storageExecutor, File recipesFile) {
+        this.plugin = plugin;
+        this.recipesFile = recipesFile;
+        this.recipesJournal = new YamlJournal(plugin, storageExecutor, recipesFile);
+    }
+
+    @Override
+    public String getName() {
+        return "YAML";
+    }
+
+    @Override
+    public boolean open() {
+        if (!recipesFile.exists()) {
+            recipesFile.getParentFile().mkdirs();
+            try {
+                recipesFile.createNewFile();
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.SEVERE, "レシピ設定ファイルを作成できませんでした", e);
+            }
+        }
+
+        // スナップショットにジャーナルを適用して読み込み
+        reload();
+        recipesJournal.start();
+        return true;
+    }
+
+    /**
+     * ファイルから読み直す
+     */
+    public void reload() {
+        recipesConfig = recipesJournal.load();
+    }
+
+    @Override
+    public List<CustomRecipe> loadAll() {
+        List<CustomRecipe> recipes = new ArrayList<>();
+        ConfigurationSection recipesSection = recipesConfig.getConfigurationSection("recipes");
+        if (recipesSection == null) {
+            return recipes;
+        }
+
+        // 同じ材料は1度だけデコードし、全てのレシピで共有する
+        Map<String, ItemStack> decoded = new HashMap<>();
+        for (String recipeId : recipesSection.getKeys(false)) {
+            CustomRecipe recipe = decodeRecipe(recipeId, decoded);
+            if (recipe != null) {
+                recipes.add(recipe);
+            }
+        }
+        return recipes;
+    }
+
+    /**
+     * レシピ設定からレシピをデコード
+     * @param recipeId レシピID
+     * @param decoded デコード済みの材料（ハッシュまたは旧形式の文字列 -> アイテム）
+     * @return デコードしたレシピ、結果アイテムが設定されていなければnull
+     */
+    private CustomRecipe decodeRecipe(String recipeId, Map<String, ItemStack> decoded) {
+        String resultItemId = recipesConfig.getString("recipes." + recipeId + ".resultItemId");
+
+        if (resultItemId == null) {
+            return null;
+        }
+
+        ItemStack[] ingredients = new ItemStack[9];
+
+        // ハッシュで参照する材料を読み込み
+        ConfigurationSection slotsSection = recipesConfig.getConfigurationSection("recipes." + recipeId + ".slots");
+        if (slotsSection != null) {
+            for (String key : slotsSection.getKeys(false)) {
+                int index = parseSlot(key);
+                String hash = slotsSection.getString(key);
+                if (index >= 0 && hash != null) {
+                    ingredients[index] = decoded.computeIfAbsent(hash,
+                            h -> ItemSerializer.fromBase64(recipesConfig.getString("ingredients." + h)));
+                }
+            }
+        }
+
+        // 旧形式（各マスに直接保存した材料）を読み込み
+        ConfigurationSection ingredientsSection = recipesConfig.getConfigurationSection("recipes." + recipeId + ".ingredients");
+        if (ingredientsSection != null) {
+            for (String key : ingredientsSection.getKeys(false)) {
+                int index = parseSlot(key);
+                String encodedItem = ingredientsSection.getString(key);
+                if (index >= 0 && encodedItem != null) {
+                    ingredients[index] = decoded.computeIfAbsent(encodedItem, ItemSerializer::fromBase64);
+                }
+            }
+        }
+
+        return CustomRecipe.withSharedIngredients(recipeId, resultItemId, ingredients);
+    }
+
+    /**
+     * マスの番号を解析
+     * @return 0から8の番号、無効な場合は-1
+     */
+    private int parseSlot(String key) {
+        try {
+            int index = Integer.parseInt(key);
+            if (index >= 0 && index < 9) {
+                return index;
+            }
+        } catch (NumberFormatException e) {
+            // 下で警告する
+        }
+        plugin.getLogger().warning("レシピの材料インデックスが無効です: " + key);
+        return -1;
+    }
+
+    @Override
+    public void save(CustomRecipe recipe) {
+        String recipeId = recipe.getRecipeId();
+
+        // 結果アイテムIDと材料の変更を1回の追記で記録する
+        Map<String, String> changes = new LinkedHashMap<>();
+        changes.put("recipes." + recipeId + ".resultItemId", recipe.getResultItemId());
+
+        ItemStack[] ingredients = recipe.getIngredients();
+        for (int i = 0; i < ingredients.length; i++) {
+            String path = "recipes." + recipeId + ".slots." + i;
+            byte[] encodedItem = ingredients[i] != null && ingredients[i].getType() != Material.AIR ?
+                    ItemSerializer.toBytes(ingredients[i]) : null;
+            if (encodedItem != null) {
+                // 同じ内容の材料が保存済みであれば参照だけを記録する
+                String hash = ItemSerializer.contentHash(encodedItem);
+                String ingredientPath = "ingredients." + hash;
+                if (!changes.containsKey(ingredientPath) && !recipesConfig.contains(ingredientPath)) {
+                    changes.put(ingredientPath, Base64.getEncoder().encodeToString(encodedItem));
+                }
+                changes.put(path, hash);
+            } else if (recipesConfig.contains(path)) {
+                changes.put(path, null);
+            }
+        }
+
+        // 旧形式の材料は参照に置き換えたため削除する
+        if (recipesConfig.contains("recipes." + recipeId + ".ingredients")) {
+            changes.put("recipes." + recipeId + ".ingredients", null);
+        }
+
+        setValues(changes);
+    }
+
+    @Override
+    public void saveAll(Collection<CustomRecipe> recipes) {
+        for (CustomRecipe recipe : recipes) {
+            save(recipe);
+        }
+        flush();
+    }
+
+    @Override
+    public void remove(String recipeId) {
+        Map<String, String> changes = new LinkedHashMap<>();
+        changes.put("recipes." + recipeId, null);
+        setValues(changes);
+    }
+
+    /**
+     * レシピ設定を変更し、ジャーナルに記録
+     * @param changes 設定のパスと値のマップ（削除の場合は値がnull）
+     */
+    private void setValues(Map<String, String> changes) {
+        for (Map.Entry<String, String> entry : changes.entrySet()) {
+            recipesConfig.set(entry.getKey(), entry.getValue());
+        }
+        recipesJournal.appendAll(changes);
+    }
+
+    /**
+     * どのレシピからも参照されなくなった材料を削除
+     * 直後にスナップショットを書き出すため、ジャーナルには記録しない
+     */
+    private void removeUnusedIngredients() {
+        ConfigurationSection ingredientsSection = recipesConfig.getConfigurationSection("ingredients");
+        if (ingredientsSection == null) {
+            return;
+        }
+
+        Set<String> referenced = new HashSet<>();
+        ConfigurationSection recipesSection = recipesConfig.getConfigurationSection("recipes");
+        if (recipesSection != null) {
+            for (String recipeId : recipesSection.getKeys(false)) {
+                ConfigurationSection slotsSection = recipesSection.getConfigurationSection(recipeId + ".slots");
+                if (slotsSection != null) {
+                    for (String key : slotsSection.getKeys(false)) {
+                        referenced.add(slotsSection.getString(key));
+                    }
+                }
+            }
+        }
+
+        for (String hash : ingredientsSection.getKeys(false)) {
+            if (!referenced.contains(hash)) {
+                ingredientsSection.set(hash, null);
+            }
+        }
+    }
+
+    /**
+     * 使われなくなった材料を削除し、メモリ上の状態をスナップショットとして書き出してジャーナルを空にする
+     */
+    @Override
+    public void flush() {
+        removeUnusedIngredients();
+        recipesJournal.writeSnapshot(recipesConfig);
+    }
+
+    @Override
+    public void close() {
+        if (recipesConfig != null) {
+            removeUnusedIngredients();
+            recipesJournal.writeSnapshot(recipesConfig);
+        }
+        recipesJournal.close();
+    }
+}
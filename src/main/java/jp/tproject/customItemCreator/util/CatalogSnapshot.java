@@ -0,0 +1,233 @@
+package jp.tproject.customItemCreator.util;
+
+import jp.tproject.customItemCreator.model.ItemPage;
+import jp.tproject.customItemCreator.model.ItemQuery;
+import jp.tproject.customItemCreator.model.ItemSummary;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ある時点のアイテムカタログ（メタデータ）の不変のスナップショット
+ * 作成後は変更されないため、APIのスレッドからロックなしで読み取ってもメインスレッドの書き込みと競合しない
+ * 一覧・ページ・絞り込みは全て同じ時点の内容で応答する
+ * 少数の変更は前のスナップショットに二分探索で挿入・削除して作成し、全体の並べ替えを避ける
+ * 絞り込み用の索引は初めて絞り込まれた時点で作成する
+ */
+public class CatalogSnapshot {
+
+    private final long version;
+
+    // 一覧の並び順に並べたメタデータ（変更不可）
+    private final List<ItemSummary> ordered;
+
+    // アイテムID -> メタデータ
+    private final Map<String, ItemSummary> byId;
+
+    // 絞り込み用の二次索引（初めて絞り込まれた時点で作成する）
+    private volatile ItemIndex index;
+
+    /**
+     * スナップショットを作成
+     * @param version カタログのバージョン
+     * @param summaries その時点の全てのメタデータ（順不同）
+     */
+    public CatalogSnapshot(long version, Collection<ItemSummary> summaries) {
+        List<ItemSummary> sorted = new ArrayList<>(summaries);
+        sorted.sort(ItemSummary.LISTING_ORDER);
+
+        Map<String, ItemSummary> map = new HashMap<>(Math.max(16, sorted.size() * 4 / 3 + 1));
+        for (ItemSummary summary : sorted) {
+            map.put(summary.getItemId(), summary);
+        }
+
+        this.version = version;
+        this.ordered = Collections.unmodifiableList(sorted);
+        this.byId = Collections.unmodifiableMap(map);
+    }
+
+    private CatalogSnapshot(long version, List<ItemSummary> sorted, Map<String, ItemSummary> map) {
+        this.version = version;
+        this.ordered = Collections.unmodifiableList(sorted);
+        this.byId = Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * このスナップショットに変更を適用した新しいスナップショットを作成
+     * 変更されたアイテムだけを二分探索で削除・挿入するため、並べ替えは行わない
+     * @param version 新しいカタログのバージョン
+     * @param changes 変更されたアイテム (ID -> 新しいメタデータ、削除の場合はnull)
+     * @return 新しいスナップショット
+     */
+    public CatalogSnapshot withChanges(long version, Map<String, ItemSummary> changes) {
+        List<ItemSummary> sorted = new ArrayList<>(ordered);
+        Map<String, ItemSummary> map = new HashMap<>(byId);
+
+        for (Map.Entry<String, ItemSummary> change : changes.entrySet()) {
+            ItemSummary previous = map.remove(change.getKey());
+            if (previous != null) {
+                int position = Collections.binarySearch(sorted, previous, ItemSummary.LISTING_ORDER);
+                if (position >= 0) {
+                    sorted.remove(position);
+                }
+            }
+
+            ItemSummary summary = change.getValue();
+            if (summary != null) {
+                int position = Collections.binarySearch(sorted, summary, ItemSummary.LISTING_ORDER);
+                sorted.add(position >= 0 ? position : -(position + 1), summary);
+                map.put(summary.getItemId(), summary);
+            }
+        }
+        return new CatalogSnapshot(version, sorted, map);
+    }
+
+    /**
+     * 絞り込み用の索引を取得（なければ作成）
+     */
+    private ItemIndex getIndex() {
+        ItemIndex current = index;
+        if (current == null) {
+            synchronized (this) {
+                current = index;
+                if (current == null) {
+                    current = new ItemIndex(ordered);
+                    index = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * カタログのバージョンを取得
+     * @return バージョン
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * アイテム数を取得
+     * @return アイテム数
+     */
+    public int size() {
+        return ordered.size();
+    }
+
+    /**
+     * アイテムのメタデータを取得
+     * @param itemId アイテムID
+     * @return メタデータ、見つからなければnull
+     */
+    public ItemSummary getSummary(String itemId) {
+        return byId.get(itemId);
+    }
+
+    /**
+     * アイテムが存在するか
+     * @param itemId アイテムID
+     * @return 存在すればtrue
+     */
+    public boolean contains(String itemId) {
+        return byId.containsKey(itemId);
+    }
+
+    /**
+     * 全てのメタデータを一覧の並び順で取得
+     * @return メタデータのリスト（変更不可）
+     */
+    public List<ItemSummary> getSummaries() {
+        return ordered;
+    }
+
+    /**
+     * 全てのアイテムIDを取得
+     * @return アイテムIDのセット（変更不可）
+     */
+    public Set<String> getItemIds() {
+        return byId.keySet();
+    }
+
+    /**
+     * カーソルの次から1ページ分のメタデータを取得
+     * @param cursor 前のページのカーソル、最初のページの場合はnull
+     * @param limit ページサイズ
+     * @return ページ
+     * @throws IllegalArgumentException カーソルが不正な場合
+     */
+    public ItemPage getPage(String cursor, int limit) {
+        int start = cursor != null ? indexAfter(ordered, cursor) : 0;
+        int end = Math.min(start + limit, ordered.size());
+
+        List<ItemSummary> items = new ArrayList<>(ordered.subList(start, end));
+        String nextCursor = end < ordered.size() && !items.isEmpty() ?
+                ItemPage.encodeCursor(items.get(items.size() - 1)) : null;
+        return new ItemPage(items, cursor, nextCursor, ordered.size());
+    }
+
+    /**
+     * ページ番号を指定して1ページ分のメタデータを取得
+     * @param pageIndex ページ番号（0から始まる）
+     * @param pageSize ページサイズ
+     * @return ページ
+     */
+    public ItemPage getPageAt(int pageIndex, int pageSize) {
+        int start = (int) Math.min((long) pageIndex * pageSize, ordered.size());
+        int end = Math.min(start + pageSize, ordered.size());
+
+        List<ItemSummary> items = new ArrayList<>(ordered.subList(start, end));
+        String cursor = start > 0 ? ItemPage.encodeCursor(ordered.get(start - 1)) : null;
+        String nextCursor = end < ordered.size() && !items.isEmpty() ?
+                ItemPage.encodeCursor(items.get(items.size() - 1)) : null;
+        return new ItemPage(items, cursor, nextCursor, ordered.size());
+    }
+
+    /**
+     * 条件に一致するメタデータをカーソルの次から1ページ分取得
+     * 二次索引から最も件数の少ない候補を選び、残りの条件は候補ごとに確認する
+     * @param query 絞り込み条件
+     * @param cursor 前のページのカーソル、最初のページの場合はnull
+     * @param limit ページサイズ
+     * @return ページ（絞り込んだ場合の全件数は-1）
+     * @throws IllegalArgumentException カーソルが不正な場合
+     */
+    public ItemPage query(ItemQuery query, String cursor, int limit) {
+        if (query.isEmpty()) {
+            return getPage(cursor, limit);
+        }
+
+        List<ItemSummary> candidates = getIndex().candidates(query);
+        int start = cursor != null ? indexAfter(candidates, cursor) : 0;
+
+        List<ItemSummary> items = new ArrayList<>(limit);
+        boolean hasNext = false;
+        for (int i = start; i < candidates.size(); i++) {
+            ItemSummary summary = candidates.get(i);
+            if (!query.matches(summary)) {
+                continue;
+            }
+            if (items.size() == limit) {
+                hasNext = true;
+                break;
+            }
+            items.add(summary);
+        }
+
+        String nextCursor = hasNext ? ItemPage.encodeCursor(items.get(items.size() - 1)) : null;
+        return new ItemPage(items, cursor, nextCursor, -1);
+    }
+
+    /**
+     * 並び順のリストでカーソルの次の位置を二分探索で求める
+     */
+    private static int indexAfter(List<ItemSummary> sorted, String cursor) {
+        int index = Collections.binarySearch(sorted, ItemPage.decodeCursor(cursor), ItemSummary.LISTING_ORDER);
+        return index >= 0 ? index + 1 : -(index + 1);
+    }
+}
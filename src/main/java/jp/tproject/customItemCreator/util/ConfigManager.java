@@ -1,47 +1,98 @@
 package jp.tproject.customItemCreator.util;
 
 import jp.tproject.customItemCreator.CustomItemCreator;
+import jp.tproject.customItemCreator.model.CatalogChange;
 import jp.tproject.customItemCreator.model.CustomRecipe;
-import org.bukkit.configuration.ConfigurationSection;
-import org.bukkit.configuration.file.FileConfiguration;
-import org.bukkit.configuration.file.YamlConfiguration;
+import jp.tproject.customItemCreator.model.ItemPage;
+import jp.tproject.customItemCreator.model.ItemQuery;
+import jp.tproject.customItemCreator.model.ItemSummary;
+import jp.tproject.customItemCreator.storage.CachingItemStore;
+import jp.tproject.customItemCreator.storage.ItemStore;
+import jp.tproject.customItemCreator.storage.MetricsItemStore;
+import jp.tproject.customItemCreator.storage.MigrationJob;
+import jp.tproject.customItemCreator.storage.MigrationTargetStore;
+import jp.tproject.customItemCreator.storage.RecipeStore;
+import jp.tproject.customItemCreator.storage.SqlItemStore;
+import jp.tproject.customItemCreator.storage.SqlRecipeStore;
+import jp.tproject.customItemCreator.storage.WriteBehindItemStore;
+import jp.tproject.customItemCreator.storage.YamlItemStore;
+import jp.tproject.customItemCreator.storage.YamlRecipeStore;
 import org.bukkit.inventory.ItemStack;
 
 import java.io.File;
-import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 
 /**
  * プラグインの設定ファイルとアイテムデータを管理するクラス
+ * アイテムの読み書きはストレージタイプに応じて組み立てたItemStoreに委譲する
  */
 public class ConfigManager {
 
     private final CustomItemCreator plugin;
 
-    // アイテム保存用YAML
-    private final File itemsFile;
-    private FileConfiguration itemsConfig;
+    // アイテム保存用YAML（移行元・移行先としても使うため常に用意する）
+    private final YamlItemStore yamlStore;
 
-    // レシピ保存用YAML
-    private final File recipesFile;
-    private FileConfiguration recipesConfig;
+    // レシピ保存用YAML（移行元・移行先としても使うため常に用意する）
+    private final YamlRecipeStore yamlRecipeStore;
 
-    // データベース接続
-    private DatabaseUtil databaseUtil;
+    // 現在のレシピ保存先（アイテムと同じストレージタイプを使用する）
+    private RecipeStore recipeStore;
+
+    // デコード済みのレシピと索引（recipeStoreと常に同じ内容を保持する）
+    private final RecipeCatalog recipeCatalog;
+
+    // 現在のアイテム保存先（キャッシュ → 書き込みバッファ → 計測 → 保存先 の順に包む）
+    private CachingItemStore store;
+
+    // ストレージ書き込み用の非同期キュー
+    private final StorageExecutor storageExecutor;
+
+    // 実行中のストレージ移行
+    private MigrationJob migrationJob;
+
+    // 現在の保存先へ移行中の書き込み先（移行中の編集を記録する）
+    private MigrationTargetStore migrationTarget;
+
+    // アイテム・レシピの変更の購読者
+    private final List<Consumer<CatalogChange>> changeListeners = new CopyOnWriteArrayList<>();
+
+    // 停止時に移行ジョブの中断を待つ時間 (ミリ秒)
+    private static final long MIGRATION_STOP_TIMEOUT = 30000;
 
     // ストレージタイプ
     public enum StorageType {
         YAML,
-        MYSQL
+        MYSQL,
+        // 外部サーバー不要の組み込みデータベース
+        H2;
+
+        /**
+         * データベースを使用するストレージか
+         * @return MYSQLまたはH2の場合true
+         */
+        public boolean isDatabase() {
+            return this != YAML;
+        }
     }
 
     private StorageType storageType;
 
+    // 移行時に1回のまとめ書きで書き込むアイテム数
+    private static final int MIGRATION_BATCH_SIZE = 500;
+
     /**
      * コンフィグマネージャーを初期化
      * @param plugin プラグインインスタンス
@@ -52,6 +103,12 @@ public class ConfigManager {
         // デフォルト設定ファイルを保存
         plugin.saveDefaultConfig();
 
+        // 書き込みキューを初期化
+        this.storageExecutor = new StorageExecutor(plugin);
+
+        // アイテムの保存形式を読み込み
+        loadStorageFormat();
+
         // ストレージタイプを読み込み
         String storageTypeStr = plugin.getConfig().getString("storage.type", "YAML");
         try {
@@ -61,165 +118,302 @@ public class ConfigManager {
             this.storageType = StorageType.YAML;
         }
 
-        // アイテム用のコンフィグファイルを初期化
-        this.itemsFile = new File(plugin.getDataFolder(), "items.yml");
-        if (!itemsFile.exists() && storageType == StorageType.YAML) {
-            itemsFile.getParentFile().mkdirs();
-            try {
-                itemsFile.createNewFile();
-            } catch (IOException e) {
-                plugin.getLogger().log(Level.SEVERE, "アイテム設定ファイルを作成できませんでした", e);
-            }
+        // アイテム用のYAMLを初期化（開くのは使用する時点）
+        this.yamlStore = new YamlItemStore(plugin, storageExecutor, new File(plugin.getDataFolder(), "items.yml"));
+
+        // レシピ用のYAMLを開く
+        this.yamlRecipeStore = new YamlRecipeStore(plugin, storageExecutor, new File(plugin.getDataFolder(), "recipes.yml"));
+        this.yamlRecipeStore.open();
+        this.recipeCatalog = new RecipeCatalog(plugin.getCustomItemKey());
+
+        // アイテムの保存先を開く
+        this.store = openStore(storageType);
+        if (store == null) {
+            plugin.getLogger().warning(storageType + "への接続に失敗しました。YAMLストレージにフォールバックします。");
+            this.storageType = StorageType.YAML;
+            this.store = openStore(StorageType.YAML);
         }
 
-        this.itemsConfig = YamlConfiguration.loadConfiguration(itemsFile);
+        // レシピの保存先を開き、全てのレシピを1度に読み込む
+        this.recipeStore = openRecipeStore();
+        loadRecipeCatalog();
 
-        // レシピ用のコンフィグファイルを初期化
-        this.recipesFile = new File(plugin.getDataFolder(), "recipes.yml");
-        if (!recipesFile.exists()) {
-            recipesFile.getParentFile().mkdirs();
-            try {
-                recipesFile.createNewFile();
-            } catch (IOException e) {
-                plugin.getLogger().log(Level.SEVERE, "レシピ設定ファイルを作成できませんでした", e);
-            }
+        plugin.getLogger().info("ストレージタイプ: " + this.storageType);
+    }
+
+    /**
+     * 設定ファイルからアイテムの保存形式を読み込み
+     */
+    private void loadStorageFormat() {
+        String formatStr = plugin.getConfig().getString("storage.format", "BASE64");
+        try {
+            ItemSerializer.setFormat(ItemSerializer.Format.valueOf(formatStr.toUpperCase()));
+        } catch (IllegalArgumentException e) {
+            plugin.getLogger().warning("無効な保存形式: " + formatStr + "、BASE64に設定します");
+            ItemSerializer.setFormat(ItemSerializer.Format.BASE64);
         }
+        ItemCodec.setCompressionThreshold(plugin.getConfig().getInt("storage.compression-threshold", 256));
+    }
 
-        this.recipesConfig = YamlConfiguration.loadConfiguration(recipesFile);
+    /**
+     * ストレージタイプに応じた保存先を組み立てて開く
+     * データベースの場合は書き込みバッファを挟み、非同期にまとめて書き込む
+     * @param type ストレージタイプ
+     * @return 開いた保存先、開けなかった場合はnull
+     */
+    private CachingItemStore openStore(StorageType type) {
+        ItemStore backend = type.isDatabase() ?
+                new SqlItemStore(new DatabaseUtil(plugin, type), storageExecutor) : yamlStore;
 
-        // MySQLを使用する場合はデータベース接続を初期化
-        if (storageType == StorageType.MYSQL) {
-            this.databaseUtil = new DatabaseUtil(plugin);
+        ItemStore chain = new MetricsItemStore(backend);
+        if (type.isDatabase()) {
+            chain = new WriteBehindItemStore(plugin, storageExecutor, chain);
+        }
 
-            // 接続テスト
-            if (!databaseUtil.connect()) {
-                plugin.getLogger().warning("MySQLへの接続に失敗しました。YAMLストレージにフォールバックします。");
-                this.storageType = StorageType.YAML;
-            }
+        CachingItemStore caching = new CachingItemStore(chain);
+        if (!caching.open()) {
+            return null;
         }
 
-        plugin.getLogger().info("ストレージタイプ: " + this.storageType);
+        plugin.getLogger().info(caching.count() + " 個のアイテムのメタデータをキャッシュに読み込みました");
+        return caching;
+    }
+
+    /**
+     * 現在のアイテム保存先と同じストレージタイプのレシピ保存先を開く
+     * データベースの場合はアイテムの保存先と接続を共有する
+     * @return 開いた保存先（データベースを開けなかった場合はYAML）
+     */
+    private RecipeStore openRecipeStore() {
+        SqlItemStore sqlStore = store.unwrap(SqlItemStore.class);
+        if (sqlStore == null) {
+            return yamlRecipeStore;
+        }
+
+        RecipeStore sqlRecipeStore = new SqlRecipeStore(plugin, sqlStore.getDatabaseUtil(), storageExecutor);
+        if (!sqlRecipeStore.open()) {
+            plugin.getLogger().warning("レシピの保存先を開けませんでした。YAMLを使用します。");
+            return yamlRecipeStore;
+        }
+        return sqlRecipeStore;
     }
 
     /**
      * 設定ファイルを保存
+     * メモリ上の状態をスナップショットとして書き出し、ジャーナルを空にする
      */
     public void saveConfig() {
         // YAMLファイルを保存
         if (storageType == StorageType.YAML) {
-            try {
-                itemsConfig.save(itemsFile);
-            } catch (IOException e) {
-                plugin.getLogger().log(Level.SEVERE, "アイテム設定を保存できませんでした", e);
-            }
+            yamlStore.saveSnapshot();
         }
 
         // レシピファイルを保存
-        try {
-            recipesConfig.save(recipesFile);
-        } catch (IOException e) {
-            plugin.getLogger().log(Level.SEVERE, "レシピ設定を保存できませんでした", e);
+        yamlRecipeStore.flush();
+    }
+
+    /**
+     * 書き込みバッファとキューを処理しきってから設定を保存し、接続を閉じる
+     */
+    public void shutdown() {
+        // 移行中であれば中断する（チェックポイントから次回再開できる）
+        MigrationJob job = migrationJob;
+        if (job != null) {
+            migrationJob = null;
+            migrationTarget = null;
+            job.cancel();
+            if (!job.awaitStop(MIGRATION_STOP_TIMEOUT)) {
+                plugin.getLogger().severe("移行ジョブが時間内に停止しませんでした");
+            }
+            yamlStore.close();
         }
 
-        // MySQLの場合は接続を閉じる
-        if (storageType == StorageType.MYSQL && databaseUtil != null) {
-            databaseUtil.disconnect();
+        // データベースのレシピはアイテムの保存先と接続を共有するため、先に書き込みを反映する
+        if (recipeStore != yamlRecipeStore) {
+            recipeStore.close();
         }
+        store.close();
+        storageExecutor.shutdown();
+        yamlRecipeStore.close();
+    }
+
+    /**
+     * バッファとキューに残っている書き込みを全てストレージに反映する
+     */
+    private void flushPendingWrites() {
+        recipeStore.flush();
+        store.flush();
+        storageExecutor.drain();
     }
 
     /**
      * アイテムを保存
+     * データベースの場合は書き込みバッファを通して非同期にまとめて保存される
      * @param itemId アイテムID
      * @param item アイテム
      * @param name アイテム名
+     * @return 保存結果（メインスレッドで完了する）
      */
-    public void saveItem(String itemId, ItemStack item, String name) {
-        if (storageType == StorageType.MYSQL) {
-            // MySQLに保存
-            databaseUtil.saveItem(itemId, item, name);
-        } else {
-            // YAMLに保存
-            // 保存用のセクションがなければ作成
-            if (!itemsConfig.contains("items")) {
-                itemsConfig.createSection("items");
-            }
-
-            // Base64に変換して保存
-            String encodedItem = ItemSerializer.toBase64(item);
-
-            itemsConfig.set("items." + itemId + ".data", encodedItem);
-            itemsConfig.set("items." + itemId + ".name", name);
-
-            saveConfig();
-        }
+    public CompletableFuture<Boolean> saveItem(String itemId, ItemStack item, String name) {
+        markMigrationEdit(itemId);
+        CompletableFuture<Boolean> result = store.save(itemId, item, name);
+        fireChange(CatalogChange.Type.ITEM_SAVED, itemId);
+        return result;
     }
 
     /**
      * アイテムをIDで取得
+     * 初めて取得する場合のみストレージから読み込んでデコードし、以降はキャッシュから取得する
      * @param itemId アイテムID
-     * @return 取得したアイテム、見つからなければnull
+     * @return 取得したアイテムのクローン、見つからなければnull
      */
     public ItemStack getItem(String itemId) {
-        if (storageType == StorageType.MYSQL) {
-            // MySQLから取得
-            return databaseUtil.getItem(itemId);
-        } else {
-            // YAMLから取得
-            if (!itemsConfig.contains("items." + itemId + ".data")) {
-                return null;
-            }
+        return store.getItem(itemId);
+    }
 
-            String encodedItem = itemsConfig.getString("items." + itemId + ".data");
-            return ItemSerializer.fromBase64(encodedItem);
-        }
+    /**
+     * 複数のアイテムをIDで取得
+     * キャッシュにないアイテムはストレージから1度の問い合わせでまとめて読み込む
+     * @param itemIds アイテムIDの一覧
+     * @return 見つかったアイテムIDとItemStack（クローン）のマップ（指定した順）
+     */
+    public Map<String, ItemStack> getItems(Collection<String> itemIds) {
+        return store.getItems(itemIds);
     }
 
     /**
      * アイテムを削除
+     * データベースの場合は書き込みバッファを通して非同期にまとめて削除される
      * @param itemId 削除するアイテムID
+     * @return 削除結果（メインスレッドで完了する）
      */
-    public void removeItem(String itemId) {
-        if (storageType == StorageType.MYSQL) {
-            // MySQLから削除
-            databaseUtil.removeItem(itemId);
-        } else {
-            // YAMLから削除
-            itemsConfig.set("items." + itemId, null);
-            saveConfig();
-        }
+    public CompletableFuture<Boolean> removeItem(String itemId) {
+        markMigrationEdit(itemId);
+        CompletableFuture<Boolean> result = store.remove(itemId);
+        fireChange(CatalogChange.Type.ITEM_REMOVED, itemId);
 
         // アイテムに関連するレシピも削除
         removeRecipesForItem(itemId);
+
+        return result;
+    }
+
+    /**
+     * 現在の保存先へ移行中であれば、移行元の内容で上書きしないようアイテムを記録
+     * @param itemId 編集・削除するアイテムID
+     */
+    private void markMigrationEdit(String itemId) {
+        MigrationTargetStore target = migrationTarget;
+        if (target != null) {
+            target.markEdited(itemId);
+        }
     }
 
     /**
      * 全てのアイテムを取得
-     * @return アイテムIDとItemStackのマップ
+     * 全アイテムをデコードするため、一覧表示にはgetItemSummariesを使用すること
+     * @return アイテムIDとItemStack（クローン）のマップ
      */
     public Map<String, ItemStack> getAllItems() {
-        if (storageType == StorageType.MYSQL) {
-            // MySQLから全アイテム取得
-            return databaseUtil.getAllItems();
-        } else {
-            // YAMLから全アイテム取得
-            Map<String, ItemStack> items = new HashMap<>();
-
-            if (!itemsConfig.contains("items")) {
-                return items;
-            }
+        return store.getAll();
+    }
+
+    /**
+     * 全てのアイテムのメタデータを取得
+     * アイテム本体のデコードは発生しない
+     * @return メタデータのリスト
+     */
+    public List<ItemSummary> getItemSummaries() {
+        return store.getSummaries();
+    }
 
-            Set<String> itemIds = itemsConfig.getConfigurationSection("items").getKeys(false);
-            for (String itemId : itemIds) {
-                String encodedItem = itemsConfig.getString("items." + itemId + ".data");
-                ItemStack item = ItemSerializer.fromBase64(encodedItem);
+    /**
+     * カーソルの次から1ページ分のアイテムのメタデータを取得
+     * 並び順は更新日時の新しい順で、ページサイズ分の走査で取得できる
+     * @param cursor 前のページのカーソル、最初のページの場合はnull
+     * @param limit ページサイズ
+     * @return ページ
+     * @throws IllegalArgumentException カーソルが不正な場合
+     */
+    public ItemPage getItemPage(String cursor, int limit) {
+        return store.getPage(cursor, limit);
+    }
 
-                if (item != null) {
-                    items.put(itemId, item);
-                }
-            }
+    /**
+     * 条件に一致するアイテムのメタデータをカーソルの次から1ページ分取得
+     * 種類・レア度などの索引から候補を引くため、全件の走査やデコードは発生しない
+     * @param query 絞り込み条件
+     * @param cursor 前のページのカーソル、最初のページの場合はnull
+     * @param limit ページサイズ
+     * @return ページ
+     * @throws IllegalArgumentException カーソルが不正な場合
+     */
+    public ItemPage queryItems(ItemQuery query, String cursor, int limit) {
+        return store.query(query, cursor, limit);
+    }
 
-            return items;
-        }
+    /**
+     * ページ番号を指定して1ページ分のアイテムのメタデータを取得
+     * カーソルがわからない場合（コマンドでページを直接指定した場合など）に使用する
+     * @param pageIndex ページ番号（0から始まる）
+     * @param pageSize ページサイズ
+     * @return ページ
+     */
+    public ItemPage getItemPageAt(int pageIndex, int pageSize) {
+        return store.getPageAt(pageIndex, pageSize);
+    }
+
+    /**
+     * アイテムのメタデータを取得
+     * @param itemId アイテムID
+     * @return メタデータ、見つからなければnull
+     */
+    public ItemSummary getItemSummary(String itemId) {
+        return store.getSummary(itemId);
+    }
+
+    /**
+     * 全てのアイテムIDを取得
+     * @return アイテムIDのセット
+     */
+    public Set<String> getItemIds() {
+        return store.getItemIds();
+    }
+
+    /**
+     * 保存されているアイテム数を取得
+     * @return アイテム数
+     */
+    public int getItemCount() {
+        return store.count();
+    }
+
+    /**
+     * アイテム一覧のバージョンを取得
+     * アイテムの保存・削除や再読み込みのたびに変わる
+     * @return バージョン
+     */
+    public long getCatalogVersion() {
+        return store.getCache().getVersion();
+    }
+
+    /**
+     * 現在のアイテムカタログのスナップショットを取得
+     * スナップショットは変更されないため、メインスレッド以外からもロックなしで読み取れる
+     * @return スナップショット
+     */
+    public CatalogSnapshot getCatalogSnapshot() {
+        return store.getSnapshot();
+    }
+
+    /**
+     * アイテムのリビジョンを取得
+     * 保存されるたびに増加するため、アイテムごとのレスポンスのキャッシュが最新かの判定に使用する
+     * @param itemId アイテムID
+     * @return リビジョン、アイテムが存在しない場合は-1
+     */
+    public long getItemRevision(String itemId) {
+        return store.getCache().getRevision(itemId);
     }
 
     /**
@@ -227,34 +421,9 @@ public class ConfigManager {
      * @param recipe 保存するレシピ
      */
     public void saveRecipe(CustomRecipe recipe) {
-        // 保存用のセクションがなければ作成
-        if (!recipesConfig.contains("recipes")) {
-            recipesConfig.createSection("recipes");
-        }
-
-        // レシピIDのセクションを作成
-        String recipeId = recipe.getRecipeId();
-
-        // 結果アイテムIDを保存
-        recipesConfig.set("recipes." + recipeId + ".resultItemId", recipe.getResultItemId());
-
-        // 材料を保存
-        ItemStack[] ingredients = recipe.getIngredients();
-        for (int i = 0; i < ingredients.length; i++) {
-            if (ingredients[i] != null && ingredients[i].getType() != org.bukkit.Material.AIR) {
-                // Base64に変換して保存
-                String encodedItem = ItemSerializer.toBase64(ingredients[i]);
-                recipesConfig.set("recipes." + recipeId + ".ingredients." + i, encodedItem);
-            } else {
-                recipesConfig.set("recipes." + recipeId + ".ingredients." + i, null);
-            }
-        }
-
-        try {
-            recipesConfig.save(recipesFile);
-        } catch (IOException e) {
-            plugin.getLogger().log(Level.SEVERE, "レシピ設定を保存できませんでした", e);
-        }
+        recipeStore.save(recipe);
+        recipeCatalog.put(recipe);
+        fireChange(CatalogChange.Type.RECIPE_SAVED, recipe.getRecipeId());
     }
 
     /**
@@ -263,37 +432,20 @@ public class ConfigManager {
      * @return 取得したレシピ、見つからなければnull
      */
     public CustomRecipe getRecipe(String recipeId) {
-        if (!recipesConfig.contains("recipes." + recipeId)) {
-            return null;
-        }
-
-        String resultItemId = recipesConfig.getString("recipes." + recipeId + ".resultItemId");
-
-        if (resultItemId == null) {
-            return null;
-        }
+        return recipeCatalog.get(recipeId);
+    }
 
-        // 材料を読み込み
-        ItemStack[] ingredients = new ItemStack[9];
-        ConfigurationSection ingredientsSection = recipesConfig.getConfigurationSection("recipes." + recipeId + ".ingredients");
-
-        if (ingredientsSection != null) {
-            for (String key : ingredientsSection.getKeys(false)) {
-                try {
-                    int index = Integer.parseInt(key);
-                    if (index >= 0 && index < 9) {
-                        String encodedItem = ingredientsSection.getString(key);
-                        if (encodedItem != null) {
-                            ingredients[index] = ItemSerializer.fromBase64(encodedItem);
-                        }
-                    }
-                } catch (NumberFormatException e) {
-                    plugin.getLogger().warning("レシピの材料インデックスが無効です: " + key);
-                }
-            }
+    /**
+     * レシピの保存先からカタログを読み込み直す
+     * 全てのレシピの材料をここで1度だけデコードする
+     */
+    private void loadRecipeCatalog() {
+        List<CustomRecipe> recipes = recipeStore.loadAll();
+        if (recipes == null) {
+            plugin.getLogger().warning(recipeStore.getName() + "からレシピを読み込めませんでした");
+            recipes = Collections.emptyList();
         }
-
-        return new CustomRecipe(recipeId, resultItemId, ingredients);
+        recipeCatalog.load(recipes);
     }
 
     /**
@@ -301,13 +453,9 @@ public class ConfigManager {
      * @param recipeId 削除するレシピID
      */
     public void removeRecipe(String recipeId) {
-        recipesConfig.set("recipes." + recipeId, null);
-
-        try {
-            recipesConfig.save(recipesFile);
-        } catch (IOException e) {
-            plugin.getLogger().log(Level.SEVERE, "レシピ設定を保存できませんでした", e);
-        }
+        recipeStore.remove(recipeId);
+        recipeCatalog.remove(recipeId);
+        fireChange(CatalogChange.Type.RECIPE_REMOVED, recipeId);
     }
 
     /**
@@ -315,34 +463,8 @@ public class ConfigManager {
      * @param itemId アイテムID
      */
     public void removeRecipesForItem(String itemId) {
-        if (!recipesConfig.contains("recipes")) {
-            return;
-        }
-
-        ConfigurationSection recipesSection = recipesConfig.getConfigurationSection("recipes");
-        if (recipesSection == null) {
-            return;
-        }
-
-        List<String> toRemove = new ArrayList<>();
-
-        for (String recipeId : recipesSection.getKeys(false)) {
-            String resultId = recipesConfig.getString("recipes." + recipeId + ".resultItemId");
-            if (itemId.equals(resultId)) {
-                toRemove.add(recipeId);
-            }
-        }
-
-        for (String recipeId : toRemove) {
-            recipesConfig.set("recipes." + recipeId, null);
-        }
-
-        if (!toRemove.isEmpty()) {
-            try {
-                recipesConfig.save(recipesFile);
-            } catch (IOException e) {
-                plugin.getLogger().log(Level.SEVERE, "レシピ設定を保存できませんでした", e);
-            }
+        for (CustomRecipe recipe : recipeCatalog.getByResult(itemId)) {
+            removeRecipe(recipe.getRecipeId());
         }
     }
 
@@ -352,28 +474,16 @@ public class ConfigManager {
      * @return カスタムレシピのリスト
      */
     public List<CustomRecipe> getRecipesForItem(String itemId) {
-        List<CustomRecipe> recipes = new ArrayList<>();
-
-        if (!recipesConfig.contains("recipes")) {
-            return recipes;
-        }
-
-        ConfigurationSection recipesSection = recipesConfig.getConfigurationSection("recipes");
-        if (recipesSection == null) {
-            return recipes;
-        }
-
-        for (String recipeId : recipesSection.getKeys(false)) {
-            String resultId = recipesConfig.getString("recipes." + recipeId + ".resultItemId");
-            if (itemId.equals(resultId)) {
-                CustomRecipe recipe = getRecipe(recipeId);
-                if (recipe != null) {
-                    recipes.add(recipe);
-                }
-            }
-        }
+        return recipeCatalog.getByResult(itemId);
+    }
 
-        return recipes;
+    /**
+     * 指定されたアイテムを材料に使う全てのレシピを取得
+     * @param itemId 材料のアイテムID
+     * @return カスタムレシピのリスト
+     */
+    public List<CustomRecipe> getRecipesUsingItem(String itemId) {
+        return recipeCatalog.getByIngredient(itemId);
     }
 
     /**
@@ -381,68 +491,125 @@ public class ConfigManager {
      * @return カスタムレシピのリスト
      */
     public List<CustomRecipe> getAllRecipes() {
-        List<CustomRecipe> recipes = new ArrayList<>();
-
-        if (!recipesConfig.contains("recipes")) {
-            return recipes;
-        }
-
-        ConfigurationSection recipesSection = recipesConfig.getConfigurationSection("recipes");
-        if (recipesSection == null) {
-            return recipes;
-        }
-
-        for (String recipeId : recipesSection.getKeys(false)) {
-            CustomRecipe recipe = getRecipe(recipeId);
-            if (recipe != null) {
-                recipes.add(recipe);
-            }
-        }
-
-        return recipes;
+        return recipeCatalog.getAll();
     }
 
+
     /**
      * 設定をリロード
      */
     public void reloadConfig() {
+        // 未処理の書き込みを反映してから読み直す
+        flushPendingWrites();
+
         // プラグイン設定をリロード
         plugin.reloadConfig();
+        loadStorageFormat();
 
-        // YAMLファイルをリロード
-        itemsConfig = YamlConfiguration.loadConfiguration(itemsFile);
-        recipesConfig = YamlConfiguration.loadConfiguration(recipesFile);
+        // レシピファイルをリロード
+        yamlRecipeStore.reload();
 
         // ストレージタイプを更新
         String storageTypeStr = plugin.getConfig().getString("storage.type", "YAML");
+        StorageType newStorageType;
         try {
-            StorageType newStorageType = StorageType.valueOf(storageTypeStr.toUpperCase());
-
-            // ストレージタイプが変わった場合
-            if (newStorageType != storageType) {
-                plugin.getLogger().info("ストレージタイプが変更されました: " + storageType + " -> " + newStorageType);
-
-                // MySQLに変更された場合は接続を初期化
-                if (newStorageType == StorageType.MYSQL) {
-                    if (databaseUtil == null) {
-                        databaseUtil = new DatabaseUtil(plugin);
-                    } else {
-                        databaseUtil.disconnect(); // 既存の接続を閉じる
-                    }
-
-                    // 接続テスト
-                    if (!databaseUtil.connect()) {
-                        plugin.getLogger().warning("MySQLへの接続に失敗しました。YAMLストレージを維持します。");
-                        return; // ストレージタイプを変更しない
-                    }
-                }
-
-                this.storageType = newStorageType;
-            }
-
+            newStorageType = StorageType.valueOf(storageTypeStr.toUpperCase());
         } catch (IllegalArgumentException e) {
             plugin.getLogger().warning("無効なストレージタイプ: " + storageTypeStr + "、現在の設定を維持します");
+            newStorageType = storageType;
+        }
+
+        // ストレージタイプが変わっていなければ読み直すだけ
+        // 移行中は保存先を入れ替えない
+        if (isMigrating()) {
+            plugin.getLogger().warning("移行中のため、ストレージタイプの変更は移行完了後に再読み込みしてください");
+            newStorageType = storageType;
+        }
+        if (newStorageType == storageType) {
+            store.reload();
+            loadRecipeCatalog();
+            fireChange(CatalogChange.Type.RELOADED, null);
+            return;
+        }
+
+        plugin.getLogger().info("ストレージタイプが変更されました: " + storageType + " -> " + newStorageType);
+
+        // 新しい保存先を先に開き、開けなかった場合は現在の保存先を維持する
+        CachingItemStore newStore = openStore(newStorageType);
+        if (newStore == null) {
+            plugin.getLogger().warning(newStorageType + "への接続に失敗しました。" +
+                    storageType + "ストレージを維持します。");
+            store.reload();
+            loadRecipeCatalog();
+            fireChange(CatalogChange.Type.RELOADED, null);
+            return;
         }
+
+        // 既存の書き込みバッファと接続を閉じる（レシピは接続を共有するため先に閉じる）
+        if (recipeStore != yamlRecipeStore) {
+            recipeStore.close();
+        }
+        store.close();
+        store = newStore;
+        storageType = newStorageType;
+
+        // レシピも新しいストレージタイプから読み込み直す
+        recipeStore = openRecipeStore();
+        loadRecipeCatalog();
+        fireChange(CatalogChange.Type.RELOADED, null);
+    }
+
+    /**
+     * アイテム・レシピの変更の購読者を登録
+     * 購読者は変更を行ったスレッド（通常はメインスレッド）で呼び出されるため、重い処理は行わないこと
+     * @param listener 購読者
+     */
+    public void addChangeListener(Consumer<CatalogChange> listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * アイテム・レシピの変更の購読を解除
+     * @param listener 購読者
+     */
+    public void removeChangeListener(Consumer<CatalogChange> listener) {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * 変更を購読者に通知
+     * @param type 変更の種類
+     * @param id 変更されたアイテムIDまたはレシピID
+     */
+    private void fireChange(CatalogChange.Type type, String id) {
+        if (changeListeners.isEmpty()) {
+            return;
+        }
+
+        CatalogChange change = new CatalogChange(type, id, System.currentTimeMillis());
+        for (Consumer<CatalogChange> listener : changeListeners) {
+            try {
+                listener.accept(change);
+            } catch (RuntimeException e) {
+                plugin.getLogger().log(Level.WARNING, "変更の通知中にエラーが発生しました", e);
+            }
+        }
+    }
+
+    /**
+     * 現在のアイテム保存先を取得
+     * @return 保存先
+     */
+    public CachingItemStore getItemStore() {
+        return store;
+    }
+
+    /**
+     * ストレージ書き込みキューを取得
+     * @return 書き込みキュー
+     */
+    public StorageExecutor getStorageExecutor() {
+        return storageExecutor;
     }
 
     /**
@@ -454,86 +621,170 @@ public class ConfigManager {
     }
 
     /**
-     * アイテムをYAMLからMySQLに移行
-     * @return 移行したアイテム数
+     * 保存済みの全アイテムとレシピを現在の保存形式で書き直す
+     * 旧形式のデータは読み込み時に自動判別されるため、変換は任意
+     * データベースへの書き込みは書き込みキューで行い、メインスレッドでは完了を待たない
+     * @return 変換したアイテム数（メインスレッドで完了する）
      */
-    public int migrateFromYamlToMysql() {
-        if (storageType != StorageType.MYSQL || databaseUtil == null) {
-            plugin.getLogger().warning("MySQLが有効ではないため、移行はできません");
-            return 0;
+    public CompletableFuture<Integer> convertStorageFormat() {
+        if (isMigrating()) {
+            plugin.getLogger().warning("移行中のため、変換はできません");
+            return CompletableFuture.completedFuture(0);
         }
 
-        int count = 0;
+        // 書き直すと並び順が変わるため、先に対象を確定させてから一定件数ずつ書き込む
+        // 書き込みキューは順番に実行されるため、未処理の書き込みより後に書き込まれる
+        List<ItemSummary> summaries = store.getSummaries();
+        List<CompletableFuture<Integer>> batches = new ArrayList<>();
 
-        // YAMLから全アイテムを読み込み
-        FileConfiguration yamlConfig = YamlConfiguration.loadConfiguration(itemsFile);
-
-        if (!yamlConfig.contains("items")) {
-            return 0;
+        for (int from = 0; from < summaries.size(); from += MIGRATION_BATCH_SIZE) {
+            batches.add(copyBatch(store, store, summaries.subList(from, Math.min(from + MIGRATION_BATCH_SIZE, summaries.size()))));
         }
 
-        Set<String> itemIds = yamlConfig.getConfigurationSection("items").getKeys(false);
-        for (String itemId : itemIds) {
-            String encodedItem = yamlConfig.getString("items." + itemId + ".data");
-            String name = yamlConfig.getString("items." + itemId + ".name", "Unknown Item");
+        // レシピの材料も書き直す
+        recipeStore.saveAll(getAllRecipes());
+
+        return CompletableFuture.allOf(batches.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            int count = 0;
+            for (CompletableFuture<Integer> batch : batches) {
+                count += batch.join();
+            }
 
-            ItemStack item = ItemSerializer.fromBase64(encodedItem);
+            fireChange(CatalogChange.Type.RELOADED, null);
+            plugin.getLogger().info(count + " 個のアイテムを " + ItemSerializer.getFormat() + " 形式に変換しました");
+            return count;
+        });
+    }
 
-            if (item != null) {
-                // MySQLに保存
-                if (databaseUtil.saveItem(itemId, item, name)) {
-                    count++;
-                }
+    /**
+     * アイテムをYAMLから現在のデータベース (MySQLまたはH2) にバックグラウンドで移行
+     * @return 開始した移行ジョブ、開始できない場合はnull
+     */
+    public MigrationJob migrateFromYamlToDatabase() {
+        if (!storageType.isDatabase()) {
+            plugin.getLogger().warning("データベースが有効ではないため、移行はできません");
+            return null;
+        }
+
+        // キャッシュを経由せず、計測を挟んだデータベースに書き込みキューを通して書き込む
+        // 移行中に編集・削除されたアイテムは移行元の内容で上書きしない
+        MigrationTargetStore target = new MigrationTargetStore(store.unwrap(MetricsItemStore.class), storageExecutor);
+        return startMigration(yamlStore, target, true, () -> {
+            List<CustomRecipe> recipes = yamlRecipeStore.loadAll();
+            recipeStore.saveAll(recipes);
+            for (CustomRecipe recipe : recipes) {
+                recipeCatalog.put(recipe);
             }
+            return recipes.size();
+        });
+    }
+
+    /**
+     * アイテムを現在のデータベース (MySQLまたはH2) からYAMLにバックグラウンドで移行
+     * @return 開始した移行ジョブ、開始できない場合はnull
+     */
+    public MigrationJob migrateFromDatabaseToYaml() {
+        if (!storageType.isDatabase()) {
+            plugin.getLogger().warning("データベースが有効ではないため、移行はできません");
+            return null;
         }
 
-        return count;
+        // キャッシュにデコード済みのアイテムを溜めないよう、データベースから直接読み出す
+        return startMigration(store.unwrap(MetricsItemStore.class), yamlStore, false, () -> {
+            List<CustomRecipe> recipes = getAllRecipes();
+            yamlRecipeStore.saveAll(recipes);
+            return recipes.size();
+        });
     }
 
     /**
-     * アイテムをMySQLからYAMLに移行
-     * @return 移行したアイテム数
+     * 移行ジョブを開始
+     * 移行に使うYAMLは一時的に開き、完了または中断した時点で保存して閉じる
+     * @param source 移行元
+     * @param target 移行先
+     * @param reloadCache 完了後にキャッシュを読み直す場合true（現在の保存先に書き込んだ場合）
+     * @param copyRecipes レシピを移行先に書き込み、件数を返す処理（件数が少ないため開始時にまとめて行う）
+     * @return 開始した移行ジョブ、既に移行中の場合はnull
      */
-    public int migrateFromMysqlToYaml() {
-        if (databaseUtil == null) {
-            plugin.getLogger().warning("MySQLが初期化されていないため、移行はできません");
-            return 0;
+    private MigrationJob startMigration(ItemStore source, ItemStore target, boolean reloadCache,
+                                        Supplier<Integer> copyRecipes) {
+        if (isMigrating()) {
+            plugin.getLogger().warning("既に移行中です: " + migrationJob.getDescription());
+            return null;
         }
 
-        int count = 0;
+        // 未処理の書き込みを反映してから移行する
+        flushPendingWrites();
+        yamlStore.open();
 
-        // MySQLから全アイテムを取得
-        Map<String, ItemStack> items = databaseUtil.getAllItems();
+        int recipeCount = copyRecipes.get();
+        plugin.getLogger().info(recipeCount + " 個のレシピを" + target.getName() + "に移行しました");
 
-        // YAMLセクションを初期化
-        if (!itemsConfig.contains("items")) {
-            itemsConfig.createSection("items");
-        }
+        MigrationJob job = new MigrationJob(plugin, source, target,
+                new File(plugin.getDataFolder(), "migration-checkpoint.yml"));
+        migrationJob = job;
+        migrationTarget = target instanceof MigrationTargetStore migrating ? migrating : null;
 
-        // 各アイテムをYAMLに保存
-        for (Map.Entry<String, ItemStack> entry : items.entrySet()) {
-            String itemId = entry.getKey();
-            ItemStack item = entry.getValue();
+        job.start().whenComplete((count, error) -> {
+            // 停止処理で既に後片付けされている場合は何もしない
+            if (migrationJob != job) {
+                return;
+            }
+            migrationJob = null;
+            migrationTarget = null;
+            yamlStore.close();
+
+            if (reloadCache) {
+                // 移行中の編集を反映してから読み直す
+                flushPendingWrites();
+                store.reload();
+                fireChange(CatalogChange.Type.RELOADED, null);
+            }
+        });
+        return job;
+    }
 
-            String name = item.getItemMeta().hasDisplayName() ?
-                    item.getItemMeta().getDisplayName() : item.getType().name();
+    /**
+     * 移行中か
+     * @return 移行ジョブが実行中の場合true
+     */
+    public boolean isMigrating() {
+        return migrationJob != null;
+    }
 
-            // Base64に変換して保存
-            String encodedItem = ItemSerializer.toBase64(item);
+    /**
+     * 実行中の移行ジョブを取得
+     * @return 移行ジョブ、移行中でなければnull
+     */
+    public MigrationJob getMigrationJob() {
+        return migrationJob;
+    }
 
-            itemsConfig.set("items." + itemId + ".data", encodedItem);
-            itemsConfig.set("items." + itemId + ".name", name);
+    /**
+     * メタデータに対応するアイテムを読み出し、1回のまとめ書きで書き込む
+     * @param source 読み出し元
+     * @param target 書き込み先
+     * @param summaries 対象のメタデータ
+     * @return 書き込んだアイテム数（失敗した場合は0、メインスレッドで完了する）
+     */
+    private CompletableFuture<Integer> copyBatch(ItemStore source, ItemStore target, List<ItemSummary> summaries) {
+        if (summaries.isEmpty()) {
+            return CompletableFuture.completedFuture(0);
+        }
 
-            count++;
+        List<String> itemIds = new ArrayList<>(summaries.size());
+        Map<String, String> names = new HashMap<>();
+        for (ItemSummary summary : summaries) {
+            itemIds.add(summary.getItemId());
+            names.put(summary.getItemId(), summary.getName());
         }
 
-        // 設定を保存
-        try {
-            itemsConfig.save(itemsFile);
-        } catch (IOException e) {
-            plugin.getLogger().log(Level.SEVERE, "アイテム設定の保存に失敗しました", e);
+        Map<String, ItemStack> items = new LinkedHashMap<>(source.getItems(itemIds));
+        if (items.isEmpty()) {
+            return CompletableFuture.completedFuture(0);
         }
 
-        return count;
+        return target.writeBatchAsync(items, names, Collections.emptyList())
+                .handle((success, error) -> error == null && Boolean.TRUE.equals(success) ? items.size() : 0);
     }
-}
\ No newline at end of file
+}
@@ -3,25 +3,45 @@ package jp.tproject.customItemCreator.util;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import jp.tproject.customItemCreator.CustomItemCreator;
+import jp.tproject.customItemCreator.model.CustomRecipe;
+import jp.tproject.customItemCreator.model.ItemPage;
+import jp.tproject.customItemCreator.model.ItemSummary;
+import jp.tproject.customItemCreator.model.Rarity;
+import org.bukkit.Material;
 import org.bukkit.inventory.ItemStack;
 
+import java.io.File;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.logging.Level;
 
 /**
- * MySQL接続とアイテムデータの保存・取得を管理するユーティリティクラス
+ * データベース接続とアイテムデータの保存・取得を管理するユーティリティクラス
  * HikariCPを使用したコネクションプール実装
+ * MySQLのほか、外部サーバー不要の組み込みデータベースとしてH2（MySQL互換モード）に対応する
  */
 public class DatabaseUtil {
 
+    // IN句で一度に指定するIDの最大数
+    private static final int MULTI_GET_CHUNK_SIZE = 500;
+
     private final CustomItemCreator plugin;
+    private final ConfigManager.StorageType type;
     private HikariDataSource dataSource;
     private String tablePrefix;
 
     // データベース接続情報
+    private String h2File;
     private String host;
     private int port;
     private String database;
@@ -36,9 +56,11 @@ public class DatabaseUtil {
     /**
      * データベースユーティリティを初期化
      * @param plugin プラグインインスタンス
+     * @param type 接続するデータベースの種類 (MYSQL または H2)
      */
-    public DatabaseUtil(CustomItemCreator plugin) {
+    public DatabaseUtil(CustomItemCreator plugin, ConfigManager.StorageType type) {
         this.plugin = plugin;
+        this.type = type;
         loadConfig();
     }
 
@@ -46,6 +68,20 @@ public class DatabaseUtil {
      * 設定ファイルから接続情報を読み込み
      */
     private void loadConfig() {
+        if (type == ConfigManager.StorageType.H2) {
+            this.h2File = plugin.getConfig().getString("storage.h2.file", "items-db");
+            this.tablePrefix = plugin.getConfig().getString("storage.h2.table-prefix", "customitem_");
+            this.username = "sa";
+            this.password = "";
+
+            // 組み込みデータベースのため小さなプールで十分
+            this.poolSize = plugin.getConfig().getInt("storage.h2.pool-size", 4);
+            this.connectionTimeout = plugin.getConfig().getLong("storage.mysql.connection-timeout", 30000);
+            this.idleTimeout = plugin.getConfig().getLong("storage.mysql.idle-timeout", 600000);
+            this.maxLifetime = plugin.getConfig().getLong("storage.mysql.max-lifetime", 1800000);
+            return;
+        }
+
         this.host = plugin.getConfig().getString("storage.mysql.host", "localhost");
         this.port = plugin.getConfig().getInt("storage.mysql.port", 3306);
         this.database = plugin.getConfig().getString("storage.mysql.database", "minecraft");
@@ -76,14 +112,13 @@ public class DatabaseUtil {
             HikariConfig config = new HikariConfig();
 
             // JDBC接続URL
-            String jdbcUrl = "jdbc:mysql://" + host + ":" + port + "/" + database;
-            if (!useSSL) {
-                jdbcUrl += "?useSSL=false";
-            }
-
-            config.setJdbcUrl(jdbcUrl);
+            config.setJdbcUrl(buildJdbcUrl());
             config.setUsername(username);
             config.setPassword(password);
+            if (type == ConfigManager.StorageType.H2) {
+                // プラグインのクラスローダーからドライバーを読み込む
+                config.setDriverClassName("org.h2.Driver");
+            }
 
             // コネクションプール設定
             config.setPoolName("CustomItemCreator-HikariPool");
@@ -92,17 +127,10 @@ public class DatabaseUtil {
             config.setIdleTimeout(idleTimeout);
             config.setMaxLifetime(maxLifetime);
 
-            // 追加設定
-            config.addDataSourceProperty("cachePrepStmts", "true");
-            config.addDataSourceProperty("prepStmtCacheSize", "250");
-            config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
-            config.addDataSourceProperty("useServerPrepStmts", "true");
-            config.addDataSourceProperty("useLocalSessionState", "true");
-            config.addDataSourceProperty("rewriteBatchedStatements", "true");
-            config.addDataSourceProperty("cacheResultSetMetadata", "true");
-            config.addDataSourceProperty("cacheServerConfiguration", "true");
-            config.addDataSourceProperty("elideSetAutoCommits", "true");
-            config.addDataSourceProperty("maintainTimeStats", "false");
+            // 追加設定 (MySQLドライバー用)
+            if (type == ConfigManager.StorageType.MYSQL) {
+                addMysqlProperties(config);
+            }
 
             // データソース初期化
             dataSource = new HikariDataSource(config);
@@ -110,25 +138,77 @@ public class DatabaseUtil {
             // テーブルの初期化
             initTables();
 
-            plugin.getLogger().info("MySQL データベースに接続しました (HikariCP)");
+            plugin.getLogger().info(getDisplayName() + " データベースに接続しました (HikariCP)");
             return true;
 
         } catch (Exception e) {
-            plugin.getLogger().log(Level.SEVERE, "MySQLデータベースへの接続に失敗しました", e);
+            plugin.getLogger().log(Level.SEVERE, getDisplayName() + "データベースへの接続に失敗しました", e);
             return false;
         }
     }
 
+    /**
+     * JDBC接続URLを作成
+     * @return 接続URL
+     */
+    private String buildJdbcUrl() {
+        if (type == ConfigManager.StorageType.H2) {
+            // MySQL互換モードで開き、同じSQLをそのまま使えるようにする
+            File file = new File(plugin.getDataFolder(), h2File);
+            return "jdbc:h2:file:" + file.getAbsolutePath() +
+                    ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE";
+        }
+
+        String jdbcUrl = "jdbc:mysql://" + host + ":" + port + "/" + database;
+        if (!useSSL) {
+            jdbcUrl += "?useSSL=false";
+        }
+        return jdbcUrl;
+    }
+
+    /**
+     * MySQLドライバー向けの接続プロパティを設定
+     * @param config HikariCP設定
+     */
+    private void addMysqlProperties(HikariConfig config) {
+        config.addDataSourceProperty("cachePrepStmts", "true");
+            config.addDataSourceProperty("prepStmtCacheSize", "250");
+            config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+            config.addDataSourceProperty("useServerPrepStmts", "true");
+            config.addDataSourceProperty("useLocalSessionState", "true");
+            config.addDataSourceProperty("rewriteBatchedStatements", "true");
+            config.addDataSourceProperty("cacheResultSetMetadata", "true");
+            config.addDataSourceProperty("cacheServerConfiguration", "true");
+            config.addDataSourceProperty("elideSetAutoCommits", "true");
+            config.addDataSourceProperty("maintainTimeStats", "false");
+    }
+
     /**
      * データベース接続を閉じる
      */
     public void disconnect() {
         if (dataSource != null && !dataSource.isClosed()) {
             dataSource.close();
-            plugin.getLogger().info("MySQL データベース接続を閉じました");
+            plugin.getLogger().info(getDisplayName() + " データベース接続を閉じました");
         }
     }
 
+    /**
+     * 接続するデータベースの種類を取得
+     * @return データベースの種類
+     */
+    public ConfigManager.StorageType getType() {
+        return type;
+    }
+
+    /**
+     * ログ表示用のデータベース名を取得
+     * @return データベース名
+     */
+    private String getDisplayName() {
+        return type == ConfigManager.StorageType.H2 ? "H2" : "MySQL";
+    }
+
     /**
      * コネクションを取得
      * @return データベース接続
@@ -152,18 +232,171 @@ public class DatabaseUtil {
             String createItemsTable = "CREATE TABLE IF NOT EXISTS " + tablePrefix + "items (" +
                     "id VARCHAR(36) PRIMARY KEY, " +
                     "name VARCHAR(255) NOT NULL, " +
-                    "data MEDIUMTEXT NOT NULL, " +
+                    "material VARCHAR(64) NULL, " +
+                    "rarity VARCHAR(16) NULL, " +
+                    "custom_model_data INT NOT NULL DEFAULT 0, " +
+                    "amount INT NOT NULL DEFAULT 1, " +
+                    "data MEDIUMTEXT NULL, " +
+                    "data_blob MEDIUMBLOB NULL, " +
                     "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
-                    "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP" +
-                    ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;";
+                    "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP, " +
+                    "INDEX idx_updated_id (updated_at DESC, id)" +
+                    ")" + (type == ConfigManager.StorageType.MYSQL ? " ENGINE=InnoDB DEFAULT CHARSET=utf8mb4" : "");
 
             statement.execute(createItemsTable);
 
+            // 旧バージョンのテーブルにバイナリ列を追加
+            if (!hasColumn(conn, tablePrefix + "items", "data_blob")) {
+                statement.execute("ALTER TABLE " + tablePrefix + "items MODIFY data MEDIUMTEXT NULL");
+                statement.execute("ALTER TABLE " + tablePrefix + "items ADD COLUMN data_blob MEDIUMBLOB NULL");
+                plugin.getLogger().info("アイテムテーブルにバイナリ列を追加しました");
+            }
+
+            // 旧バージョンのテーブルにメタデータ列を追加（値は読み込み時に補完する）
+            if (!hasColumn(conn, tablePrefix + "items", "material")) {
+                statement.execute("ALTER TABLE " + tablePrefix + "items " +
+                        "ADD COLUMN material VARCHAR(64) NULL AFTER name, " +
+                        "ADD COLUMN rarity VARCHAR(16) NULL AFTER material, " +
+                        "ADD COLUMN custom_model_data INT NOT NULL DEFAULT 0 AFTER rarity, " +
+                        "ADD COLUMN amount INT NOT NULL DEFAULT 1 AFTER custom_model_data");
+                plugin.getLogger().info("アイテムテーブルにメタデータ列を追加しました");
+            }
+
+            // 旧バージョンのテーブルにページ取得用のインデックスを追加
+            if (!hasIndex(conn, tablePrefix + "items", "idx_updated_id")) {
+                statement.execute("CREATE INDEX idx_updated_id ON " + tablePrefix + "items (updated_at DESC, id)");
+                plugin.getLogger().info("アイテムテーブルにインデックスを追加しました");
+            }
+
+            // レシピを保存するテーブル（結果アイテムから引けるようにする）
+            statement.execute("CREATE TABLE IF NOT EXISTS " + tablePrefix + "recipes (" +
+                    "id VARCHAR(64) PRIMARY KEY, " +
+                    "result_item_id VARCHAR(36) NOT NULL, " +
+                    "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP, " +
+                    "INDEX idx_result_item (result_item_id)" +
+                    ")" + (type == ConfigManager.StorageType.MYSQL ? " ENGINE=InnoDB DEFAULT CHARSET=utf8mb4" : ""));
+
+            // レシピの材料を1マス1行で保存するテーブル（材料はハッシュで参照する）
+            statement.execute("CREATE TABLE IF NOT EXISTS " + tablePrefix + "recipe_ingredients (" +
+                    "recipe_id VARCHAR(64) NOT NULL, " +
+                    "slot TINYINT NOT NULL, " +
+                    "ingredient_hash CHAR(64) NULL, " +
+                    "data MEDIUMTEXT NULL, " +
+                    "data_blob MEDIUMBLOB NULL, " +
+                    "PRIMARY KEY (recipe_id, slot)" +
+                    ")" + (type == ConfigManager.StorageType.MYSQL ? " ENGINE=InnoDB DEFAULT CHARSET=utf8mb4" : ""));
+
+            // 旧バージョンのテーブルに材料の参照列を追加（既存の行は直接保存したデータをそのまま読む）
+            if (!hasColumn(conn, tablePrefix + "recipe_ingredients", "ingredient_hash")) {
+                statement.execute("ALTER TABLE " + tablePrefix + "recipe_ingredients " +
+                        "ADD COLUMN ingredient_hash CHAR(64) NULL AFTER slot");
+                plugin.getLogger().info("レシピ材料テーブルに参照列を追加しました");
+            }
+
+            // 使われなくなった材料を判定するため、参照している行をハッシュから引けるようにする
+            if (!hasIndex(conn, tablePrefix + "recipe_ingredients", "idx_ingredient_hash")) {
+                statement.execute("CREATE INDEX idx_ingredient_hash ON " + tablePrefix + "recipe_ingredients (ingredient_hash)");
+                plugin.getLogger().info("レシピ材料テーブルにインデックスを追加しました");
+            }
+
+            // 材料を内容のハッシュごとに1度だけ保存するテーブル
+            statement.execute("CREATE TABLE IF NOT EXISTS " + tablePrefix + "ingredients (" +
+                    "hash CHAR(64) PRIMARY KEY, " +
+                    "data MEDIUMTEXT NULL, " +
+                    "data_blob MEDIUMBLOB NULL" +
+                    ")" + (type == ConfigManager.StorageType.MYSQL ? " ENGINE=InnoDB DEFAULT CHARSET=utf8mb4" : ""));
+
         } catch (SQLException e) {
             plugin.getLogger().log(Level.SEVERE, "テーブルの初期化に失敗しました", e);
         }
     }
 
+    /**
+     * テーブルに列が存在するか確認
+     * @param conn データベース接続
+     * @param table テーブル名
+     * @param column 列名
+     * @return 存在すればtrue
+     * @throws SQLException 取得エラーの場合
+     */
+    private boolean hasColumn(Connection conn, String table, String column) throws SQLException {
+        DatabaseMetaData metaData = conn.getMetaData();
+        try (ResultSet columns = metaData.getColumns(conn.getCatalog(), null, table, null)) {
+            while (columns.next()) {
+                if (column.equalsIgnoreCase(columns.getString("COLUMN_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * テーブルにインデックスが存在するか確認
+     * @param conn データベース接続
+     * @param table テーブル名
+     * @param index インデックス名
+     * @return 存在すればtrue
+     * @throws SQLException 取得エラーの場合
+     */
+    private boolean hasIndex(Connection conn, String table, String index) throws SQLException {
+        DatabaseMetaData metaData = conn.getMetaData();
+        try (ResultSet indexes = metaData.getIndexInfo(conn.getCatalog(), null, table, false, false)) {
+            while (indexes.next()) {
+                if (index.equalsIgnoreCase(indexes.getString("INDEX_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * アイテムのデータを現在の保存形式で列に設定
+     * バイナリ形式の場合はdata_blob、旧形式の場合はdataに保存し、もう一方はNULLにする
+     * @param statement ステートメント
+     * @param index data列のパラメータ位置（data_blobは次の位置）
+     * @param encodedItem ItemSerializer.toBytesでエンコードされたデータ
+     * @throws SQLException 設定エラーの場合
+     */
+    private void bindItemData(PreparedStatement statement, int index, byte[] encodedItem) throws SQLException {
+        if (ItemSerializer.getFormat() == ItemSerializer.Format.BINARY) {
+            statement.setNull(index, Types.VARCHAR);
+            statement.setBytes(index + 1, encodedItem);
+        } else {
+            statement.setString(index, Base64.getEncoder().encodeToString(encodedItem));
+            statement.setNull(index + 1, Types.BLOB);
+        }
+    }
+
+    /**
+     * アイテムのメタデータを列に設定
+     * @param statement ステートメント
+     * @param index material列のパラメータ位置（rarity, custom_model_data, amountが続く）
+     * @param summary アイテムのメタデータ
+     * @throws SQLException 設定エラーの場合
+     */
+    private void bindSummary(PreparedStatement statement, int index, ItemSummary summary) throws SQLException {
+        statement.setString(index, summary.getMaterial().name());
+        statement.setString(index + 1, summary.getRarity().name());
+        statement.setInt(index + 2, summary.getCustomModelData());
+        statement.setInt(index + 3, summary.getAmount());
+    }
+
+    /**
+     * 結果セットの現在の行からアイテムを復元
+     * @param resultSet 結果セット
+     * @return 復元されたアイテム
+     * @throws SQLException 取得エラーの場合
+     */
+    private ItemStack readItemData(ResultSet resultSet) throws SQLException {
+        byte[] blob = resultSet.getBytes("data_blob");
+        if (blob != null) {
+            return ItemSerializer.fromBytes(blob);
+        }
+        return ItemSerializer.fromBase64(resultSet.getString("data"));
+    }
+
     /**
      * アイテムをデータベースに保存
      * @param itemId アイテムID
@@ -178,15 +411,20 @@ public class DatabaseUtil {
 
         try (Connection conn = getConnection();
              PreparedStatement statement = conn.prepareStatement(
-                     "REPLACE INTO " + tablePrefix + "items (id, name, data) VALUES (?, ?, ?)")) {
+                     "REPLACE INTO " + tablePrefix + "items (id, name, material, rarity, custom_model_data, amount, data, data_blob) " +
+                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
 
-            // Base64エンコード
-            String encodedItem = ItemSerializer.toBase64(item);
+            // 現在の保存形式でエンコード
+            byte[] encodedItem = ItemSerializer.toBytes(item);
+            if (encodedItem == null) {
+                return false;
+            }
 
             // パラメータ設定
             statement.setString(1, itemId);
             statement.setString(2, name);
-            statement.setString(3, encodedItem);
+            bindSummary(statement, 3, ItemSummary.of(itemId, item, 0L));
+            bindItemData(statement, 7, encodedItem);
 
             // クエリを実行
             statement.executeUpdate();
@@ -199,6 +437,78 @@ public class DatabaseUtil {
         }
     }
 
+    /**
+     * 複数アイテムの保存と削除を1つのトランザクションでまとめて実行
+     * @param saves 保存するアイテム (ID -> アイテム)
+     * @param names 保存するアイテムの名前 (ID -> 名前)
+     * @param removals 削除するアイテムID
+     * @return コミットに成功した場合true
+     */
+    public boolean writeBatch(Map<String, ItemStack> saves, Map<String, String> names, Collection<String> removals) {
+        if (saves.isEmpty() && removals.isEmpty()) {
+            return true;
+        }
+
+        if (!connect()) {
+            return false;
+        }
+
+        // 接続を保持する時間を短くするため、先にエンコードしておく
+        Map<String, byte[]> encodedItems = new LinkedHashMap<>();
+        for (Map.Entry<String, ItemStack> entry : saves.entrySet()) {
+            byte[] encodedItem = ItemSerializer.toBytes(entry.getValue());
+            if (encodedItem != null) {
+                encodedItems.put(entry.getKey(), encodedItem);
+            }
+        }
+
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement saveStatement = conn.prepareStatement(
+                         "REPLACE INTO " + tablePrefix + "items (id, name, material, rarity, custom_model_data, amount, data, data_blob) " +
+                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+                 PreparedStatement removeStatement = conn.prepareStatement(
+                         "DELETE FROM " + tablePrefix + "items WHERE id = ?")) {
+
+                for (Map.Entry<String, byte[]> entry : encodedItems.entrySet()) {
+                    String name = names.get(entry.getKey());
+                    saveStatement.setString(1, entry.getKey());
+                    saveStatement.setString(2, name != null ? name : "Unknown Item");
+                    bindSummary(saveStatement, 3, ItemSummary.of(entry.getKey(), saves.get(entry.getKey()), 0L));
+                    bindItemData(saveStatement, 7, entry.getValue());
+                    saveStatement.addBatch();
+                }
+
+                for (String itemId : removals) {
+                    removeStatement.setString(1, itemId);
+                    removeStatement.addBatch();
+                }
+
+                if (!encodedItems.isEmpty()) {
+                    saveStatement.executeBatch();
+                }
+                if (!removals.isEmpty()) {
+                    removeStatement.executeBatch();
+                }
+
+                conn.commit();
+                return true;
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "アイテムの一括書き込みに失敗しました (" +
+                    (saves.size() + removals.size()) + " 件)", e);
+            return false;
+        }
+    }
+
     /**
      * アイテムをデータベースから取得
      * @param itemId アイテムID
@@ -211,16 +521,14 @@ public class DatabaseUtil {
 
         try (Connection conn = getConnection();
              PreparedStatement statement = conn.prepareStatement(
-                     "SELECT data FROM " + tablePrefix + "items WHERE id = ?")) {
+                     "SELECT data, data_blob FROM " + tablePrefix + "items WHERE id = ?")) {
 
             statement.setString(1, itemId);
 
             try (ResultSet resultSet = statement.executeQuery()) {
                 if (resultSet.next()) {
-                    String encodedItem = resultSet.getString("data");
-
-                    // Base64からItemStackに復元
-                    return ItemSerializer.fromBase64(encodedItem);
+                    // 保存形式を判別してItemStackに復元
+                    return readItemData(resultSet);
                 }
             }
 
@@ -232,6 +540,51 @@ public class DatabaseUtil {
         }
     }
 
+    /**
+     * 複数のアイテムをIN句でまとめてデータベースから取得
+     * @param itemIds アイテムID
+     * @return アイテムIDとアイテムのマップ（見つからないIDは含まない）
+     */
+    public Map<String, ItemStack> getItems(Collection<String> itemIds) {
+        Map<String, ItemStack> items = new LinkedHashMap<>();
+
+        if (itemIds.isEmpty() || !connect()) {
+            return items;
+        }
+
+        List<String> ids = new ArrayList<>(itemIds);
+
+        try (Connection conn = getConnection()) {
+            for (int start = 0; start < ids.size(); start += MULTI_GET_CHUNK_SIZE) {
+                List<String> chunk = ids.subList(start, Math.min(start + MULTI_GET_CHUNK_SIZE, ids.size()));
+                String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+
+                try (PreparedStatement statement = conn.prepareStatement(
+                        "SELECT id, data, data_blob FROM " + tablePrefix + "items WHERE id IN (" + placeholders + ")")) {
+
+                    for (int i = 0; i < chunk.size(); i++) {
+                        statement.setString(i + 1, chunk.get(i));
+                    }
+
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        while (resultSet.next()) {
+                            // 保存形式を判別してItemStackに復元
+                            ItemStack item = readItemData(resultSet);
+                            if (item != null) {
+                                items.put(resultSet.getString("id"), item);
+                            }
+                        }
+                    }
+                }
+            }
+
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "アイテムの一括取得に失敗しました (" + ids.size() + " 件)", e);
+        }
+
+        return items;
+    }
+
     /**
      * アイテムをデータベースから削除
      * @param itemId アイテムID
@@ -273,14 +626,13 @@ public class DatabaseUtil {
         try (Connection conn = getConnection();
              Statement statement = conn.createStatement();
              ResultSet resultSet = statement.executeQuery(
-                     "SELECT id, data FROM " + tablePrefix + "items ORDER BY updated_at DESC")) {
+                     "SELECT id, data, data_blob FROM " + tablePrefix + "items ORDER BY updated_at DESC")) {
 
             while (resultSet.next()) {
                 String itemId = resultSet.getString("id");
-                String encodedItem = resultSet.getString("data");
 
-                // Base64からItemStackに復元
-                ItemStack item = ItemSerializer.fromBase64(encodedItem);
+                // 保存形式を判別してItemStackに復元
+                ItemStack item = readItemData(resultSet);
 
                 if (item != null) {
                     items.put(itemId, item);
@@ -294,6 +646,153 @@ public class DatabaseUtil {
         return items;
     }
 
+    /**
+     * (updated_at, id) のキーセットページングでメタデータを1ページ分取得
+     * 並び順は更新日時の新しい順、同じ日時の場合はIDの昇順
+     * アイテム本体はデコードしない（メタデータ列が空の旧データのみデコードして補完する）
+     * 補完できなかった行はページから除くが、次のページの有無とカーソルは除く前の行で決める
+     * @param cursor 前のページのカーソル、最初のページの場合はnull
+     * @param limit ページサイズ
+     * @return ページ、取得に失敗した場合はnull
+     * @throws IllegalArgumentException カーソルが不正な場合
+     */
+    public ItemPage getSummaryPage(String cursor, int limit) {
+        ItemSummary after = cursor != null ? ItemPage.decodeCursor(cursor) : null;
+        if (!connect()) {
+            return null;
+        }
+
+        String sql = "SELECT id, name, material, rarity, custom_model_data, amount, updated_at FROM " +
+                tablePrefix + "items " +
+                (after != null ? "WHERE updated_at < ? OR (updated_at = ? AND id > ?) " : "") +
+                "ORDER BY updated_at DESC, id ASC LIMIT ?";
+
+        List<ItemSummary> page = new ArrayList<>();
+        List<String> missing = new ArrayList<>();
+        String nextCursor = null;
+
+        try (Connection conn = getConnection();
+             PreparedStatement statement = conn.prepareStatement(sql)) {
+
+            int index = 1;
+            if (after != null) {
+                Timestamp updatedAt = new Timestamp(after.getUpdatedAt());
+                statement.setTimestamp(index++, updatedAt);
+                statement.setTimestamp(index++, updatedAt);
+                statement.setString(index++, after.getItemId());
+            }
+            // 次のページがあるか判定するため1件多く取得する
+            statement.setInt(index, limit + 1);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                ItemSummary lastRow = null;
+                while (resultSet.next()) {
+                    String itemId = resultSet.getString("id");
+                    String materialName = resultSet.getString("material");
+                    Material material = materialName != null ? Material.matchMaterial(materialName) : null;
+                    Timestamp updatedAt = resultSet.getTimestamp("updated_at");
+
+                    if (page.size() == limit) {
+                        nextCursor = ItemPage.encodeCursor(lastRow);
+                        break;
+                    }
+                    lastRow = new ItemSummary(itemId, null, null, null, 0, 0,
+                            updatedAt != null ? updatedAt.getTime() : 0L);
+
+                    // メタデータ列が空の行は後でまとめて補完する（位置を保つためnullを入れておく）
+                    if (material == null) {
+                        missing.add(itemId);
+                        page.add(null);
+                        continue;
+                    }
+
+                    page.add(new ItemSummary(
+                            itemId,
+                            resultSet.getString("name"),
+                            material,
+                            Rarity.fromString(resultSet.getString("rarity")),
+                            resultSet.getInt("custom_model_data"),
+                            resultSet.getInt("amount"),
+                            updatedAt != null ? updatedAt.getTime() : 0L));
+                }
+            }
+
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "アイテム一覧の取得に失敗しました", e);
+            return null;
+        }
+
+        if (missing.isEmpty()) {
+            return new ItemPage(page, cursor, nextCursor, -1);
+        }
+
+        // 補完したメタデータを元の位置に戻す（デコードできなかったものは除く）
+        Map<String, ItemSummary> byId = new HashMap<>();
+        for (ItemSummary summary : backfillSummaries(missing)) {
+            byId.put(summary.getItemId(), summary);
+        }
+
+        List<ItemSummary> result = new ArrayList<>(page.size());
+        int missingIndex = 0;
+        for (ItemSummary summary : page) {
+            if (summary == null) {
+                summary = byId.get(missing.get(missingIndex++));
+            }
+            if (summary != null) {
+                result.add(summary);
+            }
+        }
+        return new ItemPage(result, cursor, nextCursor, -1);
+    }
+
+    /**
+     * メタデータ列が空のアイテムをデコードし、メタデータを書き込む
+     * @param itemIds 補完するアイテムID
+     * @return 補完したメタデータ
+     */
+    private List<ItemSummary> backfillSummaries(List<String> itemIds) {
+        List<ItemSummary> summaries = new ArrayList<>();
+
+        try (Connection conn = getConnection();
+             PreparedStatement selectStatement = conn.prepareStatement(
+                     "SELECT data, data_blob, updated_at FROM " + tablePrefix + "items WHERE id = ?");
+             PreparedStatement updateStatement = conn.prepareStatement(
+                     "UPDATE " + tablePrefix + "items SET material = ?, rarity = ?, custom_model_data = ?, amount = ?, " +
+                             "updated_at = updated_at WHERE id = ?")) {
+
+            for (String itemId : itemIds) {
+                selectStatement.setString(1, itemId);
+
+                try (ResultSet resultSet = selectStatement.executeQuery()) {
+                    if (!resultSet.next()) {
+                        continue;
+                    }
+
+                    ItemStack item = readItemData(resultSet);
+                    if (item == null) {
+                        continue;
+                    }
+
+                    Timestamp updatedAt = resultSet.getTimestamp("updated_at");
+                    ItemSummary summary = ItemSummary.of(itemId, item, updatedAt != null ? updatedAt.getTime() : 0L);
+                    summaries.add(summary);
+
+                    bindSummary(updateStatement, 1, summary);
+                    updateStatement.setString(5, itemId);
+                    updateStatement.addBatch();
+                }
+            }
+
+            updateStatement.executeBatch();
+            plugin.getLogger().info(summaries.size() + " 個のアイテムのメタデータを補完しました");
+
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "アイテムのメタデータの補完に失敗しました", e);
+        }
+
+        return summaries;
+    }
+
     /**
      * アイテム数を取得
      * @return データベース内のアイテム数
@@ -319,6 +818,234 @@ public class DatabaseUtil {
         return 0;
     }
 
+    /**
+     * 全てのレシピを読み込む
+     * 材料は先にハッシュごとに1度だけデコードし、同じ材料を使うレシピで共有する
+     * @return レシピのリスト、読み込めなかった場合はnull
+     */
+    public List<CustomRecipe> loadRecipes() {
+        if (!connect()) {
+            return null;
+        }
+
+        try (Connection conn = getConnection()) {
+            Map<String, ItemStack> sharedIngredients = new HashMap<>();
+            try (PreparedStatement statement = conn.prepareStatement(
+                         "SELECT hash, data, data_blob FROM " + tablePrefix + "ingredients");
+                 ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    sharedIngredients.put(resultSet.getString("hash"), readItemData(resultSet));
+                }
+            }
+
+            try (PreparedStatement statement = conn.prepareStatement(
+                         "SELECT r.id, r.result_item_id, i.slot, i.ingredient_hash, i.data, i.data_blob " +
+                         "FROM " + tablePrefix + "recipes r " +
+                         "LEFT JOIN " + tablePrefix + "recipe_ingredients i ON i.recipe_id = r.id " +
+                         "ORDER BY r.id, i.slot");
+                 ResultSet resultSet = statement.executeQuery()) {
+                return readRecipes(resultSet, sharedIngredients);
+            }
+
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "レシピの読み込みに失敗しました", e);
+            return null;
+        }
+    }
+
+    /**
+     * レシピと材料を結合した結果セットからレシピを復元
+     * @param resultSet レシピIDの順に並んだ結果セット
+     * @param sharedIngredients デコード済みの材料（ハッシュ -> アイテム）
+     * @return レシピのリスト
+     * @throws SQLException 取得エラーの場合
+     */
+    private List<CustomRecipe> readRecipes(ResultSet resultSet, Map<String, ItemStack> sharedIngredients) throws SQLException {
+        List<CustomRecipe> recipes = new ArrayList<>();
+        String currentId = null;
+        String resultItemId = null;
+        ItemStack[] ingredients = null;
+
+        // 結合した行はレシピIDの順に並ぶため、IDが変わった時点で1つのレシピとしてまとめる
+        while (resultSet.next()) {
+            String recipeId = resultSet.getString("id");
+            if (!recipeId.equals(currentId)) {
+                if (currentId != null) {
+                    recipes.add(CustomRecipe.withSharedIngredients(currentId, resultItemId, ingredients));
+                }
+                currentId = recipeId;
+                resultItemId = resultSet.getString("result_item_id");
+                ingredients = new ItemStack[9];
+            }
+
+            int slot = resultSet.getInt("slot");
+            if (!resultSet.wasNull() && slot >= 0 && slot < ingredients.length) {
+                String hash = resultSet.getString("ingredient_hash");
+                ingredients[slot] = hash != null ? sharedIngredients.get(hash) : readItemData(resultSet);
+            }
+        }
+        if (currentId != null) {
+            recipes.add(CustomRecipe.withSharedIngredients(currentId, resultItemId, ingredients));
+        }
+        return recipes;
+    }
+
+    /**
+     * 複数レシピの保存と削除を1つのトランザクションでまとめて実行
+     * 保存するレシピの材料は全て書き直す
+     * 材料の内容はハッシュごとに1度だけ保存し、どのレシピからも参照されなくなった材料は削除する
+     * @param saves 保存するレシピ
+     * @param removals 削除するレシピID
+     * @return コミットに成功した場合true
+     */
+    public boolean writeRecipeBatch(Collection<CustomRecipe> saves, Collection<String> removals) {
+        if (saves.isEmpty() && removals.isEmpty()) {
+            return true;
+        }
+
+        if (!connect()) {
+            return false;
+        }
+
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement clearIngredients = conn.prepareStatement(
+                         "DELETE FROM " + tablePrefix + "recipe_ingredients WHERE recipe_id = ?");
+                 PreparedStatement saveRecipe = conn.prepareStatement(
+                         "REPLACE INTO " + tablePrefix + "recipes (id, result_item_id) VALUES (?, ?)");
+                 PreparedStatement saveSharedIngredient = conn.prepareStatement(
+                         "INSERT IGNORE INTO " + tablePrefix + "ingredients (hash, data, data_blob) VALUES (?, ?, ?)");
+                 PreparedStatement saveIngredient = conn.prepareStatement(
+                         "INSERT INTO " + tablePrefix + "recipe_ingredients (recipe_id, slot, ingredient_hash) " +
+                         "VALUES (?, ?, ?)");
+                 PreparedStatement removeRecipe = conn.prepareStatement(
+                         "DELETE FROM " + tablePrefix + "recipes WHERE id = ?");
+                 PreparedStatement removeUnusedIngredient = conn.prepareStatement(
+                         "DELETE FROM " + tablePrefix + "ingredients WHERE hash = ? AND NOT EXISTS (" +
+                         "SELECT 1 FROM " + tablePrefix + "recipe_ingredients WHERE ingredient_hash = ?)")) {
+
+                // 書き換え・削除するレシピが今まで参照していた材料（使われなくなった可能性があるもの）
+                List<String> changedIds = new ArrayList<>(removals);
+                for (CustomRecipe recipe : saves) {
+                    changedIds.add(recipe.getRecipeId());
+                }
+                Set<String> previousHashes = getIngredientHashes(conn, changedIds);
+
+                boolean hasIngredients = false;
+                Set<String> batchHashes = new HashSet<>();
+                for (CustomRecipe recipe : saves) {
+                    clearIngredients.setString(1, recipe.getRecipeId());
+                    clearIngredients.addBatch();
+
+                    saveRecipe.setString(1, recipe.getRecipeId());
+                    saveRecipe.setString(2, recipe.getResultItemId());
+                    saveRecipe.addBatch();
+
+                    ItemStack[] ingredients = recipe.getIngredients();
+                    for (int slot = 0; slot < ingredients.length; slot++) {
+                        if (ingredients[slot] == null || ingredients[slot].getType() == Material.AIR) {
+                            continue;
+                        }
+                        byte[] encodedItem = ItemSerializer.toBytes(ingredients[slot]);
+                        if (encodedItem == null) {
+                            continue;
+                        }
+                        // 同じ内容の材料はバッチ内でも1度だけ送る
+                        String hash = ItemSerializer.contentHash(encodedItem);
+                        if (batchHashes.add(hash)) {
+                            saveSharedIngredient.setString(1, hash);
+                            bindItemData(saveSharedIngredient, 2, encodedItem);
+                            saveSharedIngredient.addBatch();
+                        }
+                        saveIngredient.setString(1, recipe.getRecipeId());
+                        saveIngredient.setInt(2, slot);
+                        saveIngredient.setString(3, hash);
+                        saveIngredient.addBatch();
+                        hasIngredients = true;
+                    }
+                }
+
+                for (String recipeId : removals) {
+                    clearIngredients.setString(1, recipeId);
+                    clearIngredients.addBatch();
+                    removeRecipe.setString(1, recipeId);
+                    removeRecipe.addBatch();
+                }
+
+                clearIngredients.executeBatch();
+                if (!saves.isEmpty()) {
+                    saveRecipe.executeBatch();
+                }
+                if (hasIngredients) {
+                    saveSharedIngredient.executeBatch();
+                    saveIngredient.executeBatch();
+                }
+                if (!removals.isEmpty()) {
+                    removeRecipe.executeBatch();
+                }
+
+                // バッチで参照しなくなった材料のうち、他のレシピからも参照されていないものだけを削除
+                previousHashes.removeAll(batchHashes);
+                if (!previousHashes.isEmpty()) {
+                    for (String hash : previousHashes) {
+                        removeUnusedIngredient.setString(1, hash);
+                        removeUnusedIngredient.setString(2, hash);
+                        removeUnusedIngredient.addBatch();
+                    }
+                    removeUnusedIngredient.executeBatch();
+                }
+
+                conn.commit();
+                return true;
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "レシピの一括書き込みに失敗しました (" +
+                    (saves.size() + removals.size()) + " 件)", e);
+            return false;
+        }
+    }
+
+    /**
+     * レシピが参照している材料のハッシュを取得
+     * @param conn データベース接続
+     * @param recipeIds レシピID
+     * @return 材料のハッシュ
+     * @throws SQLException 取得エラーの場合
+     */
+    private Set<String> getIngredientHashes(Connection conn, List<String> recipeIds) throws SQLException {
+        Set<String> hashes = new HashSet<>();
+
+        for (int start = 0; start < recipeIds.size(); start += MULTI_GET_CHUNK_SIZE) {
+            List<String> chunk = recipeIds.subList(start, Math.min(start + MULTI_GET_CHUNK_SIZE, recipeIds.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+
+            try (PreparedStatement statement = conn.prepareStatement(
+                    "SELECT DISTINCT ingredient_hash FROM " + tablePrefix + "recipe_ingredients " +
+                    "WHERE recipe_id IN (" + placeholders + ") AND ingredient_hash IS NOT NULL")) {
+
+                for (int i = 0; i < chunk.size(); i++) {
+                    statement.setString(i + 1, chunk.get(i));
+                }
+
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        hashes.add(resultSet.getString(1));
+                    }
+                }
+            }
+        }
+
+        return hashes;
+    }
+
     /**
      * データベースの状態をチェック
      * @return データベースが正常な場合true
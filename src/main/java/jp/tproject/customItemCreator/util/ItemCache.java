@@ -0,0 +1,391 @@
+package jp.tproject.customItemCreator.util;
+
+import jp.tproject.customItemCreator.model.ItemPage;
+import jp.tproject.customItemCreator.model.ItemQuery;
+import jp.tproject.customItemCreator.model.ItemSummary;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 保存済みアイテムのインメモリレジストリ
+ * 起動時にはメタデータ（ItemSummary）だけを読み込み、アイテム本体は初めて必要になった時点でデコードする
+ * 一覧・ページ・絞り込みは不変のスナップショット（CatalogSnapshot）から応答する
+ * スナップショットは変更後に初めて読まれた時点で、前回からの変更分だけを適用して作り直し、以降はロックなしで共有する
+ * 読み取り時はクローンを返すため、呼び出し側での変更はキャッシュに影響しない
+ */
+public class ItemCache {
+
+    // アイテムID -> メタデータ
+    private final Map<String, ItemSummary> summaries = new ConcurrentHashMap<>();
+
+    // アイテムID -> リビジョン（登録・更新のたびにカタログのバージョンを記録する）
+    private final Map<String, Long> revisions = new ConcurrentHashMap<>();
+
+    // 最後に作成したスナップショット（現在のバージョンと異なる場合は作り直す）
+    private volatile CatalogSnapshot snapshot;
+
+    // スナップショットを作り直すスレッドを1つに絞るためのロック
+    private final Object snapshotLock = new Object();
+
+    // 最後のスナップショットからの変更 (ID -> 新しいメタデータ、削除の場合はnull)
+    private final Map<String, ItemSummary> changesSinceSnapshot = new HashMap<>();
+
+    // 全体を読み込み直したため、変更分ではなく全体からスナップショットを作り直す必要がある
+    private boolean rebuildSnapshot = true;
+
+    // 変更がこの割合を超えた場合は、変更分の適用ではなく全体から作り直す
+    private static final int INCREMENTAL_LIMIT_DIVISOR = 8;
+
+    // アイテムID -> デコード済みアイテム（必要になったものだけ）
+    private final Map<String, ItemStack> decoded = new ConcurrentHashMap<>();
+
+    // ストレージからアイテム本体を読み込んでデコードする処理
+    private final Function<String, ItemStack> loader;
+
+    // ストレージから複数のアイテム本体をまとめて読み込んでデコードする処理
+    private final Function<Collection<String>, Map<String, ItemStack>> bulkLoader;
+
+    // カタログのバージョン（全てのキャッシュで共通の連番のため、キャッシュを作り直しても重複しない）
+    private static final AtomicLong VERSION_SEQUENCE = new AtomicLong();
+    private volatile long version = VERSION_SEQUENCE.incrementAndGet();
+
+    // デコードした回数
+    private final AtomicLong decodeCount = new AtomicLong();
+
+    /**
+     * キャッシュを初期化
+     * @param loader アイテムIDからアイテム本体をデコードする処理
+     * @param bulkLoader 複数のアイテムIDからアイテム本体をまとめてデコードする処理
+     */
+    public ItemCache(Function<String, ItemStack> loader,
+                     Function<Collection<String>, Map<String, ItemStack>> bulkLoader) {
+        this.loader = loader;
+        this.bulkLoader = bulkLoader;
+    }
+
+    /**
+     * ストレージから読み込んだメタデータでキャッシュを置き換える
+     * デコード済みのアイテムは破棄される
+     * @param loadedSummaries 読み込んだメタデータ
+     */
+    public synchronized void load(Collection<ItemSummary> loadedSummaries) {
+        decoded.clear();
+        summaries.clear();
+        revisions.clear();
+        long loadedVersion = VERSION_SEQUENCE.incrementAndGet();
+        for (ItemSummary summary : loadedSummaries) {
+            summaries.put(summary.getItemId(), summary);
+            revisions.put(summary.getItemId(), loadedVersion);
+        }
+        changesSinceSnapshot.clear();
+        rebuildSnapshot = true;
+        version = loadedVersion;
+    }
+
+    /**
+     * アイテムを取得
+     * まだデコードされていない場合はここでデコードする
+     * @param itemId アイテムID
+     * @return アイテムのクローン、見つからなければnull
+     */
+    public ItemStack get(String itemId) {
+        if (!summaries.containsKey(itemId)) {
+            return null;
+        }
+
+        ItemStack item = decoded.get(itemId);
+        if (item == null) {
+            ItemStack loaded = loader.apply(itemId);
+            if (loaded == null) {
+                return null;
+            }
+            decodeCount.incrementAndGet();
+
+            // デコード中に保存された場合は新しい方を優先する
+            item = decoded.putIfAbsent(itemId, loaded);
+            if (item == null) {
+                item = loaded;
+            }
+
+            // デコード中に削除された場合は残さない
+            if (!summaries.containsKey(itemId)) {
+                decoded.remove(itemId);
+            }
+        }
+        return item.clone();
+    }
+
+    /**
+     * 複数のアイテムを取得
+     * 未デコードのアイテムはストレージからまとめて1度に読み込む
+     * @param itemIds アイテムIDの一覧
+     * @return 見つかったアイテムIDとItemStack（クローン）のマップ（指定した順）
+     */
+    public Map<String, ItemStack> getAll(Collection<String> itemIds) {
+        List<String> missing = new ArrayList<>();
+        for (String itemId : itemIds) {
+            if (summaries.containsKey(itemId) && !decoded.containsKey(itemId)) {
+                missing.add(itemId);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            for (Map.Entry<String, ItemStack> entry : bulkLoader.apply(missing).entrySet()) {
+                decodeCount.incrementAndGet();
+                decoded.putIfAbsent(entry.getKey(), entry.getValue());
+
+                // デコード中に削除された場合は残さない
+                if (!summaries.containsKey(entry.getKey())) {
+                    decoded.remove(entry.getKey());
+                }
+            }
+        }
+
+        Map<String, ItemStack> items = new LinkedHashMap<>();
+        for (String itemId : itemIds) {
+            ItemStack item = get(itemId);
+            if (item != null) {
+                items.put(itemId, item);
+            }
+        }
+        return items;
+    }
+
+    /**
+     * 全てのアイテムを取得
+     * 未デコードのアイテムも全てデコードするため、移行などの一括処理でのみ使用すること
+     * @return アイテムIDとItemStack（クローン）のマップ
+     */
+    public Map<String, ItemStack> getAll() {
+        Map<String, ItemStack> copy = new HashMap<>(summaries.size());
+        for (String itemId : summaries.keySet()) {
+            ItemStack item = get(itemId);
+            if (item != null) {
+                copy.put(itemId, item);
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * アイテムのメタデータを取得
+     * @param itemId アイテムID
+     * @return メタデータ、見つからなければnull
+     */
+    public ItemSummary getSummary(String itemId) {
+        return summaries.get(itemId);
+    }
+
+    /**
+     * 現在のカタログのスナップショットを取得
+     * 前回から変更がなければ同じインスタンスを返し、変更があれば書き込みと競合しない時点の内容で作り直す
+     * 変更が少なければ前回のスナップショットに変更分だけを適用する
+     * @return スナップショット
+     */
+    public CatalogSnapshot getSnapshot() {
+        CatalogSnapshot current = snapshot;
+        if (current != null && current.getVersion() == version) {
+            return current;
+        }
+
+        synchronized (snapshotLock) {
+            current = snapshot;
+            if (current != null && current.getVersion() == version) {
+                return current;
+            }
+
+            // 変更のコピーだけを書き込みと同じロックの中で行い、スナップショットの作成はロックの外で行う
+            long copiedVersion;
+            Map<String, ItemSummary> changes = null;
+            List<ItemSummary> copied = null;
+            synchronized (this) {
+                copiedVersion = version;
+                if (current != null && !rebuildSnapshot &&
+                        changesSinceSnapshot.size() <= summaries.size() / INCREMENTAL_LIMIT_DIVISOR) {
+                    changes = new HashMap<>(changesSinceSnapshot);
+                } else {
+                    copied = new ArrayList<>(summaries.values());
+                }
+                changesSinceSnapshot.clear();
+                rebuildSnapshot = false;
+            }
+
+            current = changes != null ?
+                    current.withChanges(copiedVersion, changes) : new CatalogSnapshot(copiedVersion, copied);
+            snapshot = current;
+            return current;
+        }
+    }
+
+    /**
+     * 全てのアイテムのメタデータを一覧の並び順で取得
+     * @return メタデータのリスト（変更不可）
+     */
+    public List<ItemSummary> getSummaries() {
+        return getSnapshot().getSummaries();
+    }
+
+    /**
+     * カーソルの次から1ページ分のメタデータを取得
+     * @param cursor 前のページのカーソル、最初のページの場合はnull
+     * @param limit ページサイズ
+     * @return ページ
+     * @throws IllegalArgumentException カーソルが不正な場合
+     */
+    public ItemPage getPage(String cursor, int limit) {
+        return getSnapshot().getPage(cursor, limit);
+    }
+
+    /**
+     * ページ番号を指定して1ページ分のメタデータを取得
+     * カーソルがない場合に使用し、デコードは発生しない
+     * @param pageIndex ページ番号（0から始まる）
+     * @param pageSize ページサイズ
+     * @return ページ
+     */
+    public ItemPage getPageAt(int pageIndex, int pageSize) {
+        return getSnapshot().getPageAt(pageIndex, pageSize);
+    }
+
+    /**
+     * 条件に一致するメタデータをカーソルの次から1ページ分取得
+     * @param query 絞り込み条件
+     * @param cursor 前のページのカーソル、最初のページの場合はnull
+     * @param limit ページサイズ
+     * @return ページ（絞り込んだ場合の全件数は-1）
+     * @throws IllegalArgumentException カーソルが不正な場合
+     */
+    public ItemPage query(ItemQuery query, String cursor, int limit) {
+        return getSnapshot().query(query, cursor, limit);
+    }
+
+    /**
+     * アイテムを登録または更新
+     * @param summary アイテムのメタデータ
+     * @param item アイテム
+     */
+    public void put(ItemSummary summary, ItemStack item) {
+        decoded.put(summary.getItemId(), item.clone());
+        synchronized (this) {
+            summaries.put(summary.getItemId(), summary);
+            changesSinceSnapshot.put(summary.getItemId(), summary);
+            long newVersion = VERSION_SEQUENCE.incrementAndGet();
+            revisions.put(summary.getItemId(), newVersion);
+            version = newVersion;
+        }
+    }
+
+    /**
+     * アイテムを削除
+     * @param itemId アイテムID
+     */
+    public void remove(String itemId) {
+        synchronized (this) {
+            summaries.remove(itemId);
+            revisions.remove(itemId);
+            changesSinceSnapshot.put(itemId, null);
+            version = VERSION_SEQUENCE.incrementAndGet();
+        }
+        decoded.remove(itemId);
+    }
+
+    /**
+     * アイテムを保存先の内容で読み直す
+     * 書き込みに失敗してキャッシュと保存先が食い違った場合に使用する
+     * @param itemId アイテムID
+     */
+    public void invalidate(String itemId) {
+        decoded.remove(itemId);
+        ItemStack stored = loader.apply(itemId);
+        if (stored == null) {
+            remove(itemId);
+            return;
+        }
+
+        ItemSummary current = summaries.get(itemId);
+        put(ItemSummary.of(itemId, stored, current != null ? current.getUpdatedAt() : System.currentTimeMillis()), stored);
+    }
+
+    /**
+     * アイテムが存在するか
+     * @param itemId アイテムID
+     * @return 存在すればtrue
+     */
+    public boolean contains(String itemId) {
+        return summaries.containsKey(itemId);
+    }
+
+    /**
+     * 登録されている全てのアイテムIDを取得
+     * @return アイテムIDのセット（変更不可）
+     */
+    public Set<String> getItemIds() {
+        return getSnapshot().getItemIds();
+    }
+
+    /**
+     * 登録されているアイテム数を取得
+     * @return アイテム数
+     */
+    public int size() {
+        return summaries.size();
+    }
+
+    /**
+     * デコード済みのアイテム数を取得
+     * @return デコード済みの件数
+     */
+    public int getDecodedSize() {
+        return decoded.size();
+    }
+
+    /**
+     * デコードした回数を取得
+     * @return デコード回数
+     */
+    public long getDecodeCount() {
+        return decodeCount.get();
+    }
+
+    /**
+     * キャッシュを空にする
+     */
+    public synchronized void clear() {
+        summaries.clear();
+        revisions.clear();
+        decoded.clear();
+        changesSinceSnapshot.clear();
+        rebuildSnapshot = true;
+        version = VERSION_SEQUENCE.incrementAndGet();
+    }
+
+    /**
+     * アイテムのリビジョンを取得
+     * アイテムが登録・更新されるたびに増加するため、アイテムごとに生成したデータの再利用の判定に使用する
+     * @param itemId アイテムID
+     * @return リビジョン、アイテムが存在しない場合は-1
+     */
+    public long getRevision(String itemId) {
+        Long revision = revisions.get(itemId);
+        return revision != null ? revision : -1;
+    }
+
+    /**
+     * カタログのバージョンを取得
+     * アイテムの登録・更新・削除や再読み込みのたびに増加するため、一覧の再生成が必要かの判定に使用する
+     * @return バージョン
+     */
+    public long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,172 @@
+package jp.tproject.customItemCreator.util;
+
+import org.bukkit.inventory.ItemStack;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * ItemStackをバージョン付きのコンパクトなバイナリ形式に変換するクラス
+ * 本体はPaperのserializeAsBytes（NBT、データバージョン付き）を使い、
+ * 一定サイズ以上の場合はDeflateで圧縮する
+ *
+ * 形式: マジック(2) + バージョン(1) + フラグ(1) + [圧縮時: 元のサイズ(4)] + 本体
+ */
+public final class ItemCodec {
+
+    // Javaシリアライズ (0xACED) と区別するためのマジックナンバー
+    private static final byte MAGIC_0 = 'C';
+    private static final byte MAGIC_1 = 'I';
+
+    // 形式のバージョン
+    private static final byte VERSION = 1;
+
+    // フラグ: Deflate圧縮
+    private static final byte FLAG_DEFLATE = 0x01;
+
+    private static final int HEADER_SIZE = 4;
+
+    // このサイズ以上の本体は圧縮を試みる (バイト)
+    private static volatile int compressionThreshold = 256;
+
+    private ItemCodec() {
+    }
+
+    /**
+     * 圧縮を試みる本体サイズのしきい値を設定
+     * @param threshold しきい値 (バイト)、0以下の場合は圧縮しない
+     */
+    public static void setCompressionThreshold(int threshold) {
+        compressionThreshold = threshold;
+    }
+
+    /**
+     * ItemStackをバイナリ形式に変換
+     * @param item 変換するアイテム
+     * @return エンコードされたバイト列
+     */
+    public static byte[] encode(ItemStack item) {
+        return pack(item.serializeAsBytes());
+    }
+
+    /**
+     * 本体にヘッダーを付け、必要であれば圧縮する
+     * @param payload 本体
+     * @return エンコードされたバイト列
+     */
+    static byte[] pack(byte[] payload) {
+        int threshold = compressionThreshold;
+        if (threshold > 0 && payload.length >= threshold) {
+            byte[] compressed = deflate(payload);
+            if (compressed.length + 4 < payload.length) {
+                ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 4 + compressed.length);
+                buffer.put(MAGIC_0).put(MAGIC_1).put(VERSION).put(FLAG_DEFLATE);
+                buffer.putInt(payload.length);
+                buffer.put(compressed);
+                return buffer.array();
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+        buffer.put(MAGIC_0).put(MAGIC_1).put(VERSION).put((byte) 0);
+        buffer.put(payload);
+        return buffer.array();
+    }
+
+    /**
+     * バイナリ形式からItemStackに変換
+     * @param data エンコードされたバイト列
+     * @return 復元されたItemStack
+     * @throws IllegalArgumentException 形式が不正な場合
+     */
+    public static ItemStack decode(byte[] data) {
+        return ItemStack.deserializeBytes(unpack(data));
+    }
+
+    /**
+     * ヘッダーを確認して本体を取り出し、圧縮されていれば展開する
+     * @param data エンコードされたバイト列
+     * @return 本体
+     * @throws IllegalArgumentException 形式が不正な場合
+     */
+    static byte[] unpack(byte[] data) {
+        if (!isEncoded(data)) {
+            throw new IllegalArgumentException("ItemCodec形式ではありません");
+        }
+
+        byte version = data[2];
+        if (version != VERSION) {
+            throw new IllegalArgumentException("未対応のItemCodecバージョンです: " + version);
+        }
+
+        byte flags = data[3];
+        byte[] payload;
+
+        if ((flags & FLAG_DEFLATE) != 0) {
+            ByteBuffer buffer = ByteBuffer.wrap(data, HEADER_SIZE, data.length - HEADER_SIZE);
+            int rawLength = buffer.getInt();
+            payload = inflate(data, HEADER_SIZE + 4, data.length - HEADER_SIZE - 4, rawLength);
+        } else {
+            payload = new byte[data.length - HEADER_SIZE];
+            System.arraycopy(data, HEADER_SIZE, payload, 0, payload.length);
+        }
+
+        return payload;
+    }
+
+    /**
+     * バイト列がこの形式でエンコードされているか
+     * @param data 確認するバイト列
+     * @return この形式であればtrue
+     */
+    public static boolean isEncoded(byte[] data) {
+        return data != null && data.length >= HEADER_SIZE && data[0] == MAGIC_0 && data[1] == MAGIC_1;
+    }
+
+    private static byte[] deflate(byte[] input) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream(input.length / 2 + 16);
+            byte[] buffer = new byte[1024];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                output.write(buffer, 0, length);
+            }
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] input, int offset, int length, int rawLength) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(input, offset, length);
+
+            byte[] output = new byte[rawLength];
+            int position = 0;
+            while (position < rawLength && !inflater.finished()) {
+                int read = inflater.inflate(output, position, rawLength - position);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                position += read;
+            }
+
+            if (position != rawLength) {
+                throw new IllegalArgumentException("圧縮データが壊れています");
+            }
+            return output;
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("圧縮データを展開できませんでした", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package jp.tproject.customItemCreator.util;
+
+import jp.tproject.customItemCreator.model.ItemQuery;
+import jp.tproject.customItemCreator.model.ItemSummary;
+import jp.tproject.customItemCreator.model.Rarity;
+import org.bukkit.Material;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * アイテムのメタデータの二次索引
+ * 種類・レア度・カスタムモデルデータ・表示名からアイテムを引けるようにし、
+ * 絞り込み時は最も件数の少ない索引の候補だけを走査する
+ * カタログのスナップショットごとに作成し、作成後は変更しない
+ */
+public class ItemIndex {
+
+    // アイテムの種類 -> 一覧の並び順のメタデータ
+    private final Map<Material, List<ItemSummary>> byMaterial = new EnumMap<>(Material.class);
+
+    // レア度 -> 一覧の並び順のメタデータ
+    private final Map<Rarity, List<ItemSummary>> byRarity = new EnumMap<>(Rarity.class);
+
+    // カスタムモデルデータ -> メタデータ（範囲検索用）
+    private final NavigableMap<Integer, List<ItemSummary>> byCustomModelData = new TreeMap<>();
+
+    // 正規化した表示名 -> メタデータ（前方一致検索用）
+    private final NavigableMap<String, List<ItemSummary>> byName = new TreeMap<>();
+
+    /**
+     * 索引を作成
+     * @param ordered 一覧の並び順に並べたメタデータ（各索引の中でも同じ順に並ぶ）
+     */
+    public ItemIndex(List<ItemSummary> ordered) {
+        for (ItemSummary summary : ordered) {
+            byMaterial.computeIfAbsent(summary.getMaterial(), key -> new ArrayList<>()).add(summary);
+            byRarity.computeIfAbsent(summary.getRarity(), key -> new ArrayList<>()).add(summary);
+            byCustomModelData.computeIfAbsent(summary.getCustomModelData(), key -> new ArrayList<>()).add(summary);
+            byName.computeIfAbsent(ItemQuery.normalizeName(summary.getName()), key -> new ArrayList<>()).add(summary);
+        }
+    }
+
+    /**
+     * 条件に一致する可能性のあるメタデータを一覧の並び順で取得
+     * 指定された条件のうち最も件数の少ない索引から候補を作るため、他の条件は呼び出し側で確認すること
+     * @param query 絞り込み条件（1つ以上の条件を含むこと）
+     * @return 候補のメタデータ（変更しないこと）
+     */
+    public List<ItemSummary> candidates(ItemQuery query) {
+        List<ItemSummary> best = null;
+
+        // 種類とレア度は並び順のまま保持しているため、件数だけで比較できる
+        if (query.getMaterial() != null) {
+            best = byMaterial.getOrDefault(query.getMaterial(), Collections.emptyList());
+        }
+        if (query.getRarity() != null) {
+            List<ItemSummary> list = byRarity.getOrDefault(query.getRarity(), Collections.emptyList());
+            if (best == null || list.size() < best.size()) {
+                best = list;
+            }
+        }
+
+        // 範囲と前方一致は並べ直しが必要なため、既存の候補より少ない場合だけ使用する
+        Collection<List<ItemSummary>> ranged = null;
+        int rangedSize = Integer.MAX_VALUE;
+        if (query.getMinCustomModelData() != null || query.getMaxCustomModelData() != null) {
+            ranged = customModelDataRange(query).values();
+            rangedSize = countAtMost(ranged, best != null ? best.size() : Integer.MAX_VALUE);
+        }
+        if (query.getNamePrefix() != null) {
+            Collection<List<ItemSummary>> named = namePrefixRange(query.getNamePrefix()).values();
+            int namedSize = countAtMost(named, Math.min(rangedSize, best != null ? best.size() : Integer.MAX_VALUE));
+            if (namedSize < rangedSize) {
+                ranged = named;
+                rangedSize = namedSize;
+            }
+        }
+
+        if (ranged != null && (best == null || rangedSize < best.size())) {
+            List<ItemSummary> sorted = new ArrayList<>(rangedSize);
+            for (List<ItemSummary> list : ranged) {
+                sorted.addAll(list);
+            }
+            sorted.sort(ItemSummary.LISTING_ORDER);
+            return sorted;
+        }
+        return best != null ? best : Collections.emptyList();
+    }
+
+    private NavigableMap<Integer, List<ItemSummary>> customModelDataRange(ItemQuery query) {
+        int min = query.getMinCustomModelData() != null ? query.getMinCustomModelData() : Integer.MIN_VALUE;
+        int max = query.getMaxCustomModelData() != null ? query.getMaxCustomModelData() : Integer.MAX_VALUE;
+        if (min > max) {
+            return Collections.emptyNavigableMap();
+        }
+        return byCustomModelData.subMap(min, true, max, true);
+    }
+
+    private NavigableMap<String, List<ItemSummary>> namePrefixRange(String prefix) {
+        // 前方一致する名前は prefix 以上、prefix + 最大の文字 未満の範囲に並ぶ
+        return byName.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    /**
+     * 候補の件数を数える（上限を超えた時点で打ち切る）
+     */
+    private static int countAtMost(Collection<List<ItemSummary>> lists, int limit) {
+        int count = 0;
+        for (List<ItemSummary> list : lists) {
+            count += list.size();
+            if (count >= limit) {
+                return Integer.MAX_VALUE;
+            }
+        }
+        return count;
+    }
+}
@@ -7,45 +7,142 @@ import org.bukkit.util.io.BukkitObjectOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
+import java.util.HexFormat;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * ItemStackをシリアライズ/デシリアライズするユーティリティクラス
+ * 読み込み時は保存形式を自動判別するため、旧形式のデータもそのまま読み込める
  */
 public class ItemSerializer {
 
     private static final Logger LOGGER = Logger.getLogger("ItemSerializer");
 
     /**
-     * ItemStackをBase64文字列に変換
+     * 保存形式
+     */
+    public enum Format {
+        // BukkitObjectOutputStreamによるJavaシリアライズ（旧形式）
+        BASE64,
+        // ItemCodecによるバイナリ形式
+        BINARY
+    }
+
+    // 新しく保存するデータの形式
+    private static volatile Format format = Format.BASE64;
+
+    /**
+     * 新しく保存するデータの形式を設定
+     * @param newFormat 保存形式
+     */
+    public static void setFormat(Format newFormat) {
+        format = newFormat;
+    }
+
+    /**
+     * 新しく保存するデータの形式を取得
+     * @return 保存形式
+     */
+    public static Format getFormat() {
+        return format;
+    }
+
+    /**
+     * ItemStackを現在の保存形式で文字列に変換
      * @param item 変換するアイテム
      * @return Base64にエンコードされた文字列
      */
-    public static String toBase64(ItemStack item) {
-        try {
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            BukkitObjectOutputStream dataOutput = new BukkitObjectOutputStream(outputStream);
+    public static String serialize(ItemStack item) {
+        byte[] bytes = toBytes(item);
+        return bytes != null ? Base64.getEncoder().encodeToString(bytes) : null;
+    }
 
-            dataOutput.writeObject(item);
-            dataOutput.close();
+    /**
+     * ItemStackを現在の保存形式でバイト列に変換
+     * @param item 変換するアイテム
+     * @return エンコードされたバイト列
+     */
+    public static byte[] toBytes(ItemStack item) {
+        if (format == Format.BINARY) {
+            try {
+                return ItemCodec.encode(item);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "アイテムをシリアライズできませんでした", e);
+                return null;
+            }
+        }
+        return toJavaSerializedBytes(item);
+    }
 
-            return Base64.getEncoder().encodeToString(outputStream.toByteArray());
-        } catch (IOException e) {
-            LOGGER.log(Level.SEVERE, "アイテムをシリアライズできませんでした", e);
-            return null;
+    /**
+     * エンコードしたデータの内容のハッシュを取得
+     * 同じ内容のアイテムを1度だけ保存するためのキーとして使用する
+     * @param bytes エンコードされたバイト列
+     * @return SHA-256の16進文字列
+     */
+    public static String contentHash(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256は全てのJava実装で利用できる
+            throw new IllegalStateException(e);
         }
     }
 
+    /**
+     * ItemStackをBase64文字列に変換（旧形式）
+     * @param item 変換するアイテム
+     * @return Base64にエンコードされた文字列
+     */
+    public static String toBase64(ItemStack item) {
+        byte[] bytes = toJavaSerializedBytes(item);
+        return bytes != null ? Base64.getEncoder().encodeToString(bytes) : null;
+    }
+
     /**
      * Base64文字列からItemStackに変換
+     * 旧形式・バイナリ形式のどちらにも対応
      * @param data Base64エンコードされた文字列
      * @return 復元されたItemStack
      */
     public static ItemStack fromBase64(String data) {
+        if (data == null) {
+            return null;
+        }
+
+        try {
+            return fromBytes(Base64.getDecoder().decode(data));
+        } catch (IllegalArgumentException e) {
+            LOGGER.log(Level.SEVERE, "アイテムをデシリアライズできませんでした", e);
+            return null;
+        }
+    }
+
+    /**
+     * バイト列からItemStackに変換
+     * 旧形式・バイナリ形式のどちらにも対応
+     * @param bytes エンコードされたバイト列
+     * @return 復元されたItemStack
+     */
+    public static ItemStack fromBytes(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+
+        if (ItemCodec.isEncoded(bytes)) {
+            try {
+                return ItemCodec.decode(bytes);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "アイテムをデシリアライズできませんでした", e);
+                return null;
+            }
+        }
+
         try {
-            byte[] bytes = Base64.getDecoder().decode(data);
             ByteArrayInputStream inputStream = new ByteArrayInputStream(bytes);
             BukkitObjectInputStream dataInput = new BukkitObjectInputStream(inputStream);
 
@@ -58,4 +155,24 @@ public class ItemSerializer {
             return null;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * ItemStackをJavaシリアライズでバイト列に変換（旧形式）
+     * @param item 変換するアイテム
+     * @return シリアライズされたバイト列
+     */
+    private static byte[] toJavaSerializedBytes(ItemStack item) {
+        try {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            BukkitObjectOutputStream dataOutput = new BukkitObjectOutputStream(outputStream);
+
+            dataOutput.writeObject(item);
+            dataOutput.close();
+
+            return outputStream.toByteArray();
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "アイテムをシリアライズできませんでした", e);
+            return null;
+        }
+    }
+}
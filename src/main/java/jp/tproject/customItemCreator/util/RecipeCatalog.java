@@ -0,0 +1,182 @@
+package jp.tproject.customItemCreator.util;
+
+import jp.tproject.customItemCreator.model.CustomRecipe;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 保存済みレシピのインメモリカタログ
+ * レシピは読み込み時に1度だけデコードして保持し、保存・削除のたびに更新する
+ * 結果アイテムのIDと、材料に使われているカスタムアイテムのIDからレシピを引く索引を持つ
+ */
+public class RecipeCatalog {
+
+    // 材料からカスタムアイテムIDを読み取るキー
+    private final NamespacedKey customItemKey;
+
+    // レシピID -> デコード済みのレシピ（読み込んだ順）
+    private final Map<String, CustomRecipe> recipes = new LinkedHashMap<>();
+
+    // 結果アイテムID -> レシピIDのセット
+    private final Map<String, Set<String>> byResult = new HashMap<>();
+
+    // 材料のカスタムアイテムID -> レシピIDのセット
+    private final Map<String, Set<String>> byIngredient = new HashMap<>();
+
+    /**
+     * カタログを初期化
+     * @param customItemKey 材料からカスタムアイテムIDを読み取るキー
+     */
+    public RecipeCatalog(NamespacedKey customItemKey) {
+        this.customItemKey = customItemKey;
+    }
+
+    /**
+     * 読み込んだレシピでカタログを置き換える
+     * @param loaded デコード済みのレシピ
+     */
+    public synchronized void load(Collection<CustomRecipe> loaded) {
+        recipes.clear();
+        byResult.clear();
+        byIngredient.clear();
+        for (CustomRecipe recipe : loaded) {
+            put(recipe);
+        }
+    }
+
+    /**
+     * レシピを登録または更新
+     * @param recipe レシピ
+     */
+    public synchronized void put(CustomRecipe recipe) {
+        remove(recipe.getRecipeId());
+
+        recipes.put(recipe.getRecipeId(), recipe);
+        addToIndex(byResult, recipe.getResultItemId(), recipe.getRecipeId());
+        for (String ingredientId : getIngredientItemIds(recipe)) {
+            addToIndex(byIngredient, ingredientId, recipe.getRecipeId());
+        }
+    }
+
+    /**
+     * レシピを削除
+     * @param recipeId レシピID
+     * @return 削除したレシピ、登録されていなければnull
+     */
+    public synchronized CustomRecipe remove(String recipeId) {
+        CustomRecipe removed = recipes.remove(recipeId);
+        if (removed == null) {
+            return null;
+        }
+
+        removeFromIndex(byResult, removed.getResultItemId(), recipeId);
+        for (String ingredientId : getIngredientItemIds(removed)) {
+            removeFromIndex(byIngredient, ingredientId, recipeId);
+        }
+        return removed;
+    }
+
+    /**
+     * レシピを取得
+     * @param recipeId レシピID
+     * @return レシピ、見つからなければnull
+     */
+    public synchronized CustomRecipe get(String recipeId) {
+        return recipes.get(recipeId);
+    }
+
+    /**
+     * 全てのレシピを取得
+     * @return レシピのリスト（読み込んだ順）
+     */
+    public synchronized List<CustomRecipe> getAll() {
+        return new ArrayList<>(recipes.values());
+    }
+
+    /**
+     * 指定したアイテムを作るレシピを取得
+     * @param itemId 結果アイテムのID
+     * @return レシピのリスト
+     */
+    public synchronized List<CustomRecipe> getByResult(String itemId) {
+        return lookup(byResult, itemId);
+    }
+
+    /**
+     * 指定したカスタムアイテムを材料に使うレシピを取得
+     * @param itemId 材料のカスタムアイテムID
+     * @return レシピのリスト
+     */
+    public synchronized List<CustomRecipe> getByIngredient(String itemId) {
+        return lookup(byIngredient, itemId);
+    }
+
+    /**
+     * 登録されているレシピ数を取得
+     * @return レシピ数
+     */
+    public synchronized int size() {
+        return recipes.size();
+    }
+
+    private List<CustomRecipe> lookup(Map<String, Set<String>> index, String itemId) {
+        Set<String> recipeIds = index.getOrDefault(itemId, Collections.emptySet());
+        List<CustomRecipe> result = new ArrayList<>(recipeIds.size());
+        for (String recipeId : recipeIds) {
+            result.add(recipes.get(recipeId));
+        }
+        return result;
+    }
+
+    /**
+     * レシピの材料に使われているカスタムアイテムのIDを取得
+     * @param recipe レシピ
+     * @return カスタムアイテムIDのセット（通常のアイテムは含まない）
+     */
+    private Set<String> getIngredientItemIds(CustomRecipe recipe) {
+        Set<String> itemIds = new LinkedHashSet<>();
+        for (ItemStack ingredient : recipe.getIngredients()) {
+            if (ingredient == null || ingredient.getType() == Material.AIR || !ingredient.hasItemMeta()) {
+                continue;
+            }
+            ItemMeta meta = ingredient.getItemMeta();
+            String itemId = meta.getPersistentDataContainer().get(customItemKey, PersistentDataType.STRING);
+            if (itemId != null) {
+                itemIds.add(itemId);
+            }
+        }
+        return itemIds;
+    }
+
+    private static void addToIndex(Map<String, Set<String>> index, String key, String recipeId) {
+        if (key != null) {
+            index.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(recipeId);
+        }
+    }
+
+    private static void removeFromIndex(Map<String, Set<String>> index, String key, String recipeId) {
+        if (key == null) {
+            return;
+        }
+        Set<String> recipeIds = index.get(key);
+        if (recipeIds != null) {
+            recipeIds.remove(recipeId);
+            if (recipeIds.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package jp.tproject.customItemCreator.util;
+
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataType;
+
+/**
+ * クラフトグリッドの配置を表す文字列（フィンガープリント）を作るユーティリティクラス
+ * 各マスをカスタムアイテムはそのID、通常のアイテムは種類で表し、材料のある範囲だけを切り出して並べる
+ * 説明文や属性を編集しても同じカスタムアイテムであれば同じフィンガープリントになる
+ */
+public final class RecipeFingerprint {
+
+    private RecipeFingerprint() {
+    }
+
+    /**
+     * グリッドのフィンガープリントを作成
+     * @param grid グリッドのアイテム（行ごとに左から並べた配列）
+     * @param width グリッドの幅
+     * @param customItemKey カスタムアイテムIDのキー
+     * @param mirrored 左右反転した配置で作成する場合true
+     * @return フィンガープリント、材料が1つもない場合はnull
+     */
+    public static String of(ItemStack[] grid, int width, NamespacedKey customItemKey, boolean mirrored) {
+        String[] slots = new String[grid.length];
+        for (int i = 0; i < grid.length; i++) {
+            if (!isEmpty(grid[i])) {
+                slots[i] = slotKey(grid[i], customItemKey);
+            }
+        }
+        return of(slots, width, mirrored);
+    }
+
+    /**
+     * 各マスを表す文字列からフィンガープリントを作成
+     * @param slots 各マスの文字列（行ごとに左から並べた配列、空のマスはnull）
+     * @param width グリッドの幅
+     * @param mirrored 左右反転した配置で作成する場合true
+     * @return フィンガープリント、材料が1つもない場合はnull
+     */
+    static String of(String[] slots, int width, boolean mirrored) {
+        int height = slots.length / width;
+
+        // 材料のある範囲を求める
+        int minRow = height, maxRow = -1, minCol = width, maxCol = -1;
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                if (slots[row * width + col] != null) {
+                    minRow = Math.min(minRow, row);
+                    maxRow = Math.max(maxRow, row);
+                    minCol = Math.min(minCol, col);
+                    maxCol = Math.max(maxCol, col);
+                }
+            }
+        }
+        if (maxRow < 0) {
+            return null;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(maxCol - minCol + 1).append('x').append(maxRow - minRow + 1);
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int i = 0; i <= maxCol - minCol; i++) {
+                int col = mirrored ? maxCol - i : minCol + i;
+                sb.append(i == 0 ? '|' : ',');
+                String slot = slots[row * width + col];
+                if (slot != null) {
+                    sb.append(slot);
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * グリッドにカスタムアイテムが含まれるか
+     * @param grid グリッドのアイテム
+     * @param customItemKey カスタムアイテムIDのキー
+     * @return カスタムアイテムが1つでもあればtrue
+     */
+    public static boolean hasCustomItem(ItemStack[] grid, NamespacedKey customItemKey) {
+        for (ItemStack item : grid) {
+            if (!isEmpty(item) && item.hasItemMeta() &&
+                    item.getItemMeta().getPersistentDataContainer().has(customItemKey, PersistentDataType.STRING)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * マスのアイテムを表す文字列を取得
+     * カスタムアイテムは # に続けてID、それ以外は種類の名前
+     */
+    private static String slotKey(ItemStack item, NamespacedKey customItemKey) {
+        if (item.hasItemMeta()) {
+            ItemMeta meta = item.getItemMeta();
+            String itemId = meta.getPersistentDataContainer().get(customItemKey, PersistentDataType.STRING);
+            if (itemId != null) {
+                return "#" + itemId;
+            }
+        }
+        return item.getType().name();
+    }
+
+    private static boolean isEmpty(ItemStack item) {
+        return item == null || item.getType() == Material.AIR;
+    }
+}
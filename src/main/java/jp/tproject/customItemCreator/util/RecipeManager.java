@@ -9,19 +9,50 @@ import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.RecipeChoice;
 import org.bukkit.inventory.ShapedRecipe;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.logging.Level;
 
 /**
  * カスタムレシピをBukkitレシピシステムに登録するクラス
+ * 登録済みのレシピは内容のハッシュと一緒に記録し、再登録時は変更されたレシピだけを入れ替える
+ * まとめて変更する場合はクライアントへのレシピの再送信を最後の1回にまとめる
  */
 public class RecipeManager {
 
     private final CustomItemCreator plugin;
     private final Map<String, NamespacedKey> registeredRecipes = new HashMap<>();
 
+    // レシピID -> 登録した時点の内容のハッシュ
+    private final Map<String, String> registeredHashes = new HashMap<>();
+
+    // グリッドのフィンガープリント -> 登録順のレシピID（FINGERPRINT の場合のみ）
+    private final Map<String, List<String>> fingerprintIndex = new HashMap<>();
+
+    // レシピID -> 登録したフィンガープリント
+    private final Map<String, String> recipeFingerprints = new HashMap<>();
+
+    private MatchingMode matchingMode = MatchingMode.EXACT;
+
+    /**
+     * 材料の判定方法
+     */
+    public enum MatchingMode {
+        // サーバーがアイテムの内容を完全に比較する (ExactChoice)
+        EXACT,
+        // 種類だけでサーバーに候補を出させ、カスタムアイテムIDのフィンガープリントで結果を決める
+        FINGERPRINT
+    }
+
     /**
      * RecipeManagerを初期化
      * @param plugin プラグインインスタンス
@@ -30,32 +61,112 @@ public class RecipeManager {
         this.plugin = plugin;
     }
 
+    /**
+     * 設定ファイルから材料の判定方法を読み込み
+     */
+    private void loadMatchingMode() {
+        String modeStr = plugin.getConfig().getString("recipes.matching", "EXACT");
+        try {
+            matchingMode = MatchingMode.valueOf(modeStr.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            plugin.getLogger().warning("無効なレシピの判定方法: " + modeStr + "、EXACTに設定します");
+            matchingMode = MatchingMode.EXACT;
+        }
+    }
+
     /**
      * 保存されているすべてのレシピをサーバーに登録
+     * 登録済みのレシピと比較し、追加・変更・削除されたレシピだけを反映する
+     * 変更があった場合のみ、最後にクライアントへレシピを1度だけ再送信する
      */
     public void registerAllRecipes() {
-        // 既存のレシピを全て削除
-        clearAllRecipes();
+        // 判定方法が変わった場合は、ハッシュが一致しなくなるため全てのレシピが登録し直される
+        loadMatchingMode();
 
         // 全てのレシピを取得
         List<CustomRecipe> recipes = plugin.getConfigManager().getAllRecipes();
 
+        Map<String, CustomRecipe> desired = new HashMap<>();
         for (CustomRecipe recipe : recipes) {
-            registerRecipe(recipe);
+            desired.put(recipe.getRecipeId(), recipe);
         }
 
-        plugin.getLogger().info("合計 " + registeredRecipes.size() + " 個のカスタムレシピを登録しました。");
+        // 保存されなくなったレシピを削除
+        int removed = 0;
+        for (String recipeId : new ArrayList<>(registeredRecipes.keySet())) {
+            if (!desired.containsKey(recipeId)) {
+                removeRegistered(recipeId);
+                removed++;
+            }
+        }
+
+        // 内容が変わったレシピだけを入れ替える
+        int added = 0;
+        int replaced = 0;
+        int unchanged = 0;
+        for (CustomRecipe recipe : recipes) {
+            boolean wasRegistered = registeredRecipes.containsKey(recipe.getRecipeId());
+            switch (addRecipe(recipe)) {
+                case ADDED -> {
+                    if (wasRegistered) {
+                        replaced++;
+                    } else {
+                        added++;
+                    }
+                }
+                case UNCHANGED -> unchanged++;
+                case FAILED -> {
+                    // 登録できなくなったレシピは古い内容のまま残さない
+                    if (registeredRecipes.containsKey(recipe.getRecipeId())) {
+                        removeRegistered(recipe.getRecipeId());
+                        removed++;
+                    }
+                }
+            }
+        }
+
+        if (added + replaced + removed > 0) {
+            Bukkit.updateRecipes();
+        }
+
+        plugin.getLogger().info("合計 " + registeredRecipes.size() + " 個のカスタムレシピを登録しました。" +
+                "（追加 " + added + "、更新 " + replaced + "、削除 " + removed + "、変更なし " + unchanged + "）");
     }
 
     /**
      * カスタムレシピをサーバーに登録
      * @param recipe 登録するレシピ
-     * @return 登録に成功したらtrue
+     * @return 登録に成功したらtrue（内容が変わっていない場合も含む）
      */
     public boolean registerRecipe(CustomRecipe recipe) {
+        AddResult result = addRecipe(recipe);
+        if (result == AddResult.ADDED) {
+            Bukkit.updateRecipes();
+        }
+        return result != AddResult.FAILED;
+    }
+
+    /**
+     * レシピの登録結果
+     */
+    private enum AddResult {
+        // 新しく登録した、または内容が変わったため登録し直した
+        ADDED,
+        // 登録済みの内容と同じため何もしなかった
+        UNCHANGED,
+        // 登録できなかった
+        FAILED
+    }
+
+    /**
+     * カスタムレシピをサーバーに登録（クライアントへの再送信は行わない）
+     * @param recipe 登録するレシピ
+     * @return 登録結果
+     */
+    private AddResult addRecipe(CustomRecipe recipe) {
         // レシピが空なら登録しない
         if (recipe.isEmpty()) {
-            return false;
+            return AddResult.FAILED;
         }
 
         // 結果アイテムを取得
@@ -64,7 +175,13 @@ public class RecipeManager {
 
         if (resultItem == null) {
             plugin.getLogger().warning("レシピの結果アイテムが見つかりません: " + resultItemId);
-            return false;
+            return AddResult.FAILED;
+        }
+
+        // 結果アイテムと材料が登録済みの内容と同じであれば何もしない
+        String hash = computeHash(recipe, resultItem);
+        if (hash != null && hash.equals(registeredHashes.get(recipe.getRecipeId()))) {
+            return AddResult.UNCHANGED;
         }
 
         try {
@@ -73,8 +190,7 @@ public class RecipeManager {
 
             // 既に登録されているレシピを削除
             if (registeredRecipes.containsKey(recipe.getRecipeId())) {
-                Bukkit.removeRecipe(registeredRecipes.get(recipe.getRecipeId()));
-                registeredRecipes.remove(recipe.getRecipeId());
+                removeRegistered(recipe.getRecipeId());
             }
 
             // ShapedRecipeを作成
@@ -84,19 +200,27 @@ public class RecipeManager {
             String[] shape = determineShape(recipe.getIngredients());
             shapedRecipe.shape(shape);
 
-            // 材料を設定
-            setIngredients(shapedRecipe, recipe.getIngredients(), shape);
+            // 材料を設定（FINGERPRINT でもカスタムアイテムを材料に含まないレシピは完全一致で判定する）
+            boolean fingerprint = matchingMode == MatchingMode.FINGERPRINT &&
+                    RecipeFingerprint.hasCustomItem(recipe.getIngredients(), plugin.getCustomItemKey());
+            setIngredients(shapedRecipe, recipe.getIngredients(), shape, fingerprint);
 
-            // サーバーにレシピを登録
-            Bukkit.addRecipe(shapedRecipe);
+            // サーバーにレシピを登録（クライアントへの再送信は呼び出し側でまとめて行う）
+            Bukkit.addRecipe(shapedRecipe, false);
 
             // 登録済みレシピに追加
             registeredRecipes.put(recipe.getRecipeId(), key);
+            if (hash != null) {
+                registeredHashes.put(recipe.getRecipeId(), hash);
+            }
+            if (fingerprint) {
+                indexFingerprint(recipe);
+            }
 
-            return true;
+            return AddResult.ADDED;
         } catch (Exception e) {
             plugin.getLogger().log(Level.WARNING, "レシピの登録に失敗しました: " + recipe.getRecipeId(), e);
-            return false;
+            return AddResult.FAILED;
         }
     }
 
@@ -106,8 +230,26 @@ public class RecipeManager {
      */
     public void unregisterRecipe(String recipeId) {
         if (registeredRecipes.containsKey(recipeId)) {
-            Bukkit.removeRecipe(registeredRecipes.get(recipeId));
-            registeredRecipes.remove(recipeId);
+            removeRegistered(recipeId);
+            Bukkit.updateRecipes();
+        }
+    }
+
+    /**
+     * 複数のレシピをサーバーから削除
+     * 削除したレシピがあった場合のみ、最後にクライアントへレシピを1度だけ再送信する
+     * @param recipeIds 削除するレシピID
+     */
+    public void unregisterRecipes(Collection<String> recipeIds) {
+        boolean removed = false;
+        for (String recipeId : recipeIds) {
+            if (registeredRecipes.containsKey(recipeId)) {
+                removeRegistered(recipeId);
+                removed = true;
+            }
+        }
+        if (removed) {
+            Bukkit.updateRecipes();
         }
     }
 
@@ -115,10 +257,174 @@ public class RecipeManager {
      * 登録したすべてのレシピを削除
      */
     public void clearAllRecipes() {
+        if (registeredRecipes.isEmpty()) {
+            return;
+        }
         for (NamespacedKey key : registeredRecipes.values()) {
-            Bukkit.removeRecipe(key);
+            Bukkit.removeRecipe(key, false);
         }
         registeredRecipes.clear();
+        registeredHashes.clear();
+        fingerprintIndex.clear();
+        recipeFingerprints.clear();
+        Bukkit.updateRecipes();
+    }
+
+    /**
+     * 登録済みのレシピをサーバーから削除（クライアントへの再送信は行わない）
+     * @param recipeId 削除するレシピID
+     */
+    private void removeRegistered(String recipeId) {
+        NamespacedKey key = registeredRecipes.remove(recipeId);
+        registeredHashes.remove(recipeId);
+        String fingerprint = recipeFingerprints.remove(recipeId);
+        if (fingerprint != null) {
+            // 同じ配置のレシピが残っていれば次に登録したレシピが使われる
+            List<String> recipeIds = fingerprintIndex.get(fingerprint);
+            if (recipeIds != null) {
+                recipeIds.remove(recipeId);
+                if (recipeIds.isEmpty()) {
+                    fingerprintIndex.remove(fingerprint);
+                }
+            }
+        }
+        if (key != null) {
+            Bukkit.removeRecipe(key, false);
+        }
+    }
+
+    /**
+     * レシピのフィンガープリントを索引に登録
+     * 同じ配置のレシピが既にある場合は先に登録したレシピを優先する
+     * @param recipe 登録したレシピ
+     */
+    private void indexFingerprint(CustomRecipe recipe) {
+        String fingerprint = RecipeFingerprint.of(recipe.getIngredients(), 3, plugin.getCustomItemKey(), false);
+        if (fingerprint == null) {
+            return;
+        }
+        List<String> recipeIds = fingerprintIndex.computeIfAbsent(fingerprint, k -> new ArrayList<>(1));
+        if (!recipeIds.isEmpty()) {
+            plugin.getLogger().warning("同じ材料の配置のレシピがあります: " + recipeIds.get(0) + ", " + recipe.getRecipeId());
+        }
+        recipeIds.add(recipe.getRecipeId());
+        recipeFingerprints.put(recipe.getRecipeId(), fingerprint);
+    }
+
+    /**
+     * クラフトグリッドの配置に一致するカスタムレシピの結果アイテムを取得
+     * 各マスのカスタムアイテムIDと種類から作ったフィンガープリントで索引を1度引くだけで判定する
+     * @param matrix クラフトグリッドのアイテム（2x2または3x3）
+     * @return 結果アイテム、一致するレシピがなければnull
+     */
+    public ItemStack matchResult(ItemStack[] matrix) {
+        int width = matrix.length == 4 ? 2 : 3;
+        NamespacedKey customItemKey = plugin.getCustomItemKey();
+
+        List<String> recipeIds = fingerprintIndex.get(RecipeFingerprint.of(matrix, width, customItemKey, false));
+        if (recipeIds == null) {
+            // 左右反転した配置もサーバーの判定と同様に一致として扱う
+            recipeIds = fingerprintIndex.get(RecipeFingerprint.of(matrix, width, customItemKey, true));
+        }
+        if (recipeIds == null) {
+            return null;
+        }
+
+        // 同じ配置のレシピが複数ある場合は先に登録したレシピを優先する
+        String recipeId = recipeIds.get(0);
+
+        CustomRecipe recipe = plugin.getConfigManager().getRecipe(recipeId);
+        return recipe != null ? plugin.getConfigManager().getItem(recipe.getResultItemId()) : null;
+    }
+
+    /**
+     * このプラグインが登録したレシピのキーか
+     * @param key レシピのキー
+     * @return このプラグインのカスタムレシピであればtrue
+     */
+    public boolean isCustomRecipe(NamespacedKey key) {
+        return key.getNamespace().equals(plugin.getName().toLowerCase(Locale.ROOT)) &&
+                key.getKey().startsWith("recipe_");
+    }
+
+    /**
+     * フィンガープリントで結果を判定するカスタムレシピのキーか
+     * カスタムアイテムを材料に含まないレシピは完全一致で登録しているため対象外
+     * @param key レシピのキー
+     * @return フィンガープリントで判定するレシピであればtrue
+     */
+    public boolean isFingerprintRecipe(NamespacedKey key) {
+        return isCustomRecipe(key) && recipeFingerprints.containsKey(key.getKey().substring("recipe_".length()));
+    }
+
+    /**
+     * 材料の判定方法を取得
+     * @return 判定方法
+     */
+    public MatchingMode getMatchingMode() {
+        return matchingMode;
+    }
+
+    /**
+     * 登録するレシピの内容のハッシュを計算
+     * 結果アイテムのIDと内容、各マスの材料の内容から計算するため、結果アイテムの編集も変更として扱う
+     * @param recipe レシピ
+     * @param resultItem 結果アイテム
+     * @return ハッシュ、計算できない場合はnull（常に登録し直す）
+     */
+    private String computeHash(CustomRecipe recipe, ItemStack resultItem) {
+        byte[] result = ItemSerializer.toBytes(resultItem);
+        if (result == null) {
+            return null;
+        }
+
+        ItemStack[] ingredients = recipe.getIngredients();
+        byte[][] encodedIngredients = new byte[ingredients.length][];
+        for (int i = 0; i < ingredients.length; i++) {
+            if (ingredients[i] == null || ingredients[i].getType() == Material.AIR) {
+                continue;
+            }
+            encodedIngredients[i] = ItemSerializer.toBytes(ingredients[i]);
+            if (encodedIngredients[i] == null) {
+                return null;
+            }
+        }
+        return recipeHash(matchingMode, recipe.getResultItemId(), result, encodedIngredients);
+    }
+
+    /**
+     * エンコード済みのレシピの内容からハッシュを計算
+     * @param mode 材料の判定方法
+     * @param resultItemId 結果アイテムID
+     * @param result エンコードした結果アイテム
+     * @param ingredients エンコードした材料（空のマスはnull）
+     * @return ハッシュ
+     */
+    static String recipeHash(MatchingMode mode, String resultItemId, byte[] result, byte[][] ingredients) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(mode.name().getBytes(StandardCharsets.UTF_8));
+            digest.update(resultItemId.getBytes(StandardCharsets.UTF_8));
+            updateDigest(digest, result);
+            for (byte[] ingredient : ingredients) {
+                if (ingredient == null) {
+                    // 空のマスは区切りだけを入れ、材料の位置の違いを区別する
+                    digest.update((byte) 0);
+                } else {
+                    updateDigest(digest, ingredient);
+                }
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256は全てのJava実装で利用できる
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void updateDigest(MessageDigest digest, byte[] bytes) {
+        digest.update((byte) 1);
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+        digest.update(bytes);
     }
 
     /**
@@ -166,6 +472,14 @@ public class RecipeManager {
             return new String[]{"A"};
         }
 
+        // 材料のある行・列の間の空の行・列も形状に含める（詰めると配置が変わってしまう）
+        int rowSpan = span(rowHasItem, firstRow);
+        int colSpan = span(colHasItem, firstCol);
+        for (int i = 0; i < 3; i++) {
+            rowHasItem[i] = i >= firstRow && i < firstRow + rowSpan;
+            colHasItem[i] = i >= firstCol && i < firstCol + colSpan;
+        }
+
         // 形状文字列を作成
         int shapeIndex = 0;
         for (int row = 0; row < 3; row++) {
@@ -175,8 +489,8 @@ public class RecipeManager {
                     if (colHasItem[col]) {
                         int index = row * 3 + col;
                         if (index < ingredients.length && ingredients[index] != null && ingredients[index].getType() != Material.AIR) {
-                            // アイテムがある場所には対応する文字を配置
-                            sb.append((char)('A' + (row - firstRow) * 3 + (col - firstCol)));
+                            // アイテムがある場所には元のマスの位置を表す文字を配置
+                            sb.append((char)('A' + index));
                         } else {
                             // 空のスロットには空白を配置
                             sb.append(' ');
@@ -201,13 +515,27 @@ public class RecipeManager {
         return finalShape;
     }
 
+    /**
+     * 最初に材料がある行（列）から最後に材料がある行（列）までの数を求める
+     */
+    private static int span(boolean[] hasItem, int first) {
+        int last = first;
+        for (int i = first; i < hasItem.length; i++) {
+            if (hasItem[i]) {
+                last = i;
+            }
+        }
+        return last - first + 1;
+    }
+
     /**
      * ShapedRecipeに材料を設定
      * @param recipe ShapedRecipeオブジェクト
      * @param ingredients 材料アイテム配列
      * @param shape レシピの形状
+     * @param fingerprint 種類だけで候補にし、フィンガープリントで判定する場合true
      */
-    private void setIngredients(ShapedRecipe recipe, ItemStack[] ingredients, String[] shape) {
+    private void setIngredients(ShapedRecipe recipe, ItemStack[] ingredients, String[] shape, boolean fingerprint) {
         Map<Character, RecipeChoice> ingredientMap = new HashMap<>();
 
         // 形状内の各文字に対応する材料を設定
@@ -220,11 +548,16 @@ public class RecipeManager {
                 if (c == ' ') continue;
 
                 // 文字から元の配列インデックスを計算
-                int index = row * 3 + col;
+                int index = c - 'A';
 
                 if (index < ingredients.length && ingredients[index] != null && ingredients[index].getType() != Material.AIR) {
-                    // RecipeChoice.ExactChoiceを使用して正確な素材を指定
-                    ingredientMap.put(c, new RecipeChoice.ExactChoice(ingredients[index]));
+                    if (fingerprint) {
+                        // 種類だけで候補にし、カスタムアイテムの判定はフィンガープリントで行う
+                        ingredientMap.put(c, new RecipeChoice.MaterialChoice(ingredients[index].getType()));
+                    } else {
+                        // RecipeChoice.ExactChoiceを使用して正確な素材を指定
+                        ingredientMap.put(c, new RecipeChoice.ExactChoice(ingredients[index]));
+                    }
                 }
             }
         }
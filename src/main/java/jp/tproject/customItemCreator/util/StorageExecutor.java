@@ -0,0 +1,297 @@
+package jp.tproject.customItemCreator.util;
+
+import jp.tproject.customItemCreator.CustomItemCreator;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.IllegalPluginAccessException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * ストレージへの書き込みを専用スレッドで順番に実行するクラス
+ * キューは上限付きで、結果はCompletableFutureとしてメインスレッドで通知される
+ * キューが満杯の場合、メインスレッドからの追加はtickを止めないよう待たずに拒否する
+ */
+public class StorageExecutor {
+
+    private final CustomItemCreator plugin;
+    private final BlockingQueue<Runnable> queue;
+    private final ThreadPoolExecutor executor;
+
+    // キューが満杯の場合に空きを待つ時間 (ミリ秒、メインスレッド以外からの追加のみ)
+    private final long offerTimeout;
+
+    // drainで完了を待っている間はメインスレッドでも空きを待つ
+    private final ThreadLocal<Boolean> draining = ThreadLocal.withInitial(() -> false);
+
+    // 停止時にキューの処理完了を待つ時間 (ミリ秒)
+    private final long shutdownTimeout;
+
+    // 統計情報
+    private final AtomicLong completedTasks = new AtomicLong();
+    private final AtomicLong failedTasks = new AtomicLong();
+    private final AtomicLong rejectedTasks = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    /**
+     * ストレージエグゼキューターを初期化
+     * @param plugin プラグインインスタンス
+     */
+    public StorageExecutor(CustomItemCreator plugin) {
+        this.plugin = plugin;
+
+        int queueSize = Math.max(1, plugin.getConfig().getInt("storage.async.queue-size", 1000));
+        this.offerTimeout = plugin.getConfig().getLong("storage.async.offer-timeout", 1000);
+        this.shutdownTimeout = plugin.getConfig().getLong("storage.async.shutdown-timeout", 30000);
+
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+
+        // 書き込み順序を保証するため単一スレッドで実行
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, queue, runnable -> {
+            Thread thread = new Thread(runnable, "CustomItemCreator-Storage");
+            thread.setDaemon(true);
+            return thread;
+        }, this::handleRejected);
+        this.executor.prestartAllCoreThreads();
+    }
+
+    /**
+     * キューが満杯の場合は一定時間空きを待ち、順序を保ったまま追加する
+     * メインスレッドから呼ばれた場合は待たずに拒否する（drainによる待機を除く）
+     * @param task 追加するタスク
+     * @param executor エグゼキューター
+     */
+    private void handleRejected(Runnable task, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("ストレージキューは停止しています");
+        }
+
+        if (Bukkit.isPrimaryThread() && !draining.get()) {
+            throw new RejectedExecutionException("ストレージキューが満杯です (" + queue.size() + ")");
+        }
+
+        try {
+            if (!queue.offer(task, offerTimeout, TimeUnit.MILLISECONDS)) {
+                throw new RejectedExecutionException("ストレージキューが満杯です (" + queue.size() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("ストレージキューへの追加が中断されました", e);
+        }
+    }
+
+    /**
+     * タスクを書き込みキューに追加
+     * @param task 実行するタスク
+     * @param <T> 結果の型
+     * @return タスクの結果（メインスレッドで完了する）
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long enqueuedAt = System.nanoTime();
+
+        try {
+            executor.execute(() -> {
+                T result = null;
+                Throwable error = null;
+
+                try {
+                    result = task.call();
+                } catch (Throwable t) {
+                    error = t;
+                    plugin.getLogger().log(Level.SEVERE, "ストレージへの書き込みに失敗しました", t);
+                }
+
+                recordLatency(System.nanoTime() - enqueuedAt, error == null);
+                completeOnMainThread(future, result, error);
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedTasks.incrementAndGet();
+            plugin.getLogger().warning("ストレージへの書き込みを受け付けられませんでした: " + e.getMessage());
+            future.completeExceptionally(e);
+        }
+
+        return future;
+    }
+
+    /**
+     * タスクを書き込みキューに追加し、実行し終えるまで呼び出したスレッドで待つ
+     * 結果はメインスレッドを経由せずに受け取るため、メインスレッド以外から呼び出すこと
+     * @param task 実行するタスク
+     * @param <T> 結果の型
+     * @return タスクの結果
+     * @throws ExecutionException タスクが失敗した場合、またはキューに受け付けられなかった場合
+     * @throws InterruptedException 待機中に割り込まれた場合
+     */
+    public <T> T submitAndWait(Callable<T> task) throws ExecutionException, InterruptedException {
+        CompletableFuture<T> done = new CompletableFuture<>();
+
+        submit(() -> {
+            T result;
+            try {
+                result = task.call();
+            } catch (Exception e) {
+                done.completeExceptionally(e);
+                throw e;
+            }
+            done.complete(result);
+            return result;
+        }).whenComplete((result, error) -> {
+            if (error != null) {
+                done.completeExceptionally(error);
+            }
+        });
+
+        return done.get();
+    }
+
+    /**
+     * 処理時間を記録
+     * @param latencyNanos キュー投入から完了までの時間 (ナノ秒)
+     * @param success 成功した場合true
+     */
+    private void recordLatency(long latencyNanos, boolean success) {
+        if (success) {
+            completedTasks.incrementAndGet();
+        } else {
+            failedTasks.incrementAndGet();
+        }
+        totalLatencyNanos.addAndGet(latencyNanos);
+        maxLatencyNanos.accumulateAndGet(latencyNanos, Math::max);
+    }
+
+    /**
+     * 結果をメインスレッドで通知する
+     * プラグイン停止中はスケジューラーが使えないため、その場で完了させる
+     */
+    private <T> void completeOnMainThread(CompletableFuture<T> future, T result, Throwable error) {
+        Runnable completion = () -> {
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                future.complete(result);
+            }
+        };
+
+        if (!plugin.isEnabled()) {
+            completion.run();
+            return;
+        }
+
+        try {
+            Bukkit.getScheduler().runTask(plugin, completion);
+        } catch (IllegalPluginAccessException e) {
+            completion.run();
+        }
+    }
+
+    /**
+     * キューに積まれているタスクが全て完了するまで待機
+     * 結果の通知を待たないため、メインスレッドから呼び出してもデッドロックしない
+     * @return 時間内に完了した場合true
+     */
+    public boolean drain() {
+        if (executor.isShutdown()) {
+            return executor.isTerminated();
+        }
+
+        // 完了を待つこと自体が目的のため、キューが満杯でも空きを待つ
+        draining.set(true);
+        try {
+            executor.submit(() -> { }).get(shutdownTimeout, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException | RejectedExecutionException e) {
+            plugin.getLogger().warning("ストレージキューの処理待ちに失敗しました: " + e.getMessage());
+            return false;
+        } finally {
+            draining.set(false);
+        }
+    }
+
+    /**
+     * 新しいタスクの受付を止め、キューに残っているタスクを順番に全て実行してから停止
+     */
+    public void shutdown() {
+        executor.shutdown();
+
+        try {
+            if (!executor.awaitTermination(shutdownTimeout, TimeUnit.MILLISECONDS)) {
+                plugin.getLogger().severe("ストレージキューの処理が時間内に完了しませんでした。未処理: " + queue.size());
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 処理待ちのタスク数を取得
+     * @return キューの長さ
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * キューの最大長を取得
+     * @return キューの容量
+     */
+    public int getQueueCapacity() {
+        return queue.size() + queue.remainingCapacity();
+    }
+
+    /**
+     * 完了したタスク数を取得
+     * @return 完了数
+     */
+    public long getCompletedTasks() {
+        return completedTasks.get();
+    }
+
+    /**
+     * 失敗したタスク数を取得
+     * @return 失敗数
+     */
+    public long getFailedTasks() {
+        return failedTasks.get();
+    }
+
+    /**
+     * キューが満杯または停止中で拒否されたタスク数を取得
+     * @return 拒否数
+     */
+    public long getRejectedTasks() {
+        return rejectedTasks.get();
+    }
+
+    /**
+     * 平均処理時間を取得（キュー待ちを含む）
+     * @return 平均処理時間 (ミリ秒)
+     */
+    public double getAverageLatencyMillis() {
+        long count = completedTasks.get() + failedTasks.get();
+        return count == 0 ? 0.0 : totalLatencyNanos.get() / (double) count / 1_000_000.0;
+    }
+
+    /**
+     * 最大処理時間を取得（キュー待ちを含む）
+     * @return 最大処理時間 (ミリ秒)
+     */
+    public double getMaxLatencyMillis() {
+        return maxLatencyNanos.get() / 1_000_000.0;
+    }
+}
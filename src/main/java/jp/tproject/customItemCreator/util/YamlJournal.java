@@ -0,0 +1,426 @@
+package jp.tproject.customItemCreator.util;
+
+import jp.tproject.customItemCreator.CustomItemCreator;
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * YAMLファイルへの変更を追記専用のジャーナルに記録するクラス
+ * 変更のたびにファイル全体を書き直す代わりに1行だけ追記し、
+ * 定期的にバックグラウンドでスナップショット（元のYAMLファイル）へ統合する
+ * スナップショットは一時ファイルに書き出してからアトミックにリネームするため、
+ * 途中でクラッシュしてもスナップショットとジャーナルから状態を復元できる
+ */
+public class YamlJournal {
+
+    // 削除を表す値
+    private static final String DELETE_MARKER = "-";
+
+    private final CustomItemCreator plugin;
+    private final StorageExecutor storageExecutor;
+
+    // スナップショット (items.yml など)
+    private final File snapshotFile;
+
+    // 追記中のジャーナル
+    private final File journalFile;
+
+    // 統合中のジャーナル
+    private final File compactingFile;
+
+    // スナップショット書き出し用の一時ファイル
+    private final File tempFile;
+
+    // スナップショットと統合中ジャーナルへのアクセスを直列化するロック
+    private final Object fileLock = new Object();
+
+    private final boolean fsync;
+    private final int compactThreshold;
+    private final long compactInterval;
+
+    private FileChannel channel;
+    private int pendingRecords;
+    private BukkitTask compactTask;
+    private final AtomicBoolean compacting = new AtomicBoolean();
+
+    // 統計情報
+    private final AtomicLong appendedRecords = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+    private volatile long lastCompactionMillis;
+
+    /**
+     * ジャーナルを初期化
+     * @param plugin プラグインインスタンス
+     * @param storageExecutor 統合処理を実行するキュー
+     * @param snapshotFile スナップショットとなるYAMLファイル
+     */
+    public YamlJournal(CustomItemCreator plugin, StorageExecutor storageExecutor, File snapshotFile) {
+        this.plugin = plugin;
+        this.storageExecutor = storageExecutor;
+        this.snapshotFile = snapshotFile;
+        this.journalFile = new File(snapshotFile.getParentFile(), snapshotFile.getName() + ".journal");
+        this.compactingFile = new File(snapshotFile.getParentFile(), snapshotFile.getName() + ".journal.compacting");
+        this.tempFile = new File(snapshotFile.getParentFile(), snapshotFile.getName() + ".tmp");
+
+        this.fsync = plugin.getConfig().getBoolean("storage.yaml.fsync", false);
+        this.compactThreshold = Math.max(1, plugin.getConfig().getInt("storage.yaml.compact-threshold", 1000));
+        this.compactInterval = Math.max(1, plugin.getConfig().getLong("storage.yaml.compact-interval", 300));
+    }
+
+    /**
+     * スナップショットとジャーナルから現在の状態を読み込み、追記を開始する
+     * 前回統合できなかったジャーナルが残っている場合は、スナップショットへの統合を開始する
+     * @return 復元した設定
+     */
+    public synchronized FileConfiguration load() {
+        closeChannel();
+
+        FileConfiguration config = read();
+        pendingRecords = countRecords(journalFile);
+        reopenChannel();
+
+        if (compactingFile.exists()) {
+            plugin.getLogger().info("統合されていないジャーナルをスナップショットに統合します: " + compactingFile.getName());
+            compactAsync();
+        }
+
+        return config;
+    }
+
+    /**
+     * スナップショットに統合中・追記中のジャーナルを適用した状態を読み込む
+     * @return 復元した設定
+     */
+    public FileConfiguration read() {
+        synchronized (fileLock) {
+            FileConfiguration config = loadSnapshot();
+            replay(compactingFile, config);
+            replay(journalFile, config);
+            return config;
+        }
+    }
+
+    /**
+     * 定期的な統合を開始
+     */
+    public void start() {
+        if (compactTask == null) {
+            long ticks = compactInterval * 20L;
+            compactTask = Bukkit.getScheduler().runTaskTimer(plugin, this::compactAsync, ticks, ticks);
+        }
+    }
+
+    /**
+     * 変更を1行追記
+     * @param path 設定のパス
+     * @param value 設定する値、削除の場合はnull
+     */
+    public void append(String path, String value) {
+        appendAll(Collections.singletonMap(path, value));
+    }
+
+    /**
+     * 複数の変更をまとめて追記
+     * 1回の書き込み（fsync有効時は1回の同期）で記録するため、一括処理ではこちらを使用する
+     * @param changes 設定のパスと値のマップ（削除の場合は値がnull）
+     */
+    public synchronized void appendAll(Map<String, String> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        if (channel == null) {
+            plugin.getLogger().severe("ジャーナルが開かれていないため変更を記録できません: " +
+                    changes.keySet().iterator().next());
+            return;
+        }
+
+        StringBuilder lines = new StringBuilder();
+        for (Map.Entry<String, String> change : changes.entrySet()) {
+            String value = change.getValue();
+            String encodedValue = value == null ? DELETE_MARKER :
+                    Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+            lines.append(change.getKey()).append('\t').append(encodedValue).append('\n');
+        }
+
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "ジャーナルへの書き込みに失敗しました: " +
+                    changes.keySet().iterator().next(), e);
+            return;
+        }
+
+        appendedRecords.addAndGet(changes.size());
+        pendingRecords += changes.size();
+        if (pendingRecords >= compactThreshold) {
+            compactAsync();
+        }
+    }
+
+    /**
+     * 追記中のジャーナルを切り替え、バックグラウンドでスナップショットに統合する
+     * 前回統合できなかったジャーナル（統合の失敗・キューの拒否・統合中の停止で残る）がある場合は、
+     * 上書きせずにそちらを先に統合し、追記中のジャーナルは次回切り替える
+     */
+    public synchronized void compactAsync() {
+        // 統合中のファイルを削除するのは統合処理とwriteSnapshotだけで、どちらもここと同時には動かない
+        boolean leftover = compactingFile.exists();
+        if ((pendingRecords == 0 && !leftover) || channel == null || !compacting.compareAndSet(false, true)) {
+            return;
+        }
+
+        // 追記中のジャーナルを統合用に切り替え、新しいジャーナルを開く
+        if (!leftover) {
+            try {
+                closeChannel();
+                synchronized (fileLock) {
+                    Files.move(journalFile.toPath(), compactingFile.toPath());
+                }
+                reopenChannel();
+                pendingRecords = 0;
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.SEVERE, "ジャーナルの切り替えに失敗しました: " + journalFile.getName(), e);
+                compacting.set(false);
+                reopenChannel();
+                return;
+            }
+        }
+
+        storageExecutor.submit(() -> {
+            try {
+                compactFile();
+            } finally {
+                compacting.set(false);
+            }
+            return null;
+        }).whenComplete((result, error) -> {
+            // キューに受け付けられなかった場合も次回の統合を許可する
+            if (error != null) {
+                compacting.set(false);
+            }
+        });
+    }
+
+    /**
+     * 統合中のジャーナルをスナップショットに適用して書き出す
+     */
+    private void compactFile() throws IOException {
+        long start = System.currentTimeMillis();
+
+        synchronized (fileLock) {
+            // 既にメモリ上の状態で上書きされている場合は何もしない
+            if (!compactingFile.exists()) {
+                return;
+            }
+
+            FileConfiguration config = loadSnapshot();
+            replay(compactingFile, config);
+            writeAtomically(config.saveToString());
+            Files.deleteIfExists(compactingFile.toPath());
+        }
+
+        compactions.incrementAndGet();
+        lastCompactionMillis = System.currentTimeMillis() - start;
+    }
+
+    /**
+     * メモリ上の最新の状態をスナップショットとして書き出し、ジャーナルを空にする
+     * 移行などの一括処理や停止時に使用する
+     * @param config 最新の状態を持つ設定
+     */
+    public synchronized void writeSnapshot(FileConfiguration config) {
+        closeChannel();
+
+        synchronized (fileLock) {
+            try {
+                writeAtomically(config.saveToString());
+                Files.deleteIfExists(compactingFile.toPath());
+                Files.deleteIfExists(journalFile.toPath());
+                pendingRecords = 0;
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.SEVERE, "スナップショットを保存できませんでした: " + snapshotFile.getName(), e);
+            }
+        }
+
+        reopenChannel();
+    }
+
+    /**
+     * 定期的な統合を止め、ジャーナルを閉じる
+     */
+    public synchronized void close() {
+        if (compactTask != null) {
+            compactTask.cancel();
+            compactTask = null;
+        }
+        closeChannel();
+    }
+
+    /**
+     * ディスク上のスナップショットを読み込む
+     * @return スナップショットの内容、ファイルがなければ空の設定
+     */
+    private FileConfiguration loadSnapshot() {
+        if (!snapshotFile.exists()) {
+            return new YamlConfiguration();
+        }
+        return YamlConfiguration.loadConfiguration(snapshotFile);
+    }
+
+    /**
+     * 一時ファイルに書き出してからアトミックにリネームする
+     * @param content 書き出す内容
+     */
+    private void writeAtomically(String content) throws IOException {
+        snapshotFile.getParentFile().mkdirs();
+
+        try (FileChannel out = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(true);
+        }
+
+        try {
+            Files.move(tempFile.toPath(), snapshotFile.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * ジャーナルの内容を設定に適用
+     * 書き込み途中でクラッシュした行は読み飛ばす
+     * @param file ジャーナルファイル
+     * @param config 適用先の設定
+     */
+    private void replay(File file, FileConfiguration config) {
+        if (!file.exists()) {
+            return;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int separator = line.indexOf('\t');
+                if (separator <= 0) {
+                    continue;
+                }
+
+                String path = line.substring(0, separator);
+                String encodedValue = line.substring(separator + 1);
+
+                try {
+                    String value = encodedValue.equals(DELETE_MARKER) ? null :
+                            new String(Base64.getDecoder().decode(encodedValue), StandardCharsets.UTF_8);
+                    config.set(path, value);
+                } catch (IllegalArgumentException e) {
+                    plugin.getLogger().warning("ジャーナルの不正な行を読み飛ばしました: " + file.getName());
+                }
+            }
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "ジャーナルを読み込めませんでした: " + file.getName(), e);
+        }
+    }
+
+    /**
+     * ジャーナルの行数を数える
+     * @param file ジャーナルファイル
+     * @return 行数
+     */
+    private int countRecords(File file) {
+        if (!file.exists()) {
+            return 0;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            int count = 0;
+            while (reader.readLine() != null) {
+                count++;
+            }
+            return count;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private void reopenChannel() {
+        try {
+            channel = FileChannel.open(journalFile.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "ジャーナルを開けませんでした: " + journalFile.getName(), e);
+        }
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.WARNING, "ジャーナルを閉じられませんでした: " + journalFile.getName(), e);
+            }
+            channel = null;
+        }
+    }
+
+    /**
+     * 統合待ちの変更数を取得
+     * @return 追記中のジャーナルの行数
+     */
+    public synchronized int getPendingRecords() {
+        return pendingRecords;
+    }
+
+    /**
+     * 追記した変更の総数を取得
+     * @return 追記数
+     */
+    public long getAppendedRecords() {
+        return appendedRecords.get();
+    }
+
+    /**
+     * 統合した回数を取得
+     * @return 統合回数
+     */
+    public long getCompactions() {
+        return compactions.get();
+    }
+
+    /**
+     * 直前の統合にかかった時間を取得
+     * @return 統合時間 (ミリ秒)
+     */
+    public long getLastCompactionMillis() {
+        return lastCompactionMillis;
+    }
+}
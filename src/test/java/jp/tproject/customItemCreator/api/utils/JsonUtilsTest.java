@@ -0,0 +1,72 @@
+package jp.tproject.customItemCreator.api.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonUtilsTest {
+
+    @Test
+    void parsesStringArray() {
+        assertIterableEquals(List.of("a", "b", "a"), JsonUtils.parseStringArray("[\"a\",\"b\",\"a\"]"));
+    }
+
+    @Test
+    void ignoresWhitespaceAroundTokens() {
+        assertIterableEquals(List.of("x y", "z"), JsonUtils.parseStringArray(" \n[ \"x y\" ,\t\"z\" ]\r\n"));
+    }
+
+    @Test
+    void parsesEmptyArray() {
+        assertTrue(JsonUtils.parseStringArray("[]").isEmpty());
+        assertTrue(JsonUtils.parseStringArray("  [  ]  ").isEmpty());
+    }
+
+    @Test
+    void decodesEscapes() {
+        List<String> values = JsonUtils.parseStringArray(
+                "[\"q\\\"uote\", \"back\\\\slash\", \"a\\/b\", \"\\b\\f\\n\\r\\t\", \"\\u00e9\\u3042\"]");
+
+        assertIterableEquals(List.of("q\"uote", "back\\slash", "a/b", "\b\f\n\r\t", "éあ"), values);
+    }
+
+    @Test
+    void rejectsNonArray() {
+        assertThrows(IllegalArgumentException.class, () -> JsonUtils.parseStringArray(""));
+        assertThrows(IllegalArgumentException.class, () -> JsonUtils.parseStringArray("{\"a\":1}"));
+        assertThrows(IllegalArgumentException.class, () -> JsonUtils.parseStringArray("\"a\""));
+    }
+
+    @Test
+    void rejectsNonStringElements() {
+        assertThrows(IllegalArgumentException.class, () -> JsonUtils.parseStringArray("[1]"));
+        assertThrows(IllegalArgumentException.class, () -> JsonUtils.parseStringArray("[\"a\", null]"));
+        assertThrows(IllegalArgumentException.class, () -> JsonUtils.parseStringArray("[\"a\",]"));
+    }
+
+    @Test
+    void rejectsUnterminatedInput() {
+        assertThrows(IllegalArgumentException.class, () -> JsonUtils.parseStringArray("["));
+        assertThrows(IllegalArgumentException.class, () -> JsonUtils.parseStringArray("[\"a"));
+        assertThrows(IllegalArgumentException.class, () -> JsonUtils.parseStringArray("[\"a\""));
+        assertThrows(IllegalArgumentException.class, () -> JsonUtils.parseStringArray("[\"a\" \"b\"]"));
+    }
+
+    @Test
+    void rejectsTrailingCharacters() {
+        assertThrows(IllegalArgumentException.class, () -> JsonUtils.parseStringArray("[\"a\"] x"));
+        assertThrows(IllegalArgumentException.class, () -> JsonUtils.parseStringArray("[\"a\"]]"));
+    }
+
+    @Test
+    void rejectsInvalidEscapes() {
+        assertThrows(IllegalArgumentException.class, () -> JsonUtils.parseStringArray("[\"\\x\"]"));
+        assertThrows(IllegalArgumentException.class, () -> JsonUtils.parseStringArray("[\"\\u12\"]"));
+        assertThrows(IllegalArgumentException.class, () -> JsonUtils.parseStringArray("[\"\\u12zz\"]"));
+        assertThrows(IllegalArgumentException.class, () -> JsonUtils.parseStringArray("[\"\\"));
+    }
+}
@@ -0,0 +1,58 @@
+package jp.tproject.customItemCreator.model;
+
+import org.bukkit.Material;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ItemPageTest {
+
+    private static String encode(String key) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void decodesEncodedCursor() {
+        ItemSummary summary = new ItemSummary("sword", "Sword", Material.DIAMOND_SWORD, Rarity.EPIC, 5, 1, 1700000000123L);
+
+        ItemSummary key = ItemPage.decodeCursor(ItemPage.encodeCursor(summary));
+
+        assertEquals("sword", key.getItemId());
+        assertEquals(1700000000123L, key.getUpdatedAt());
+    }
+
+    @Test
+    void keepsSeparatorInItemId() {
+        ItemSummary summary = new ItemSummary("ns:item:1", null, null, null, 0, 1, 42L);
+
+        ItemSummary key = ItemPage.decodeCursor(ItemPage.encodeCursor(summary));
+
+        assertEquals("ns:item:1", key.getItemId());
+        assertEquals(42L, key.getUpdatedAt());
+    }
+
+    @Test
+    void encodesUrlSafeCursor() {
+        // 標準のBase64では + と / になる値を含むID
+        ItemSummary summary = new ItemSummary("ûÿþ?>", null, null, null, 0, 1, 0L);
+
+        String cursor = ItemPage.encodeCursor(summary);
+
+        assertFalse(cursor.contains("+") || cursor.contains("/") || cursor.contains("="), cursor);
+        assertEquals(summary.getItemId(), ItemPage.decodeCursor(cursor).getItemId());
+    }
+
+    @Test
+    void rejectsMalformedCursors() {
+        assertThrows(IllegalArgumentException.class, () -> ItemPage.decodeCursor("not*base64"));
+        assertThrows(IllegalArgumentException.class, () -> ItemPage.decodeCursor(""));
+        assertThrows(IllegalArgumentException.class, () -> ItemPage.decodeCursor(encode("no-separator")));
+        assertThrows(IllegalArgumentException.class, () -> ItemPage.decodeCursor(encode(":missing-time")));
+        assertThrows(IllegalArgumentException.class, () -> ItemPage.decodeCursor(encode("yesterday:item")));
+    }
+}
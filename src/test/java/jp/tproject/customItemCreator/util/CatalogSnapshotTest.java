@@ -0,0 +1,142 @@
+package jp.tproject.customItemCreator.util;
+
+import jp.tproject.customItemCreator.model.ItemPage;
+import jp.tproject.customItemCreator.model.ItemQuery;
+import jp.tproject.customItemCreator.model.ItemSummary;
+import org.bukkit.Material;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CatalogSnapshotTest {
+
+    private static ItemSummary summary(String itemId, long updatedAt) {
+        return new ItemSummary(itemId, itemId, Material.STONE, null, 0, 1, updatedAt);
+    }
+
+    private static List<String> ids(ItemPage page) {
+        List<String> ids = new ArrayList<>();
+        for (ItemSummary summary : page.getItems()) {
+            ids.add(summary.getItemId());
+        }
+        return ids;
+    }
+
+    // 更新日時の新しい順、同じ日時はIDの昇順: e, c, d, a, b
+    private static CatalogSnapshot snapshot() {
+        return new CatalogSnapshot(1, List.of(
+                summary("a", 100), summary("b", 100), summary("c", 300), summary("d", 200), summary("e", 400)));
+    }
+
+    @Test
+    void ordersByUpdatedAtThenId() {
+        assertIterableEquals(List.of("e", "c", "d", "a", "b"), ids(snapshot().getPage(null, 10)));
+    }
+
+    @Test
+    void walksAllPagesWithCursor() {
+        CatalogSnapshot snapshot = snapshot();
+
+        ItemPage first = snapshot.getPage(null, 2);
+        ItemPage second = snapshot.getPage(first.getNextCursor(), 2);
+        ItemPage last = snapshot.getPage(second.getNextCursor(), 2);
+
+        assertIterableEquals(List.of("e", "c"), ids(first));
+        assertIterableEquals(List.of("d", "a"), ids(second));
+        assertIterableEquals(List.of("b"), ids(last));
+        assertFalse(last.hasNext());
+        assertEquals(5, last.getTotalCount());
+        assertEquals(second.getNextCursor(), last.getCursor());
+    }
+
+    @Test
+    void lastFullPageHasNoNextCursor() {
+        CatalogSnapshot snapshot = new CatalogSnapshot(1, List.of(
+                summary("a", 4), summary("b", 3), summary("c", 2), summary("d", 1)));
+
+        ItemPage first = snapshot.getPage(null, 2);
+        ItemPage second = snapshot.getPage(first.getNextCursor(), 2);
+
+        assertTrue(first.hasNext());
+        assertIterableEquals(List.of("c", "d"), ids(second));
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void continuesAfterCursorItemWasRemoved() {
+        CatalogSnapshot snapshot = snapshot();
+        ItemPage first = snapshot.getPage(null, 2);
+
+        // カーソルの位置のアイテムが削除されても、その次のアイテムから続ける
+        CatalogSnapshot changed = snapshot.withChanges(2, Collections.singletonMap("c", null));
+        ItemPage second = changed.getPage(first.getNextCursor(), 2);
+
+        assertIterableEquals(List.of("d", "a"), ids(second));
+        assertEquals(4, second.getTotalCount());
+    }
+
+    @Test
+    void doesNotRepeatItemsWhenNewerItemIsAdded() {
+        CatalogSnapshot snapshot = snapshot();
+        ItemPage first = snapshot.getPage(null, 2);
+
+        // 先頭に新しいアイテムが追加されても、次のページは位置ではなくキーで決まる
+        CatalogSnapshot changed = snapshot.withChanges(2, Collections.singletonMap("f", summary("f", 500)));
+        ItemPage second = changed.getPage(first.getNextCursor(), 2);
+
+        assertIterableEquals(List.of("d", "a"), ids(second));
+    }
+
+    @Test
+    void returnsEmptyPageForEmptyCatalog() {
+        ItemPage page = new CatalogSnapshot(1, List.of()).getPage(null, 10);
+
+        assertTrue(page.getItems().isEmpty());
+        assertNull(page.getNextCursor());
+        assertEquals(0, page.getTotalCount());
+    }
+
+    @Test
+    void pageAtMatchesCursorPaging() {
+        CatalogSnapshot snapshot = snapshot();
+
+        ItemPage second = snapshot.getPageAt(1, 2);
+
+        assertIterableEquals(List.of("d", "a"), ids(second));
+        assertEquals(snapshot.getPage(null, 2).getNextCursor(), second.getCursor());
+        assertIterableEquals(ids(snapshot.getPage(second.getNextCursor(), 2)), ids(snapshot.getPageAt(2, 2)));
+    }
+
+    @Test
+    void queryPagesThroughMatches() {
+        CatalogSnapshot snapshot = new CatalogSnapshot(1, List.of(
+                summary("a", 5), new ItemSummary("b", "b", Material.DIAMOND, null, 0, 1, 4),
+                summary("c", 3), new ItemSummary("d", "d", Material.DIAMOND, null, 0, 1, 2),
+                summary("e", 1)));
+        ItemQuery query = new ItemQuery(Material.STONE, null, null, null, null);
+
+        ItemPage first = snapshot.query(query, null, 2);
+        ItemPage second = snapshot.query(query, first.getNextCursor(), 2);
+
+        assertIterableEquals(List.of("a", "c"), ids(first));
+        assertIterableEquals(List.of("e"), ids(second));
+        assertNull(second.getNextCursor());
+        assertEquals(-1, second.getTotalCount());
+    }
+
+    @Test
+    void pageAtPastEndIsEmpty() {
+        ItemPage page = snapshot().getPageAt(10, 2);
+
+        assertTrue(page.getItems().isEmpty());
+        assertNull(page.getNextCursor());
+    }
+}
@@ -0,0 +1,129 @@
+package jp.tproject.customItemCreator.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ItemCodecTest {
+
+    @AfterEach
+    void resetThreshold() {
+        ItemCodec.setCompressionThreshold(256);
+    }
+
+    private static byte[] repeated(int length) {
+        byte[] payload = new byte[length];
+        for (int i = 0; i < length; i++) {
+            payload[i] = (byte) "minecraft:diamond_sword".charAt(i % 23);
+        }
+        return payload;
+    }
+
+    @Test
+    void roundTripsSmallPayloadWithoutCompression() {
+        byte[] payload = "small".getBytes(StandardCharsets.UTF_8);
+
+        byte[] packed = ItemCodec.pack(payload);
+
+        assertEquals(4 + payload.length, packed.length);
+        assertEquals(0, packed[3]);
+        assertArrayEquals(payload, ItemCodec.unpack(packed));
+    }
+
+    @Test
+    void roundTripsCompressedPayload() {
+        byte[] payload = repeated(4096);
+
+        byte[] packed = ItemCodec.pack(payload);
+
+        assertEquals(1, packed[3] & 0x01);
+        assertTrue(packed.length < payload.length);
+        assertArrayEquals(payload, ItemCodec.unpack(packed));
+    }
+
+    @Test
+    void keepsIncompressiblePayloadUncompressed() {
+        byte[] payload = new byte[1024];
+        new Random(1).nextBytes(payload);
+
+        byte[] packed = ItemCodec.pack(payload);
+
+        assertEquals(0, packed[3]);
+        assertArrayEquals(payload, ItemCodec.unpack(packed));
+    }
+
+    @Test
+    void doesNotCompressWhenThresholdIsDisabled() {
+        ItemCodec.setCompressionThreshold(0);
+        byte[] payload = repeated(4096);
+
+        byte[] packed = ItemCodec.pack(payload);
+
+        assertEquals(0, packed[3]);
+        assertArrayEquals(payload, ItemCodec.unpack(packed));
+    }
+
+    @Test
+    void detectsEncodedDataByMagic() {
+        assertTrue(ItemCodec.isEncoded(ItemCodec.pack(new byte[0])));
+        assertFalse(ItemCodec.isEncoded(null));
+        assertFalse(ItemCodec.isEncoded(new byte[]{'C', 'I'}));
+    }
+
+    @Test
+    void doesNotDetectJavaSerializationAsEncoded() throws IOException {
+        // 旧形式 (BukkitObjectOutputStream) はJavaシリアライズのヘッダー 0xACED で始まる
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (ObjectOutputStream stream = new ObjectOutputStream(output)) {
+            stream.writeObject("legacy");
+        }
+
+        assertFalse(ItemCodec.isEncoded(output.toByteArray()));
+    }
+
+    @Test
+    void rejectsUnknownVersion() {
+        byte[] packed = ItemCodec.pack("item".getBytes(StandardCharsets.UTF_8));
+        packed[2] = 99;
+
+        assertThrows(IllegalArgumentException.class, () -> ItemCodec.unpack(packed));
+    }
+
+    @Test
+    void rejectsCorruptedCompressedData() {
+        byte[] packed = ItemCodec.pack(repeated(4096));
+        byte[] truncated = Arrays.copyOf(packed, packed.length / 2);
+
+        assertThrows(IllegalArgumentException.class, () -> ItemCodec.unpack(truncated));
+    }
+
+    @Test
+    void rejectsDataWithoutMagic() {
+        assertThrows(IllegalArgumentException.class, () -> ItemCodec.unpack(new byte[]{1, 2, 3, 4}));
+    }
+
+    @Test
+    void serializerReturnsNullForUnreadableData() {
+        byte[] unknownVersion = {'C', 'I', 99, 0};
+
+        assertNull(ItemSerializer.fromBytes(null));
+        assertNull(ItemSerializer.fromBytes(unknownVersion));
+        assertNull(ItemSerializer.fromBase64(null));
+        assertNull(ItemSerializer.fromBase64("not base64!"));
+        assertNull(ItemSerializer.fromBase64(Base64.getEncoder().encodeToString(unknownVersion)));
+    }
+}
@@ -0,0 +1,103 @@
+package jp.tproject.customItemCreator.util;
+
+import jp.tproject.customItemCreator.model.ItemQuery;
+import jp.tproject.customItemCreator.model.ItemSummary;
+import jp.tproject.customItemCreator.model.Rarity;
+import org.bukkit.ChatColor;
+import org.bukkit.Material;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ItemIndexTest {
+
+    private static final List<ItemSummary> ORDERED = new ArrayList<>(List.of(
+            new ItemSummary("blade", ChatColor.GOLD + "Golden Blade", Material.DIAMOND_SWORD, Rarity.LEGENDARY, 10, 1, 900),
+            new ItemSummary("gem", "Gem", Material.DIAMOND, Rarity.RARE, 0, 1, 800),
+            new ItemSummary("sword", "Sword", Material.DIAMOND_SWORD, Rarity.COMMON, 3, 1, 700),
+            new ItemSummary("ingot", "Gold Ingot", Material.GOLD_INGOT, Rarity.COMMON, 20, 1, 600),
+            new ItemSummary("saber", "Saber", Material.DIAMOND_SWORD, Rarity.COMMON, 15, 1, 500),
+            new ItemSummary("stick", "Stick", Material.STICK, Rarity.COMMON, 10, 1, 400)));
+
+    static {
+        ORDERED.sort(ItemSummary.LISTING_ORDER);
+    }
+
+    private final ItemIndex index = new ItemIndex(ORDERED);
+
+    private static List<String> ids(List<ItemSummary> summaries) {
+        List<String> ids = new ArrayList<>();
+        for (ItemSummary summary : summaries) {
+            ids.add(summary.getItemId());
+        }
+        return ids;
+    }
+
+    private static ItemQuery query(Material material, Rarity rarity, Integer min, Integer max, String prefix) {
+        return new ItemQuery(material, rarity, min, max, prefix);
+    }
+
+    @Test
+    void returnsItemsOfMaterialInListingOrder() {
+        List<ItemSummary> candidates = index.candidates(query(Material.DIAMOND_SWORD, null, null, null, null));
+
+        assertIterableEquals(List.of("blade", "sword", "saber"), ids(candidates));
+    }
+
+    @Test
+    void usesSmallestIndex() {
+        // 種類は3件、レア度は1件のためレア度の索引から候補を作る
+        List<ItemSummary> candidates = index.candidates(query(Material.DIAMOND_SWORD, Rarity.LEGENDARY, null, null, null));
+
+        assertIterableEquals(List.of("blade"), ids(candidates));
+    }
+
+    @Test
+    void selectsCustomModelDataRangeInclusive() {
+        List<ItemSummary> candidates = index.candidates(query(null, null, 10, 15, null));
+
+        assertIterableEquals(List.of("blade", "saber", "stick"), ids(candidates));
+    }
+
+    @Test
+    void returnsNothingForEmptyRange() {
+        assertTrue(index.candidates(query(null, null, 20, 10, null)).isEmpty());
+        assertTrue(index.candidates(query(Material.PAPER, null, null, null, null)).isEmpty());
+    }
+
+    @Test
+    void matchesNamePrefixIgnoringColorAndCase() {
+        List<ItemSummary> candidates = index.candidates(query(null, null, null, null, "GOLD"));
+
+        assertIterableEquals(List.of("blade", "ingot"), ids(candidates));
+    }
+
+    @Test
+    void candidatesContainEveryMatchInListingOrder() {
+        List<ItemQuery> queries = List.of(
+                query(Material.DIAMOND_SWORD, Rarity.COMMON, null, null, null),
+                query(Material.DIAMOND_SWORD, null, 5, null, null),
+                query(null, Rarity.COMMON, null, 12, "s"),
+                query(null, null, 0, 100, "g"),
+                query(Material.STICK, null, null, null, "stick"),
+                query(null, Rarity.RARE, 0, 0, null));
+
+        for (ItemQuery query : queries) {
+            List<ItemSummary> candidates = index.candidates(query);
+
+            List<ItemSummary> sorted = new ArrayList<>(candidates);
+            sorted.sort(ItemSummary.LISTING_ORDER);
+            assertIterableEquals(sorted, candidates);
+
+            for (ItemSummary summary : ORDERED) {
+                if (query.matches(summary)) {
+                    assertTrue(candidates.contains(summary), summary.getItemId());
+                }
+            }
+        }
+    }
+}
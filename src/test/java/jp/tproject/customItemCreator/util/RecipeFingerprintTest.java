@@ -0,0 +1,92 @@
+package jp.tproject.customItemCreator.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RecipeFingerprintTest {
+
+    // 左上にL字に並べた非対称の配置
+    private static final String[] L_SHAPE = {
+            "#ruby", null, null,
+            "#ruby", null, null,
+            "#ruby", "STICK", null};
+
+    private static final String[] L_SHAPE_MIRRORED = {
+            null, null, "#ruby",
+            null, null, "#ruby",
+            null, "STICK", "#ruby"};
+
+    @Test
+    void ignoresPositionInGrid() {
+        String[] shifted = {
+                null, "#ruby", null,
+                null, "#ruby", null,
+                null, "#ruby", "STICK"};
+
+        assertEquals("2x3|#ruby,|#ruby,|#ruby,STICK", RecipeFingerprint.of(L_SHAPE, 3, false));
+        assertEquals(RecipeFingerprint.of(L_SHAPE, 3, false), RecipeFingerprint.of(shifted, 3, false));
+    }
+
+    @Test
+    void matchesSmallGridAgainstLargeGrid() {
+        String[] large = {
+                null, null, null,
+                null, "#ruby", "#ruby",
+                null, null, "STICK"};
+        String[] small = {
+                "#ruby", "#ruby",
+                null, "STICK"};
+
+        assertEquals(RecipeFingerprint.of(large, 3, false), RecipeFingerprint.of(small, 2, false));
+    }
+
+    @Test
+    void mirroredFingerprintMatchesMirroredPlacement() {
+        assertNotEquals(RecipeFingerprint.of(L_SHAPE, 3, false), RecipeFingerprint.of(L_SHAPE_MIRRORED, 3, false));
+
+        // 左右反転した配置で作ると、登録した配置のフィンガープリントと一致する
+        assertEquals(RecipeFingerprint.of(L_SHAPE, 3, false), RecipeFingerprint.of(L_SHAPE_MIRRORED, 3, true));
+        assertEquals(RecipeFingerprint.of(L_SHAPE_MIRRORED, 3, false), RecipeFingerprint.of(L_SHAPE, 3, true));
+    }
+
+    @Test
+    void symmetricPlacementIsSameWhenMirrored() {
+        String[] symmetric = {
+                "#ruby", "#ruby", "#ruby",
+                null, "STICK", null,
+                null, "STICK", null};
+
+        assertEquals(RecipeFingerprint.of(symmetric, 3, false), RecipeFingerprint.of(symmetric, 3, true));
+    }
+
+    @Test
+    void keepsGapsInsideShape() {
+        String[] gap = {
+                "#ruby", null, "#ruby",
+                null, null, null,
+                null, null, null};
+        String[] adjacent = {
+                "#ruby", "#ruby", null,
+                null, null, null,
+                null, null, null};
+
+        assertNotEquals(RecipeFingerprint.of(gap, 3, false), RecipeFingerprint.of(adjacent, 3, false));
+    }
+
+    @Test
+    void distinguishesCustomItemFromMaterial() {
+        String[] custom = {"#diamond", null, null, null};
+        String[] vanilla = {"DIAMOND", null, null, null};
+
+        assertNotEquals(RecipeFingerprint.of(custom, 2, false), RecipeFingerprint.of(vanilla, 2, false));
+    }
+
+    @Test
+    void returnsNullForEmptyGrid() {
+        assertNull(RecipeFingerprint.of(new String[9], 3, false));
+        assertNull(RecipeFingerprint.of(new String[4], 2, true));
+    }
+}
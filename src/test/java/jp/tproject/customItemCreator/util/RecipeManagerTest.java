@@ -0,0 +1,63 @@
+package jp.tproject.customItemCreator.util;
+
+import jp.tproject.customItemCreator.util.RecipeManager.MatchingMode;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class RecipeManagerTest {
+
+    private static final byte[] RESULT = bytes("result");
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String hash(byte[]... ingredients) {
+        return RecipeManager.recipeHash(MatchingMode.EXACT, "item", RESULT, ingredients);
+    }
+
+    @Test
+    void sameContentHasSameHash() {
+        // 内容が同じであれば別のインスタンスでも変更なしと判定する
+        assertEquals(hash(bytes("iron"), null, bytes("stick")), hash(bytes("iron"), null, bytes("stick")));
+    }
+
+    @Test
+    void changedIngredientChangesHash() {
+        assertNotEquals(hash(bytes("iron"), null, bytes("stick")), hash(bytes("gold"), null, bytes("stick")));
+    }
+
+    @Test
+    void movedIngredientChangesHash() {
+        assertNotEquals(hash(bytes("iron"), null, null), hash(null, bytes("iron"), null));
+        assertNotEquals(hash(bytes("iron"), null), hash(bytes("iron")));
+    }
+
+    @Test
+    void ingredientBoundariesAreNotAmbiguous() {
+        assertNotEquals(hash(bytes("ab"), bytes("c")), hash(bytes("a"), bytes("bc")));
+    }
+
+    @Test
+    void changedResultChangesHash() {
+        byte[][] ingredients = {bytes("iron")};
+
+        String original = RecipeManager.recipeHash(MatchingMode.EXACT, "item", RESULT, ingredients);
+
+        // 結果アイテムの内容の編集も、結果アイテムIDの変更も再登録の対象にする
+        assertNotEquals(original, RecipeManager.recipeHash(MatchingMode.EXACT, "item", bytes("edited"), ingredients));
+        assertNotEquals(original, RecipeManager.recipeHash(MatchingMode.EXACT, "other", RESULT, ingredients));
+    }
+
+    @Test
+    void changedMatchingModeChangesHash() {
+        byte[][] ingredients = {bytes("iron")};
+
+        assertNotEquals(RecipeManager.recipeHash(MatchingMode.EXACT, "item", RESULT, ingredients),
+                RecipeManager.recipeHash(MatchingMode.FINGERPRINT, "item", RESULT, ingredients));
+    }
+}
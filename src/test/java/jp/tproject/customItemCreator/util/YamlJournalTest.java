@@ -0,0 +1,261 @@
+package jp.tproject.customItemCreator.util;
+
+import jp.tproject.customItemCreator.CustomItemCreator;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class YamlJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private final YamlConfiguration pluginConfig = new YamlConfiguration();
+    private final List<YamlJournal> journals = new ArrayList<>();
+    private CustomItemCreator plugin;
+    private StorageExecutor storageExecutor;
+    private File snapshotFile;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        pluginConfig.set("storage.yaml.compact-threshold", 1000);
+
+        plugin = mock(CustomItemCreator.class);
+        when(plugin.getConfig()).thenReturn(pluginConfig);
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("YamlJournalTest"));
+
+        // 統合処理はキューを使わずテストのスレッドでそのまま実行する
+        storageExecutor = mock(StorageExecutor.class);
+        when(storageExecutor.submit(any())).thenAnswer(invocation -> {
+            Callable<?> task = invocation.getArgument(0);
+            return CompletableFuture.completedFuture(task.call());
+        });
+
+        snapshotFile = dir.resolve("items.yml").toFile();
+    }
+
+    @AfterEach
+    void tearDown() {
+        journals.forEach(YamlJournal::close);
+    }
+
+    private YamlJournal openJournal() {
+        YamlJournal journal = new YamlJournal(plugin, storageExecutor, snapshotFile);
+        journals.add(journal);
+        return journal;
+    }
+
+    private File journalFile() {
+        return new File(snapshotFile.getParentFile(), snapshotFile.getName() + ".journal");
+    }
+
+    private File compactingFile() {
+        return new File(snapshotFile.getParentFile(), snapshotFile.getName() + ".journal.compacting");
+    }
+
+    private static String record(String path, String value) {
+        return path + "\t" + Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8)) + "\n";
+    }
+
+    @Test
+    void replaysAppendedChangesOnLoad() {
+        YamlJournal journal = openJournal();
+        journal.load();
+        journal.append("items.a", "first");
+        journal.append("items.b", "second");
+        journal.append("items.a", null);
+        journal.close();
+
+        FileConfiguration config = openJournal().load();
+
+        assertNull(config.getString("items.a"));
+        assertEquals("second", config.getString("items.b"));
+        // 追記だけではスナップショットを書き直さない
+        assertFalse(snapshotFile.exists());
+    }
+
+    @Test
+    void appendAllRecordsEveryChange() {
+        YamlJournal journal = openJournal();
+        journal.load();
+
+        Map<String, String> changes = new LinkedHashMap<>();
+        changes.put("items.a", "multi\nline: value");
+        changes.put("items.b", "second");
+        journal.appendAll(changes);
+
+        assertEquals(2, journal.getPendingRecords());
+        FileConfiguration config = journal.read();
+        assertEquals("multi\nline: value", config.getString("items.a"));
+        assertEquals("second", config.getString("items.b"));
+    }
+
+    @Test
+    void compactionMergesJournalIntoSnapshot() {
+        YamlJournal journal = openJournal();
+        journal.load();
+        journal.append("items.a", "first");
+        journal.append("items.b", "second");
+
+        journal.compactAsync();
+
+        assertEquals(1, journal.getCompactions());
+        assertEquals(0, journal.getPendingRecords());
+        assertFalse(compactingFile().exists());
+        FileConfiguration snapshot = YamlConfiguration.loadConfiguration(snapshotFile);
+        assertEquals("first", snapshot.getString("items.a"));
+        assertEquals("second", snapshot.getString("items.b"));
+    }
+
+    @Test
+    void changesAfterCompactionOverrideSnapshot() {
+        YamlJournal journal = openJournal();
+        journal.load();
+        journal.append("items.a", "old");
+        journal.append("items.b", "kept");
+        journal.compactAsync();
+
+        journal.append("items.a", "new");
+        journal.append("items.b", null);
+        journal.close();
+
+        FileConfiguration config = openJournal().load();
+
+        assertEquals("new", config.getString("items.a"));
+        assertNull(config.getString("items.b"));
+    }
+
+    @Test
+    void compactsWhenThresholdIsReached() {
+        pluginConfig.set("storage.yaml.compact-threshold", 2);
+        YamlJournal journal = openJournal();
+        journal.load();
+
+        journal.append("items.a", "first");
+        assertEquals(0, journal.getCompactions());
+
+        journal.append("items.b", "second");
+        assertEquals(1, journal.getCompactions());
+        assertEquals("second", YamlConfiguration.loadConfiguration(snapshotFile).getString("items.b"));
+    }
+
+    @Test
+    void replaysInterruptedCompactionBeforeJournal() throws IOException {
+        YamlJournal journal = openJournal();
+        journal.load();
+        journal.append("items.a", "rotated");
+        journal.append("items.b", "rotated");
+        journal.close();
+
+        // ジャーナルを切り替えた直後、統合する前に停止した状態を再現する
+        Files.move(journalFile().toPath(), compactingFile().toPath());
+
+        YamlJournal restarted = openJournal();
+        restarted.load();
+        restarted.append("items.a", "latest");
+        restarted.close();
+
+        FileConfiguration config = openJournal().load();
+
+        assertEquals("latest", config.getString("items.a"));
+        assertEquals("rotated", config.getString("items.b"));
+    }
+
+    @Test
+    void mergesLeftoverCompactingFileOnLoad() throws IOException {
+        YamlJournal journal = openJournal();
+        journal.load();
+        journal.append("items.a", "rotated");
+        journal.close();
+        Files.move(journalFile().toPath(), compactingFile().toPath());
+
+        YamlJournal restarted = openJournal();
+        restarted.load();
+
+        // 読み込んだ時点で統合し、メモリ上だけに残る変更をなくす
+        assertFalse(compactingFile().exists());
+        assertEquals(1, restarted.getCompactions());
+        assertEquals("rotated", YamlConfiguration.loadConfiguration(snapshotFile).getString("items.a"));
+    }
+
+    @Test
+    void doesNotOverwriteLeftoverCompactingFile() throws IOException {
+        YamlJournal journal = openJournal();
+        journal.load();
+
+        // 統合に失敗して残った、スナップショットに統合されていないジャーナル
+        Files.writeString(compactingFile().toPath(), record("items.a", "leftover"), StandardCharsets.UTF_8);
+        journal.append("items.b", "appended");
+
+        // 残っていたジャーナルを先に統合し、追記中のジャーナルはそのまま残す
+        journal.compactAsync();
+        assertFalse(compactingFile().exists());
+        assertEquals(1, journal.getPendingRecords());
+        FileConfiguration snapshot = YamlConfiguration.loadConfiguration(snapshotFile);
+        assertEquals("leftover", snapshot.getString("items.a"));
+        assertNull(snapshot.getString("items.b"));
+
+        journal.compactAsync();
+        assertEquals(0, journal.getPendingRecords());
+        journal.close();
+
+        FileConfiguration config = openJournal().load();
+
+        assertEquals("leftover", config.getString("items.a"));
+        assertEquals("appended", config.getString("items.b"));
+        assertEquals("appended", YamlConfiguration.loadConfiguration(snapshotFile).getString("items.b"));
+    }
+
+    @Test
+    void skipsTruncatedLine() throws IOException {
+        String valid = record("items.a", "first");
+        // 書き込み途中で停止した行（区切りも改行もない）と壊れた値の行
+        Files.writeString(journalFile().toPath(), valid + "items.b\t%%%\nitems.c", StandardCharsets.UTF_8);
+
+        FileConfiguration config = openJournal().load();
+
+        assertEquals("first", config.getString("items.a"));
+        assertNull(config.getString("items.b"));
+        assertNull(config.getString("items.c"));
+    }
+
+    @Test
+    void writeSnapshotClearsJournal() {
+        YamlJournal journal = openJournal();
+        journal.load();
+        journal.append("items.a", "journaled");
+
+        YamlConfiguration state = new YamlConfiguration();
+        state.set("items.a", "snapshot");
+        journal.writeSnapshot(state);
+
+        assertEquals(0, journal.getPendingRecords());
+        assertTrue(journalFile().length() == 0 || !journalFile().exists());
+        assertEquals("snapshot", openJournal().load().getString("items.a"));
+    }
+}